@@ -0,0 +1,387 @@
+package hu.lakospeter.appleremote4j;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Dispatch tables of the annotated listeners of an {@link AppleRemote} (see {@link OnButton}).
+ *
+ * <br><br>
+ *
+ * The {@link OnButton} methods of a class are scanned only once, and each of them is turned into a factory that binds
+ *  the method to a listener instance as an {@link AppleRemoteEventHandler}. Whenever possible, the handler is
+ *  generated with {@link LambdaMetafactory}, so calling it costs the same as calling the method directly; otherwise
+ *  (e.g. the class is not public, or it is not visible from the class loader of appleremote4j) it falls back to
+ *  a bound {@link MethodHandle}. Only the event codes that have handlers get entries in the tables.
+ *
+ * @author lakospeter
+ */
+final class AnnotatedHandlers {
+
+    /**
+     * The handlers of the event codes that have no handlers.
+     */
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    /**
+     * Lookup with private access to this class, as required by {@link LambdaMetafactory}.
+     */
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    /**
+     * The bindings of the {@link OnButton} methods of every class, computed once per class.
+     */
+    private static final ClassValue<Binding[]> BINDINGS = new ClassValue<Binding[]>() {
+        @Override
+        protected Binding[] computeValue(final Class<?> type) {
+            return scan(type);
+        }
+    };
+
+    /**
+     * The handlers of every event code, indexed by event code. The arrays are never modified, they are replaced.
+     */
+    private volatile Entry[][] table;
+
+    /**
+     * The interest mask of the handlers: bit <code>code</code> is set if the event code has handlers.
+     */
+    private volatile int interestMask;
+
+
+    /**
+     * Creates empty dispatch tables.
+     */
+    AnnotatedHandlers() {
+        final Entry[][] emptyTable = new Entry[AppleRemoteEventCodes.CODE_COUNT][];
+        Arrays.fill(emptyTable, NO_ENTRIES);
+        table = emptyTable;
+    }
+
+    /**
+     * Binds the {@link OnButton} methods of a listener, and adds them to the dispatch tables.
+     *
+     * @param listener The annotated listener.
+     * @throws IllegalArgumentException If the listener has no {@link OnButton} methods, or one of them is invalid.
+     */
+    synchronized void add(final Object listener) {
+        final Binding[] bindings = BINDINGS.get(listener.getClass());
+        if (bindings.length == 0) {
+            throw new IllegalArgumentException("No @OnButton methods in " + listener.getClass().getName());
+        }
+        for (Entry[] entries : table) {
+            for (Entry entry : entries) {
+                if (entry.listener == listener) {
+                    return;
+                }
+            }
+        }
+        final Entry[][] newTable = table.clone();
+        for (Binding binding : bindings) {
+            final Entry[] entries = Arrays.copyOf(newTable[binding.code], newTable[binding.code].length + 1);
+            entries[entries.length - 1] = new Entry(listener, binding.bind(listener));
+            newTable[binding.code] = entries;
+        }
+        setTable(newTable);
+    }
+
+    /**
+     * Removes the handlers of a listener from the dispatch tables.
+     *
+     * @param listener The annotated listener.
+     */
+    synchronized void remove(final Object listener) {
+        final Entry[][] newTable = table.clone();
+        for (int code = 0; code < newTable.length; code++) {
+            final List<Entry> entries = new ArrayList<>(Arrays.asList(newTable[code]));
+            if (entries.removeIf(entry -> entry.listener == listener)) {
+                newTable[code] = entries.isEmpty() ? NO_ENTRIES : entries.toArray(new Entry[entries.size()]);
+            }
+        }
+        setTable(newTable);
+    }
+
+    /**
+     * Calls the handlers of an event, in the order they were added, until one of them consumes the event.
+     *
+     * @param event The event.
+     * @param code The event code of the event.
+     */
+    void dispatch(final AppleRemoteEvent event, final int code) {
+        for (Entry entry : table[code]) {
+            entry.handler.handle(event);
+            if (event.isConsumed()) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns the interest mask of the handlers.
+     *
+     * @return The event codes that have handlers, as a bit mask.
+     */
+    int getInterestMask() {
+        return interestMask;
+    }
+
+    /**
+     * Returns whether any handler is registered for the specified event code.
+     *
+     * @param code The event code.
+     * @return <code>true</code> if the code has handlers.
+     */
+    boolean hasHandlers(final int code) {
+        return table[code].length > 0;
+    }
+
+    /**
+     * Publishes new dispatch tables, and updates the interest mask. Must be called with the lock held.
+     *
+     * @param newTable The new dispatch tables.
+     */
+    private void setTable(final Entry[][] newTable) {
+        int newInterestMask = 0;
+        for (int code = 0; code < newTable.length; code++) {
+            if (newTable[code].length > 0) {
+                newInterestMask |= 1 << code;
+            }
+        }
+        table = newTable;
+        interestMask = newInterestMask;
+    }
+
+    /**
+     * Finds the {@link OnButton} methods of a class and creates their bindings. An annotated method that is
+     *  overridden by an annotated method of a subclass is bound only once, with the annotation of the subclass.
+     *
+     * @param type The class of the listener.
+     * @return The bindings of the class.
+     * @throws IllegalArgumentException If an {@link OnButton} method is invalid.
+     */
+    private static Binding[] scan(final Class<?> type) {
+        final List<Binding> bindings = new ArrayList<>();
+        final Set<String> signatures = new HashSet<>();
+        for (Class<?> declaringClass = type; declaringClass != null; declaringClass = declaringClass.getSuperclass()) {
+            for (Method method : declaringClass.getDeclaredMethods()) {
+                final OnButton onButton = method.getAnnotation(OnButton.class);
+                if (onButton != null && !method.isBridge()
+                        && signatures.add(method.getName() + Arrays.toString(method.getParameterTypes()))) {
+                    bindings.add(binding(method, onButton));
+                }
+            }
+        }
+        return bindings.toArray(new Binding[bindings.size()]);
+    }
+
+    /**
+     * Creates the binding of an {@link OnButton} method.
+     *
+     * @param method The method.
+     * @param onButton The annotation of the method.
+     * @return The binding of the method.
+     * @throws IllegalArgumentException If the method is invalid.
+     */
+    private static Binding binding(final Method method, final OnButton onButton) {
+        final int code = AppleRemoteEventCodes.code(onButton.button(), onButton.kind());
+        if (!AppleRemoteEventCodes.isValid(code)) {
+            throw new IllegalArgumentException(onButton.button() + " never fires " + onButton.kind() + ": " + method);
+        }
+        if (!Modifier.isPublic(method.getModifiers()) || Modifier.isStatic(method.getModifiers())) {
+            throw new IllegalArgumentException("@OnButton methods must be public instance methods: " + method);
+        }
+        final Class<?>[] parameterTypes = method.getParameterTypes();
+        final boolean hasEvent = parameterTypes.length == 1;
+        if (parameterTypes.length > 1 || hasEvent && !parameterTypes[0].isAssignableFrom(AppleRemoteEvent.class)) {
+            throw new IllegalArgumentException("@OnButton methods must have no parameters, or one AppleRemoteEvent "
+                    + "parameter: " + method);
+        }
+
+        try {
+            if (isLinkable(method.getDeclaringClass())) {
+                return new Binding(code, hasEvent, metafactory(method, hasEvent), true);
+            }
+            method.setAccessible(true);
+            return new Binding(code, hasEvent, LOOKUP.unreflect(method), false);
+        } catch (Throwable ex) {
+            throw new IllegalArgumentException("Could not bind @OnButton method: " + method, ex);
+        }
+    }
+
+    /**
+     * Returns whether the handlers generated by {@link LambdaMetafactory} can call the methods of a class directly:
+     *  the class (and its enclosing classes) must be public, and visible from the class loader of appleremote4j.
+     *
+     * @param type The class.
+     * @return <code>true</code> if the class can be linked to by generated handlers.
+     */
+    private static boolean isLinkable(final Class<?> type) {
+        for (Class<?> enclosing = type; enclosing != null; enclosing = enclosing.getEnclosingClass()) {
+            if (!Modifier.isPublic(enclosing.getModifiers())) {
+                return false;
+            }
+        }
+        try {
+            return Class.forName(type.getName(), false, AnnotatedHandlers.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Generates the factory of the handlers of a method with {@link LambdaMetafactory}.
+     *
+     * @param method The method.
+     * @param hasEvent Whether the method has an {@link AppleRemoteEvent} parameter.
+     * @return A method handle that takes a listener instance and returns an {@link AppleRemoteEventHandler} (or
+     *          a {@link Runnable} if the method has no parameters) that calls the method of the listener.
+     * @throws Throwable If the factory cannot be generated.
+     */
+    private static MethodHandle metafactory(final Method method, final boolean hasEvent) throws Throwable {
+        final MethodHandle implementation = LOOKUP.unreflect(method);
+        final Class<?> interfaceType = hasEvent ? AppleRemoteEventHandler.class : Runnable.class;
+        final MethodType methodType = hasEvent
+                ? MethodType.methodType(void.class, AppleRemoteEvent.class)
+                : MethodType.methodType(void.class);
+        final CallSite callSite = LambdaMetafactory.metafactory(
+                LOOKUP,
+                hasEvent ? "handle" : "run",
+                MethodType.methodType(interfaceType, method.getDeclaringClass()),
+                methodType,
+                implementation,
+                methodType);
+        return callSite.getTarget();
+    }
+
+    /**
+     * The binding of an {@link OnButton} method of a class.
+     */
+    private static final class Binding {
+
+        /**
+         * The event code the method handles.
+         */
+        private final int code;
+
+        /**
+         * Whether the method has an {@link AppleRemoteEvent} parameter.
+         */
+        private final boolean hasEvent;
+
+        /**
+         * The factory generated by {@link LambdaMetafactory}, or the method handle of the method.
+         */
+        private final MethodHandle methodHandle;
+
+        /**
+         * Whether {@link #methodHandle} is a factory generated by {@link LambdaMetafactory}.
+         */
+        private final boolean generated;
+
+
+        /**
+         * Simple constructor that gives values to fields.
+         *
+         * @param code The event code the method handles.
+         * @param hasEvent Whether the method has an {@link AppleRemoteEvent} parameter.
+         * @param methodHandle The factory generated by {@link LambdaMetafactory}, or the method handle of the method.
+         * @param generated Whether the method handle is a factory generated by {@link LambdaMetafactory}.
+         */
+        private Binding(final int code, final boolean hasEvent, final MethodHandle methodHandle,
+                        final boolean generated) {
+            this.code = code;
+            this.hasEvent = hasEvent;
+            this.methodHandle = methodHandle;
+            this.generated = generated;
+        }
+
+        /**
+         * Binds the method to a listener instance.
+         *
+         * @param listener The listener instance.
+         * @return The handler that calls the method of the listener.
+         */
+        private AppleRemoteEventHandler bind(final Object listener) {
+            try {
+                if (generated) {
+                    if (hasEvent) {
+                        return (AppleRemoteEventHandler) methodHandle.invoke(listener);
+                    }
+                    final Runnable runnable = (Runnable) methodHandle.invoke(listener);
+                    return e -> runnable.run();
+                }
+
+                final MethodHandle bound = methodHandle.bindTo(listener);
+                if (hasEvent) {
+                    final MethodHandle invoker = bound.asType(MethodType.methodType(void.class,
+                                                                                    AppleRemoteEvent.class));
+                    return e -> invoke(invoker, e);
+                }
+                final MethodHandle invoker = bound.asType(MethodType.methodType(void.class));
+                return e -> invoke(invoker, null);
+            } catch (Throwable ex) {
+                throw new IllegalArgumentException("Could not bind @OnButton method to " + listener, ex);
+            }
+        }
+
+        /**
+         * Calls a bound method handle of the fallback binding.
+         *
+         * @param invoker The bound method handle, of type <code>(AppleRemoteEvent)void</code>, or <code>()void</code>
+         *          if the event is <code>null</code>.
+         * @param event The event, or <code>null</code> if the method has no parameters.
+         */
+        private static void invoke(final MethodHandle invoker, final AppleRemoteEvent event) {
+            try {
+                if (event == null) {
+                    invoker.invokeExact();
+                } else {
+                    invoker.invokeExact(event);
+                }
+            } catch (RuntimeException | Error ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                throw new UndeclaredThrowableException(ex);
+            }
+        }
+    }
+
+    /**
+     * A handler in the dispatch tables, together with the listener it belongs to.
+     */
+    private static final class Entry {
+
+        /**
+         * The annotated listener the handler belongs to.
+         */
+        private final Object listener;
+
+        /**
+         * The handler.
+         */
+        private final AppleRemoteEventHandler handler;
+
+
+        /**
+         * Simple constructor that gives values to fields.
+         *
+         * @param listener The annotated listener the handler belongs to.
+         * @param handler The handler.
+         */
+        private Entry(final Object listener, final AppleRemoteEventHandler handler) {
+            this.listener = listener;
+            this.handler = handler;
+        }
+    }
+}
@@ -1,14 +1,22 @@
 package hu.lakospeter.appleremote4j;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
 /**
  *  Representation of the Apple Remote.
@@ -59,30 +67,197 @@ public class AppleRemote extends Thread {
                                                     + "/Library/Application Support/hu.lakospeter.appleremote4j/"
                                                     + IREMOTEPIPE_FILE_NAME;
 
+    /**
+     * The name of the system property that overrides the path of the iremotepipe program
+     *  (e.g. to run {@link IRemotePipeEmulator} on systems other than OS X).
+     */
+    public static final String IREMOTEPIPE_PATH_PROPERTY = "hu.lakospeter.appleremote4j.iremotepipe.path";
+
+    /**
+     * The name of the system property that holds the whitespace separated arguments of the iremotepipe program.
+     *  An argument that contains whitespace (e.g. a path) can be enclosed in single or double quotes, which are
+     *  removed: <code>-cp "/Users/me/My Libs/appleremote4j.jar"</code>. Quotes of the other kind are kept inside
+     *  quotes, and a quoted part can be adjacent to an unquoted part of the same argument. Backslashes are kept
+     *  as they are, so Windows paths need no escaping.
+     */
+    public static final String IREMOTEPIPE_ARGS_PROPERTY = "hu.lakospeter.appleremote4j.iremotepipe.args";
+
+    /**
+     * The size of the buffer that iremotepipe's output is read into. It is much longer than an output line.
+     */
+    private static final int READ_BUFFER_SIZE = 4096;
+
+    /**
+     * The default value of the hold timeout (see {@link #setHoldTimeout(long)}), in milliseconds.
+     */
+    public static final long DEFAULT_HOLD_TIMEOUT_MILLIS = 60000;
+
+    /**
+     * The priority of the listeners that are added without a priority.
+     */
+    public static final int DEFAULT_LISTENER_PRIORITY = 0;
+
+    /**
+     * The maximum number of stages in flight of the async listeners that are added without a maximum.
+     */
+    public static final int DEFAULT_MAX_ASYNC_STAGES_IN_FLIGHT = 64;
+
+    /**
+     * The number of events the event history of an AppleRemote keeps (see {@link #getEventHistory()}).
+     */
+    public static final int EVENT_HISTORY_CAPACITY = 256;
+
+    /**
+     * The default value of the idle suspend timeout (see {@link #setIdleSuspendTimeout(long)}), in milliseconds.
+     */
+    public static final long DEFAULT_IDLE_SUSPEND_MILLIS = 30000;
+
+    /**
+     * The interest mask of every event code.
+     */
+    private static final int ALL_CODES = (1 << AppleRemoteEventCodes.CODE_COUNT) - 1;
+
     /*
-        CopyOnWriteArrayList is a List implementation backed up by a copy-on-write array.
-        This implementation is similar in nature to CopyOnWriteArraySet. No synchronization is necessary,
-        even during iteration, and iterators are guaranteed never to throw ConcurrentModificationException.
-        This implementation is well suited to maintaining event-handler lists, in which change is infrequent,
-        and traversal is frequent and potentially time-consuming.
+        The listeners are kept in an AppleRemoteListenerRegistry instead of a CopyOnWriteArrayList, because they can
+        be many and added and removed often: adding and removing a listener costs amortised constant time, and the
+        sorted snapshot that is iterated by the dispatching is only rebuilt before the first dispatch after a change.
+     */
 
-        http://docs.oracle.com/javase/tutorial/collections/implementations/list.html
+    /**
+     * Registry of all the listeners of this AppleRemote.
      */
+    private final AppleRemoteListenerRegistry appleRemoteListeners = new AppleRemoteListenerRegistry();
 
     /**
-     * List of all the listeners of this AppleRemote.
+     * The polling queues that this AppleRemote adds its events to.
      */
-    private List<AppleRemoteListener> appleRemoteListeners = new CopyOnWriteArrayList<>();
+    private List<AppleRemoteEventQueue> eventQueues = new CopyOnWriteArrayList<>();
+
+    /**
+     * The primitive polling queues that this AppleRemote adds its events to.
+     */
+    private List<AppleRemoteEventCodeQueue> eventCodeQueues = new CopyOnWriteArrayList<>();
+
+    /**
+     * The publishers that this AppleRemote publishes its events to other processes with.
+     */
+    private List<AppleRemotePublisher> publishers = new CopyOnWriteArrayList<>();
+
+    /**
+     * The collectors of the batches of the batch listeners of this AppleRemote.
+     */
+    private List<BatchCollector> batchCollectors = new CopyOnWriteArrayList<>();
+
+    /**
+     * The dispatchers of the async listeners of this AppleRemote.
+     */
+    private List<AsyncDispatcher> asyncDispatchers = new CopyOnWriteArrayList<>();
+
+    /**
+     * The dispatch tables of the annotated listeners of this AppleRemote.
+     */
+    private final AnnotatedHandlers annotatedHandlers = new AnnotatedHandlers();
+
+    /**
+     * The focus context stack of this AppleRemote.
+     */
+    private final ContextStack contextStack = new ContextStack();
+
+    /**
+     * The matcher of the registered sequences of this AppleRemote.
+     */
+    private final SequenceMatcher sequenceMatcher = new SequenceMatcher();
+
+    /**
+     * The command (the path of the program and its arguments) that starts iremotepipe.
+     */
+    private final List<String> iRemotePipeCommand;
+
+    /**
+     * The live state of the buttons of this AppleRemote.
+     */
+    private final ButtonStates buttonStates = new ButtonStates();
+
+    /**
+     * The live usage counters of this AppleRemote.
+     */
+    private final AppleRemoteLiveCounters liveCounters = new AppleRemoteLiveCounters();
+
+    /**
+     * The history of the most recent events of this AppleRemote.
+     */
+    private final AppleRemoteEventHistory eventHistory = new AppleRemoteEventHistory(this, EVENT_HISTORY_CAPACITY);
+
+    /**
+     * The operational metrics of this AppleRemote.
+     */
+    private final AppleRemoteMetrics metrics = new AppleRemoteMetrics(this);
+
+    /**
+     * Lock that makes sure events are dispatched one at a time, even if the hold watchdog synthesizes an event while
+     *  iremotepipe's output is being processed.
+     */
+    private final Object dispatchLock = new Object();
+
+    /**
+     * Runs the scheduled tasks (e.g. the hold watchdog) of this AppleRemote on a daemon thread.
+     */
+    private final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+        final Thread thread = new Thread(runnable, "AppleRemote scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The pending hold watchdog task of every button that is being held down, indexed by {@link Button#ordinal()}.
+     *  Guarded by {@link #dispatchLock}.
+     */
+    private final ScheduledFuture<?>[] holdWatchdogs = new ScheduledFuture<?>[Button.values().length];
+
+    /**
+     * The time after which a hold that was not stopped is considered to be lost (see {@link #setHoldTimeout(long)}).
+     */
+    private volatile long holdTimeoutMillis = DEFAULT_HOLD_TIMEOUT_MILLIS;
 
     /**
      * The iremotepipe process that was started by this AppleRemote and whose output this AppleRemote processes.
      */
-    private Process iRemotePipeProcess;
+    private volatile Process iRemotePipeProcess;
 
     /**
      * Indicates whether this AppleRemote ({@link Thread}) should be running.
      */
-    private boolean shouldBeRunning;
+    private volatile boolean shouldBeRunning;
+
+    /**
+     * The time without interest in any event after which iremotepipe is suspended
+     *  (see {@link #setIdleSuspendTimeout(long)}).
+     */
+    private volatile long idleSuspendMillis = DEFAULT_IDLE_SUSPEND_MILLIS;
+
+    /**
+     * Lock that guards the suspension of iremotepipe. This AppleRemote ({@link Thread}) waits on it while it is
+     *  suspended.
+     */
+    private final Object suspensionLock = new Object();
+
+    /**
+     * Indicates whether iremotepipe is suspended, because nothing was interested in any event for the idle suspend
+     *  timeout. Guarded by {@link #suspensionLock}.
+     */
+    private volatile boolean suspended;
+
+    /**
+     * Indicates whether the current iremotepipe process was destroyed to suspend it, so its output ended on purpose.
+     *  Guarded by {@link #suspensionLock}.
+     */
+    private boolean suspensionRequested;
+
+    /**
+     * The task that suspends iremotepipe when the idle suspend timeout is reached, or <code>null</code>.
+     *  Guarded by {@link #suspensionLock}.
+     */
+    private ScheduledFuture<?> idleTask;
 
     /**
      * All of the button types on the white and the aluminum remotes.
@@ -97,39 +272,667 @@ public class AppleRemote extends Thread {
         SELECT
     }
 
+    /**
+     * All of the kinds of events a button can fire.
+     *  Not every button fires every kind (e.g. the Select button can only be pressed).
+     */
+    public enum Kind {
+        PRESSED,
+        HOLD_STARTED,
+        HOLD_STOPPED,
+        HELD
+    }
+
 
     /**
-     * The sole purpose of the constructor is to start this AppleRemote ({@link Thread}).
+     * Starts this AppleRemote ({@link Thread}) with the iremotepipe program that is bundled with appleremote4j,
+     *  or with the program specified by the {@link #IREMOTEPIPE_PATH_PROPERTY} and {@link #IREMOTEPIPE_ARGS_PROPERTY}
+     *  system properties.
      */
     public AppleRemote() {
-        start();
+        this(defaultIRemotePipeCommand());
+    }
+
+    /**
+     * Starts this AppleRemote ({@link Thread}) with the specified iremotepipe command. The program must print
+     *  iremotepipe's output format to its standard output (e.g. {@link IRemotePipeEmulator}).
+     *
+     * @param iRemotePipeCommand The path of the iremotepipe program, followed by its arguments.
+     * @throws IllegalArgumentException If the command is empty.
+     */
+    public AppleRemote(final List<String> iRemotePipeCommand) {
+        this(iRemotePipeCommand, true);
+    }
+
+    /**
+     * Creates this AppleRemote with the specified iremotepipe command, and starts it ({@link Thread}) if requested.
+     *  An AppleRemote that is not started can be fed iremotepipe's output directly with
+     *  {@link #processOutput(InputStream)} (e.g. by the performance tests).
+     *
+     * @param iRemotePipeCommand The path of the iremotepipe program, followed by its arguments.
+     * @param start Whether to start this AppleRemote.
+     * @throws IllegalArgumentException If the command is empty.
+     */
+    AppleRemote(final List<String> iRemotePipeCommand, final boolean start) {
+        if (iRemotePipeCommand.isEmpty()) {
+            throw new IllegalArgumentException("The iremotepipe command is empty.");
+        }
+        this.iRemotePipeCommand = Collections.unmodifiableList(new ArrayList<>(iRemotePipeCommand));
+        scheduler.setRemoveOnCancelPolicy(true);
+        if (start) {
+            start();
+        }
+    }
+
+    /**
+     * Returns the iremotepipe command of the no-arg constructor: the bundled iremotepipe program, unless the
+     *  {@link #IREMOTEPIPE_PATH_PROPERTY} system property is set.
+     *
+     * @return The path of the iremotepipe program, followed by its arguments.
+     */
+    private static List<String> defaultIRemotePipeCommand() {
+        final List<String> command = new ArrayList<>();
+        command.add(System.getProperty(IREMOTEPIPE_PATH_PROPERTY, IREMOTEPIPE_PATH_AND_FILE_NAME));
+        command.addAll(splitArguments(System.getProperty(IREMOTEPIPE_ARGS_PROPERTY, "")));
+        return command;
+    }
+
+    /**
+     * Splits the value of the {@link #IREMOTEPIPE_ARGS_PROPERTY} system property into arguments: at whitespace,
+     *  except inside single or double quotes, which are removed.
+     *
+     * @param args The arguments, separated by whitespace.
+     * @return The arguments, without their quotes.
+     * @throws IllegalArgumentException If a quote is not closed.
+     */
+    static List<String> splitArguments(final String args) {
+        final List<String> arguments = new ArrayList<>();
+        final StringBuilder argument = new StringBuilder();
+        boolean inArgument = false;
+        char quote = 0;
+        for (int index = 0; index < args.length(); index++) {
+            final char c = args.charAt(index);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                } else {
+                    argument.append(c);
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+                inArgument = true;
+            } else if (Character.isWhitespace(c)) {
+                if (inArgument) {
+                    arguments.add(argument.toString());
+                    argument.setLength(0);
+                    inArgument = false;
+                }
+            } else {
+                argument.append(c);
+                inArgument = true;
+            }
+        }
+        if (quote != 0) {
+            throw new IllegalArgumentException("Unclosed quote in the iremotepipe arguments: " + args);
+        }
+        if (inArgument) {
+            arguments.add(argument.toString());
+        }
+        return arguments;
+    }
+
+    /**
+     * Returns the command that starts iremotepipe.
+     *
+     * @return The path of the iremotepipe program, followed by its arguments.
+     */
+    public List<String> getIRemotePipeCommand() {
+        return iRemotePipeCommand;
     }
 
     /**
      * Adds the specified new {@link AppleRemoteListener} to the list of listeners of this
-     *  AppleRemote, if it doesn't already contain this particular listener.
+     *  AppleRemote, if it doesn't already contain this particular listener, with the default priority.
      *
      * @param appleRemoteListener The new listener to be added to the list of listeners of this AppleRemote.
      */
     public void addAppleRemoteListener(final AppleRemoteListener appleRemoteListener) {
-        if (!appleRemoteListeners.contains(appleRemoteListener)) {
-            appleRemoteListeners.add(appleRemoteListener);
-        }
+        addAppleRemoteListener(appleRemoteListener, DEFAULT_LISTENER_PRIORITY);
+    }
+
+    /**
+     * Adds the specified new {@link AppleRemoteListener} to the list of listeners of this
+     *  AppleRemote, if it doesn't already contain this particular listener, with the specified priority.
+     *
+     * <br><br>
+     *
+     * Listeners with higher priorities receive the events first, and listeners with the same priority receive them
+     *  in the order they were added. A listener can stop an event from being passed to the remaining listeners by
+     *  consuming it (see {@link AppleRemoteEvent#consume()}).
+     *
+     * @param appleRemoteListener The new listener to be added to the list of listeners of this AppleRemote.
+     * @param priority The priority of the listener.
+     */
+    public void addAppleRemoteListener(final AppleRemoteListener appleRemoteListener, final int priority) {
+        appleRemoteListeners.add(appleRemoteListener, priority, false);
+        interestChanged();
+    }
+
+    /**
+     * Adds the specified new {@link AppleRemoteListener} to the list of listeners of this
+     *  AppleRemote, if it doesn't already contain this particular listener, but only keeps a weak reference to it.
+     *  After the listener is garbage collected (e.g. it belonged to a discarded UI component), it is removed from the
+     *  list of listeners automatically. Removing a listener this way does not stop this AppleRemote.
+     *
+     * @param appleRemoteListener The new listener to be added to the list of listeners of this AppleRemote.
+     */
+    public void addWeakAppleRemoteListener(final AppleRemoteListener appleRemoteListener) {
+        addWeakAppleRemoteListener(appleRemoteListener, DEFAULT_LISTENER_PRIORITY);
+    }
+
+    /**
+     * Adds the specified new {@link AppleRemoteListener} to the list of listeners of this AppleRemote with the
+     *  specified priority (see {@link #addAppleRemoteListener(AppleRemoteListener, int)}), but only keeps a weak
+     *  reference to it (see {@link #addWeakAppleRemoteListener(AppleRemoteListener)}).
+     *
+     * @param appleRemoteListener The new listener to be added to the list of listeners of this AppleRemote.
+     * @param priority The priority of the listener.
+     */
+    public void addWeakAppleRemoteListener(final AppleRemoteListener appleRemoteListener, final int priority) {
+        appleRemoteListeners.add(appleRemoteListener, priority, true);
+        interestChanged();
     }
 
     /**
      * Removes the specified {@link AppleRemoteListener} from the list of listeners of this
      *  AppleRemote, if it is present.
-     *  If after removing this listener, the list of listeners becomes empty, it stops this AppleRemote (stops the
-     *  {@link Thread}.
+     *  If after removing this listener, nothing is interested in any event, iremotepipe is suspended after the idle
+     *  suspend timeout (see {@link #setIdleSuspendTimeout(long)}), and resumed when a listener is added again.
+     *  This AppleRemote ({@link Thread}) is only stopped by {@link #stopRunning()}.
      *
      * @param appleRemoteListener The listener to be removed from the list of listeners of this AppleRemote.
      */
     public void removeAppleRemoteListener(final AppleRemoteListener appleRemoteListener) {
         appleRemoteListeners.remove(appleRemoteListener);
-        if (appleRemoteListeners.isEmpty()) {
-            stopRunning();
+        interestChanged();
+    }
+
+    /**
+     * Adds the specified {@link AppleRemoteBatchListener} to this AppleRemote, if it was not added already.
+     *  The listener receives a batch at the end of every read of iremotepipe's output that produced events.
+     *
+     * @param batchListener The new batch listener.
+     */
+    public void addBatchListener(final AppleRemoteBatchListener batchListener) {
+        addBatchListener(batchListener, 0);
+    }
+
+    /**
+     * Adds the specified {@link AppleRemoteBatchListener} to this AppleRemote, if it was not added already.
+     *
+     * <br><br>
+     *
+     * If the maximum batch latency is 0, the listener receives a batch at the end of every read of iremotepipe's
+     *  output that produced events. Otherwise a batch collects events (possibly from several reads) until its first
+     *  event is as old as the maximum batch latency, so the listener receives fewer, larger batches.
+     *
+     * @param batchListener The new batch listener.
+     * @param maxBatchLatencyMillis The maximum batch latency in milliseconds, or 0.
+     */
+    public void addBatchListener(final AppleRemoteBatchListener batchListener, final long maxBatchLatencyMillis) {
+        if (maxBatchLatencyMillis < 0) {
+            throw new IllegalArgumentException("Invalid maximum batch latency: " + maxBatchLatencyMillis);
+        }
+        synchronized (dispatchLock) {
+            for (BatchCollector batchCollector : batchCollectors) {
+                if (batchCollector.listener == batchListener) {
+                    return;
+                }
+            }
+            batchCollectors.add(new BatchCollector(batchListener, maxBatchLatencyMillis));
+        }
+        interestChanged();
+    }
+
+    /**
+     * Removes the specified {@link AppleRemoteBatchListener} from this AppleRemote, if it is present.
+     *  Its pending batch is delivered before it is removed.
+     *
+     * @param batchListener The batch listener to be removed.
+     */
+    public void removeBatchListener(final AppleRemoteBatchListener batchListener) {
+        synchronized (dispatchLock) {
+            for (BatchCollector batchCollector : batchCollectors) {
+                if (batchCollector.listener == batchListener) {
+                    batchCollectors.remove(batchCollector);
+                    batchCollector.deliver(this);
+                }
+            }
         }
+        interestChanged();
+    }
+
+    /**
+     * Adds the specified {@link AppleRemoteAsyncListener} to this AppleRemote, if it was not added already, with at
+     *  most {@link #DEFAULT_MAX_ASYNC_STAGES_IN_FLIGHT} stages in flight. Its failures are printed to the standard
+     *  error.
+     *
+     * @param asyncListener The new async listener.
+     */
+    public void addAsyncListener(final AppleRemoteAsyncListener asyncListener) {
+        addAsyncListener(asyncListener, DEFAULT_MAX_ASYNC_STAGES_IN_FLIGHT, (event, failure) -> {
+            System.err.println("Error: An async listener failed to handle " + event);
+            failure.printStackTrace();
+        });
+    }
+
+    /**
+     * Adds the specified {@link AppleRemoteAsyncListener} to this AppleRemote, if it was not added already.
+     *
+     * <br><br>
+     *
+     * The events of different buttons are handled concurrently, and the events of the same button are handled in
+     *  order. This AppleRemote never waits for the stages: when the maximum number of stages are in flight, the
+     *  listener does not receive the event, and it is counted as an overflow (see
+     *  {@link #getAsyncOverflowCount(AppleRemoteAsyncListener)}). The hold stop of a received hold start is always
+     *  received, even over the maximum, and the hold stop of a missed hold start is missed too. Otherwise async
+     *  listeners receive every event, even the consumed ones.
+     *
+     * @param asyncListener The new async listener.
+     * @param maxStagesInFlight The maximum number of stages of the listener in flight.
+     * @param failureHandler Called with the event and the failure when the listener throws an exception, or its stage
+     *          completes exceptionally.
+     */
+    public void addAsyncListener(final AppleRemoteAsyncListener asyncListener, final int maxStagesInFlight,
+                                 final BiConsumer<AppleRemoteEvent, Throwable> failureHandler) {
+        if (maxStagesInFlight <= 0) {
+            throw new IllegalArgumentException("Invalid maximum number of stages in flight: " + maxStagesInFlight);
+        }
+        synchronized (dispatchLock) {
+            for (AsyncDispatcher asyncDispatcher : asyncDispatchers) {
+                if (asyncDispatcher.listener == asyncListener) {
+                    return;
+                }
+            }
+            asyncDispatchers.add(new AsyncDispatcher(asyncListener, maxStagesInFlight, failureHandler));
+        }
+        interestChanged();
+    }
+
+    /**
+     * Removes the specified {@link AppleRemoteAsyncListener} from this AppleRemote, if it is present.
+     *  Its stages in flight are not cancelled.
+     *
+     * @param asyncListener The async listener to be removed.
+     */
+    public void removeAsyncListener(final AppleRemoteAsyncListener asyncListener) {
+        synchronized (dispatchLock) {
+            for (AsyncDispatcher asyncDispatcher : asyncDispatchers) {
+                if (asyncDispatcher.listener == asyncListener) {
+                    asyncDispatchers.remove(asyncDispatcher);
+                }
+            }
+        }
+        interestChanged();
+    }
+
+    /**
+     * Returns the number of events the specified {@link AppleRemoteAsyncListener} did not receive, because the
+     *  maximum number of its stages were in flight (including the hold stops of the hold starts it did not receive).
+     *
+     * @param asyncListener The async listener.
+     * @return The number of dropped events, or 0 if the listener was not added to this AppleRemote.
+     */
+    public long getAsyncOverflowCount(final AppleRemoteAsyncListener asyncListener) {
+        for (AsyncDispatcher asyncDispatcher : asyncDispatchers) {
+            if (asyncDispatcher.listener == asyncListener) {
+                return asyncDispatcher.getOverflowCount();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Adds an annotated listener to this AppleRemote, if it was not added already. Every public method of the
+     *  listener that is annotated with {@link OnButton} is called when its button fires an event of its kind.
+     *
+     * <br><br>
+     *
+     * The annotations of a class are scanned only once, and each annotated method is bound to a generated invoker,
+     *  so calling it costs the same as calling an {@link AppleRemoteListener} method.
+     *
+     * @param listener The annotated listener.
+     * @throws IllegalArgumentException If the listener has no {@link OnButton} methods, or one of them is not a
+     *          public instance method with no parameters or one {@link AppleRemoteEvent} parameter, or its button
+     *          never fires its kind of event.
+     */
+    public void addAnnotatedListener(final Object listener) {
+        annotatedHandlers.add(listener);
+        interestChanged();
+    }
+
+    /**
+     * Removes the specified annotated listener from this AppleRemote, if it is present.
+     *
+     * @param listener The annotated listener to be removed.
+     */
+    public void removeAnnotatedListener(final Object listener) {
+        annotatedHandlers.remove(listener);
+        interestChanged();
+    }
+
+    /**
+     * Pushes a focus context on the top of the context stack of this AppleRemote. From now on, the events are routed
+     *  to the handlers of this context (and if it falls through, to the handlers of the contexts below it), instead
+     *  of the handlers of the previous top context. The listeners of this AppleRemote still receive every event.
+     *
+     * <br><br>
+     *
+     * The context stack can be changed from any thread, and routing an event to a context costs the same however
+     *  many contexts are on the stack.
+     *
+     * @param context The context to be pushed.
+     */
+    public void pushContext(final AppleRemoteContext context) {
+        if (context == null) {
+            throw new IllegalArgumentException("The context must not be null");
+        }
+        contextStack.push(context);
+        interestChanged();
+    }
+
+    /**
+     * Pops the focus context on the top of the context stack of this AppleRemote.
+     *
+     * @return The popped context, or <code>null</code> if the context stack was empty.
+     */
+    public AppleRemoteContext popContext() {
+        final AppleRemoteContext context = contextStack.pop();
+        interestChanged();
+        return context;
+    }
+
+    /**
+     * Removes the specified focus context from the context stack of this AppleRemote, even if it is not on the top
+     *  (e.g. a screen that was closed while a dialog was open above it).
+     *
+     * @param context The context to be removed.
+     * @return <code>true</code> if the context was on the context stack.
+     */
+    public boolean removeContext(final AppleRemoteContext context) {
+        final boolean removed = contextStack.remove(context);
+        interestChanged();
+        return removed;
+    }
+
+    /**
+     * Returns the focus context on the top of the context stack of this AppleRemote.
+     *
+     * @return The current context, or <code>null</code> if the context stack is empty.
+     */
+    public AppleRemoteContext getContext() {
+        return contextStack.peek();
+    }
+
+    /**
+     * Registers a sequence of events (e.g. a shortcut or a service code) with a handler, which is called with the last
+     *  event of the sequence whenever the sequence is matched. All of the registered sequences are matched together,
+     *  so matching costs the same however many sequences are registered. Sequences are matched against every event,
+     *  even the consumed ones.
+     *
+     * @param sequence The sequence.
+     * @param handler The handler of the sequence.
+     */
+    public void addSequence(final AppleRemoteSequence sequence, final AppleRemoteEventHandler handler) {
+        sequenceMatcher.add(sequence, handler);
+        interestChanged();
+    }
+
+    /**
+     * Removes the registration of a sequence with a handler, if it is present.
+     *
+     * @param sequence The sequence.
+     * @param handler The handler of the sequence.
+     */
+    public void removeSequence(final AppleRemoteSequence sequence, final AppleRemoteEventHandler handler) {
+        sequenceMatcher.remove(sequence, handler);
+        interestChanged();
+    }
+
+    /**
+     * Adds the specified {@link AppleRemoteEventQueue} to this AppleRemote, if it was not added already.
+     *  From now on, every event of this AppleRemote is also added to this queue, and can be polled from it
+     *  (e.g. once per frame in a game or render loop).
+     *
+     * @param eventQueue The queue to be added. It must not be added to any other AppleRemote.
+     */
+    public void addEventQueue(final AppleRemoteEventQueue eventQueue) {
+        if (!eventQueues.contains(eventQueue)) {
+            eventQueues.add(eventQueue);
+        }
+        interestChanged();
+    }
+
+    /**
+     * Removes the specified {@link AppleRemoteEventQueue} from this AppleRemote, if it is present.
+     *  The events that are already in the queue can still be polled.
+     *
+     * @param eventQueue The queue to be removed.
+     */
+    public void removeEventQueue(final AppleRemoteEventQueue eventQueue) {
+        eventQueues.remove(eventQueue);
+        interestChanged();
+    }
+
+    /**
+     * Adds the specified {@link AppleRemoteEventCodeQueue} to this AppleRemote, if it was not added already.
+     *  From now on, every event of this AppleRemote is also added to this queue as a primitive value, and can be
+     *  polled from it without any allocation.
+     *
+     * @param eventCodeQueue The queue to be added. It must not be added to any other AppleRemote.
+     */
+    public void addEventCodeQueue(final AppleRemoteEventCodeQueue eventCodeQueue) {
+        if (!eventCodeQueues.contains(eventCodeQueue)) {
+            eventCodeQueues.add(eventCodeQueue);
+        }
+        interestChanged();
+    }
+
+    /**
+     * Removes the specified {@link AppleRemoteEventCodeQueue} from this AppleRemote, if it is present.
+     *  The events that are already in the queue can still be polled.
+     *
+     * @param eventCodeQueue The queue to be removed.
+     */
+    public void removeEventCodeQueue(final AppleRemoteEventCodeQueue eventCodeQueue) {
+        eventCodeQueues.remove(eventCodeQueue);
+        interestChanged();
+    }
+
+    /**
+     * Adds the specified {@link AppleRemotePublisher} to this AppleRemote, if it was not added already.
+     *  From now on, every event of this AppleRemote is also published to the processes that are subscribed to
+     *  the shared ring file of the publisher.
+     *
+     * @param publisher The publisher to be added. It must not be added to any other AppleRemote.
+     */
+    public void addPublisher(final AppleRemotePublisher publisher) {
+        if (!publishers.contains(publisher)) {
+            publishers.add(publisher);
+        }
+        interestChanged();
+    }
+
+    /**
+     * Removes the specified {@link AppleRemotePublisher} from this AppleRemote, if it is present.
+     *
+     * @param publisher The publisher to be removed.
+     */
+    public void removePublisher(final AppleRemotePublisher publisher) {
+        publishers.remove(publisher);
+        interestChanged();
+    }
+
+    /**
+     * Returns whether the specified button is being held down, i.e. its hold was started, and it was not stopped
+     *  yet. It does not lock, so it can be called from any thread at any rate (e.g. once per frame in a render loop).
+     *
+     * @param button The button.
+     * @return <code>true</code> if the button is being held down.
+     */
+    public boolean isHeld(final Button button) {
+        return buttonStates.isHeld(button);
+    }
+
+    /**
+     * Returns a snapshot of the buttons being held down. The snapshot is consistent: it is the state between two
+     *  events.
+     *
+     * @return The set of the buttons being held down.
+     */
+    public EnumSet<Button> getHeldButtons() {
+        final int heldMask = buttonStates.getHeldMask();
+        final EnumSet<Button> heldButtons = EnumSet.noneOf(Button.class);
+        for (Button button : Button.values()) {
+            if ((heldMask & 1 << button.ordinal()) != 0) {
+                heldButtons.add(button);
+            }
+        }
+        return heldButtons;
+    }
+
+    /**
+     * Returns the time the specified button was last pressed (or its hold was started, or it was held).
+     *  It does not lock, so it can be called from any thread at any rate.
+     *
+     * @param button The button.
+     * @return The time in milliseconds since the epoch, or 0 if the button was never pressed.
+     */
+    public long getLastPressTime(final Button button) {
+        return buttonStates.getLastPressTime(button);
+    }
+
+    /**
+     * Returns the live usage counters of this AppleRemote: the number of events of every button and kind in rolling
+     *  time windows of up to an hour. They can be read from any thread without blocking the dispatching of events.
+     *
+     * @return The live usage counters.
+     */
+    public AppleRemoteLiveCounters getLiveCounters() {
+        return liveCounters;
+    }
+
+    /**
+     * Returns the history of the last {@link #EVENT_HISTORY_CAPACITY} events of this AppleRemote. It can be queried
+     *  from any thread (e.g. from a listener, to check whether another button was pressed just before) without
+     *  locking.
+     *
+     * @return The event history.
+     */
+    public AppleRemoteEventHistory getEventHistory() {
+        return eventHistory;
+    }
+
+    /**
+     * Returns the operational metrics of this AppleRemote (e.g. to register them as a JMX MBean, or to export them
+     *  with an {@link AppleRemotePrometheusExporter}).
+     *
+     * @return The metrics.
+     */
+    public AppleRemoteMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns whether the iremotepipe process of this AppleRemote is running.
+     *
+     * @return <code>true</code> if iremotepipe was started and has not exited yet.
+     */
+    public boolean isIRemotePipeAlive() {
+        final Process process = iRemotePipeProcess;
+        return process != null && process.isAlive();
+    }
+
+    /**
+     * Returns whether iremotepipe is suspended, because nothing was interested in any event for the idle suspend
+     *  timeout (see {@link #setIdleSuspendTimeout(long)}).
+     *
+     * @return <code>true</code> if iremotepipe is suspended.
+     */
+    public boolean isSuspended() {
+        return suspended;
+    }
+
+    /**
+     * Returns the number of {@link AppleRemoteListener}s of this AppleRemote.
+     *
+     * @return The number of listeners.
+     */
+    int getListenerCount() {
+        return appleRemoteListeners.size();
+    }
+
+    /**
+     * Returns the number of events dropped by the polling queues of this AppleRemote because they were full.
+     *
+     * @return The sum of the overflow counts of the queues that are currently added.
+     */
+    long getQueueOverflowCount() {
+        long overflowCount = 0;
+        for (AppleRemoteEventQueue eventQueue : eventQueues) {
+            overflowCount += eventQueue.getOverflowCount();
+        }
+        for (AppleRemoteEventCodeQueue eventCodeQueue : eventCodeQueues) {
+            overflowCount += eventCodeQueue.getOverflowCount();
+        }
+        return overflowCount;
+    }
+
+    /**
+     * Sets the hold timeout of this AppleRemote.
+     *
+     * <br><br>
+     *
+     * If a hold is not stopped within this time (e.g. because its release was lost), a hold stopped event is
+     *  synthesized for it, so listeners and {@link #isHeld(Button)} do not consider the button held forever.
+     *  Holds are also stopped this way when iremotepipe's output ends while buttons are being held down.
+     *  If the real release arrives later, it is ignored, so listeners never receive a hold stop without a start.
+     *
+     * @param holdTimeoutMillis The timeout in milliseconds, or 0 to disable the watchdog.
+     *          The default is {@link #DEFAULT_HOLD_TIMEOUT_MILLIS}.
+     */
+    public void setHoldTimeout(final long holdTimeoutMillis) {
+        if (holdTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Invalid hold timeout: " + holdTimeoutMillis);
+        }
+        this.holdTimeoutMillis = holdTimeoutMillis;
+    }
+
+    /**
+     * Sets the idle suspend timeout of this AppleRemote.
+     *
+     * <br><br>
+     *
+     * This AppleRemote tracks which events (buttons and kinds) its listeners, annotated listeners and focus contexts
+     *  are interested in, and drops the other events before they are created (the state of the buttons, the live
+     *  counters and the event history are still updated). Queues, publishers, batch listeners, async listeners and
+     *  sequences are interested in every event.
+     *
+     * <br><br>
+     *
+     * If nothing is interested in any event for this time (e.g. every listener was removed while a video plays),
+     *  the iremotepipe process is destroyed, and this AppleRemote ({@link Thread}) waits without reading anything.
+     *  As soon as something is interested in an event again, iremotepipe is restarted.
+     *
+     * @param idleSuspendMillis The timeout in milliseconds, or 0 to never suspend iremotepipe.
+     *          The default is {@link #DEFAULT_IDLE_SUSPEND_MILLIS}.
+     */
+    public void setIdleSuspendTimeout(final long idleSuspendMillis) {
+        if (idleSuspendMillis < 0) {
+            throw new IllegalArgumentException("Invalid idle suspend timeout: " + idleSuspendMillis);
+        }
+        this.idleSuspendMillis = idleSuspendMillis;
+        interestChanged();
     }
 
     /**
@@ -137,38 +940,146 @@ public class AppleRemote extends Thread {
      * Also kills the iremotepipe process.
      */
     public void stopRunning() {
-        shouldBeRunning = false;
-        if (iRemotePipeProcess != null && iRemotePipeProcess.isAlive()) {
-            iRemotePipeProcess.destroy();
+        synchronized (suspensionLock) {
+            shouldBeRunning = false;
+            suspensionLock.notifyAll();
+        }
+        final Process process = iRemotePipeProcess;
+        if (process != null && process.isAlive()) {
+            process.destroy();
         }
     }
 
     /**
-     * Starts the iremotepipe process and continuously parses its output until {@link #stopRunning()} is called,
-     *  or the last {@link AppleRemoteListener} is removed from the list of listeners.
+     * Starts the iremotepipe process and continuously parses its output until {@link #stopRunning()} is called.
+     *  While iremotepipe is suspended (see {@link #setIdleSuspendTimeout(long)}), it waits for it to be resumed.
      */
     @Override
     public void run() {
         shouldBeRunning = true;
 
         try {
-            createIRemotePipeIfNotExist();
-            iRemotePipeProcess = startIRemotePipe();
+            if (iRemotePipeCommand.get(0).equals(IREMOTEPIPE_PATH_AND_FILE_NAME)) {
+                createIRemotePipeIfNotExist();
+            }
+            interestChanged();
+            while (runIRemotePipe()) {
+                // resumed after a suspension
+            }
         } catch (Exception ex) {
             System.err.println("Error: Could not start iremotepipe.");
             ex.printStackTrace();
         }
 
-        if (iRemotePipeProcess != null && iRemotePipeProcess.isAlive()) {
+        synchronized (dispatchLock) {
+            for (BatchCollector batchCollector : batchCollectors) {
+                batchCollector.deliver(this);
+            }
+        }
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Waits while iremotepipe is suspended, then starts the iremotepipe process and parses its output until it ends.
+     *
+     * @return <code>true</code> if the process was destroyed to suspend iremotepipe, so it has to be started again
+     *          when it is resumed.
+     * @throws IOException If the iremotepipe process could not be started.
+     */
+    private boolean runIRemotePipe() throws IOException {
+        final Process process;
+        synchronized (suspensionLock) {
+            while (suspended && shouldBeRunning) {
+                try {
+                    suspensionLock.wait();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            if (!shouldBeRunning) {
+                return false;
+            }
+            suspensionRequested = false;
+            process = startIRemotePipe();
+            iRemotePipeProcess = process;
+        }
+
+        if (process.isAlive()) {
             try {
-                processIRemotePipeOutput(iRemotePipeProcess);
+                processIRemotePipeOutput(process.getInputStream());
             } catch (IOException ex) {
-                System.err.println("Error when reading iremotepipe's output.");
-                ex.printStackTrace();
+                synchronized (suspensionLock) {
+                    // the process was destroyed on purpose to suspend or stop iremotepipe
+                    if (!suspensionRequested && shouldBeRunning) {
+                        System.err.println("Error when reading iremotepipe's output.");
+                        ex.printStackTrace();
+                    }
+                }
+            }
+        }
+
+        stopAllHolds();
+        synchronized (suspensionLock) {
+            return suspensionRequested && shouldBeRunning;
+        }
+    }
+
+    /**
+     * Returns the interest mask of this AppleRemote: bit <code>code</code> is set if anything is interested in the
+     *  events of the event code (see {@link AppleRemoteEventCodes}).
+     *
+     * @return The interest mask, or 0 if nothing is interested in any event.
+     */
+    private int interest() {
+        if (!eventQueues.isEmpty() || !eventCodeQueues.isEmpty() || !publishers.isEmpty()
+                || !batchCollectors.isEmpty() || !asyncDispatchers.isEmpty() || sequenceMatcher.hasSequences()) {
+            return ALL_CODES;
+        }
+        return appleRemoteListeners.getInterestMask() | annotatedHandlers.getInterestMask()
+                | contextStack.getInterestMask();
+    }
+
+    /**
+     * Resumes iremotepipe if something is interested in an event, otherwise starts the idle timer that suspends it.
+     *  Called after every change of the interest of this AppleRemote.
+     */
+    private void interestChanged() {
+        synchronized (suspensionLock) {
+            if (interest() != 0) {
+                if (idleTask != null) {
+                    idleTask.cancel(false);
+                    idleTask = null;
+                }
+                if (suspended) {
+                    suspended = false;
+                    suspensionLock.notifyAll();
+                }
+            } else if (idleTask == null && !suspended && shouldBeRunning && idleSuspendMillis > 0) {
+                idleTask = schedule(this::suspendIfIdle, idleSuspendMillis);
             }
         }
     }
 
+    /**
+     * Suspends iremotepipe (destroys its process), if nothing is interested in any event. Called by the idle timer.
+     */
+    private void suspendIfIdle() {
+        final Process process;
+        synchronized (suspensionLock) {
+            idleTask = null;
+            if (suspended || !shouldBeRunning || idleSuspendMillis == 0 || interest() != 0) {
+                return;
+            }
+            suspended = true;
+            suspensionRequested = true;
+            process = iRemotePipeProcess;
+        }
+        if (process != null && process.isAlive()) {
+            process.destroy();
+        }
+    }
+
     /**
      * Creates the iremotepipe executable in
      * {@link #IREMOTEPIPE_PATH_AND_FILE_NAME} if it does not exist yet.
@@ -216,107 +1127,315 @@ public class AppleRemote extends Thread {
     }
 
     /**
-     * Starts the iremotepipe process and returns its {@link Process}.
+     * Starts the iremotepipe process and returns its {@link Process}. Its standard error is redirected to the standard
+     *  error of this JVM, so its diagnostics are not lost, and it never blocks on a full pipe.
      *
      * @return The {@link Process} of iremotepipe.
      * @throws IOException If the iremotepipe process could not be started (e.g. the path is invalid).
      */
     private Process startIRemotePipe() throws IOException {
-        final String[] command = {IREMOTEPIPE_PATH_AND_FILE_NAME};
-        return Runtime.getRuntime().exec(command);
+        return new ProcessBuilder(iRemotePipeCommand)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+    }
+
+    /**
+     * Parses iremotepipe's output from the specified stream on the calling thread, and dispatches its events, until
+     *  the end of the stream is reached or {@link #stopRunning()} is called. Only for AppleRemotes that were not
+     *  started.
+     *
+     * @param iRemotePipeOutput The output of iremotepipe (e.g. from a byte array).
+     * @throws IOException If an I/O error occurs while reading the output.
+     */
+    void processOutput(final InputStream iRemotePipeOutput) throws IOException {
+        shouldBeRunning = true;
+        processIRemotePipeOutput(iRemotePipeOutput);
     }
 
     /**
      * Continuously parses the iremotepipe process' output until {@link #stopRunning()} is called,
-     *  or the last {@link AppleRemoteListener} is removed from the list of listeners.
+     *  or the process is destroyed (e.g. to suspend it).
      *
-     * @param iRemotePipeProcess The {@link Process} of iremotepipe, whose output is to be parsed.
+     * <br><br>
+     *
+     * The output is read in chunks of raw bytes, and the events of all of the complete lines of a chunk are
+     *  dispatched together, so that the batch listeners receive them in one batch.
+     *
+     * @param iRemotePipeOutput The output of the iremotepipe process.
      * @throws IOException If an I/O error occurs while reading the output.
      */
-    private void processIRemotePipeOutput(final Process iRemotePipeProcess) throws IOException {
-        String line;
+    private void processIRemotePipeOutput(final InputStream iRemotePipeOutput) throws IOException {
+        final byte[] bytes = new byte[READ_BUFFER_SIZE];
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int length = 0;
+        int read;
 
-        final BufferedReader bufferedReader = new BufferedReader(
-                new InputStreamReader(iRemotePipeProcess.getInputStream()));
+        while (shouldBeRunning && (read = iRemotePipeOutput.read(bytes, length, bytes.length - length)) >= 0) {
+            metrics.read(read);
+            final int end = length + read;
+            int lineStart = 0;
+            synchronized (dispatchLock) {
+                for (int index = length; index < end; index++) {
+                    if (bytes[index] == '\n') {
+                        processIRemotePipeOutputLine(buffer, lineStart, index);
+                        lineStart = index + 1;
+                    }
+                }
+                flushBatches();
+            }
 
-        while(shouldBeRunning && (line = bufferedReader.readLine()) != null) {
-            processIRemotePipeOutputLine(line);
+            length = end - lineStart;
+            if (length == bytes.length) {
+                // far too long to be a line of iremotepipe's output
+                processIRemotePipeOutputLine(buffer, 0, length);
+                length = 0;
+            } else {
+                System.arraycopy(bytes, lineStart, bytes, 0, length);
+            }
         }
 
-        bufferedReader.close();
+        iRemotePipeOutput.close();
     }
 
     /**
      * Processes one line of iremotepipe's output (the output of one event of the remote).
      *
-     * @param line One line of iremotepipe's output.
-     */
-    private void processIRemotePipeOutputLine(final String line) {
-        String[] data = line.substring(1, line.length() - 1).replace("\"", "").split(",");
-        final String type = data[0].split(":")[1];
-        final boolean held = data[1].split(":")[1].equals("true");
-        final boolean pressed = data[2].split(":")[1].equals("true");
-
-        switch (type) {
-            case "up":
-                        if (held) {
-                            if (pressed) {
-                                fireVolumeUpHoldStarted(line);
-                            } else {
-                                fireVolumeUpHoldStopped(line);
+     * @param buffer The buffer that holds the line.
+     * @param from The index of the first byte of the line.
+     * @param to The index of the line terminator of the line.
+     */
+    private void processIRemotePipeOutputLine(final ByteBuffer buffer, final int from, final int to) {
+        final int code = IRemotePipeParser.parse(buffer, from, to);
+        if (code >= 0) {
+            dispatch(code, to - from + 1);
+        } else if (code == IRemotePipeParser.UNKNOWN_TYPE) {
+            metrics.unknownLine();
+        } else {
+            metrics.malformedLine();
+            System.err.println("Error: Could not parse iremotepipe's output: "
+                    + new String(buffer.array(), from, to - from, StandardCharsets.US_ASCII));
+        }
+    }
+
+    /**
+     * Creates the event for one event of the remote, updates the state of the buttons, adds the event to every
+     *  queue, publisher and pending batch of this AppleRemote, and fires it on every {@link AppleRemoteListener}
+     *  and annotated listener that is subscribed to this AppleRemote, routes it to the current focus context, and
+     *  matches it against the registered sequences.
+     *
+     * <br><br>
+     *
+     * The raw output of the event is the canonical output line of iremotepipe for the event code, which is the same
+     *  as the line that was read, but it does not have to be allocated for every event. If nothing is interested in
+     *  the event, it is dropped after the state of the buttons is updated, without creating it. A hold stop of
+     *  a button that is not held (the late release of a hold stopped by the hold watchdog) is ignored.
+     *
+     * @param code The event code (see {@link AppleRemoteEventCodes}).
+     * @param bytes The number of bytes of iremotepipe's output the event was parsed from, or 0 if it was synthesized.
+     */
+    private void dispatch(final int code, final int bytes) {
+        synchronized (dispatchLock) {
+            final long dispatchStart = System.nanoTime();
+            final Button button = AppleRemoteEventCodes.button(code);
+            final Kind kind = AppleRemoteEventCodes.kind(code);
+            if (kind == Kind.HOLD_STOPPED && !buttonStates.isHeld(button)) {
+                // the hold was already stopped by the hold watchdog, so this is its late release
+                return;
+            }
+            final long when = System.currentTimeMillis();
+            try {
+                buttonStates.update(button, kind, when);
+                liveCounters.record(code, when);
+                eventHistory.record(code, when);
+                watchHold(button, kind);
+
+                final int interest = interest();
+                if ((interest & 1 << code) == 0) {
+                    metrics.dropped();
+                    if (interest == 0) {
+                        // e.g. the last weak listener was garbage collected
+                        interestChanged();
+                    }
+                    return;
+                }
+
+                final AppleRemoteEvent event = new AppleRemoteEvent(this, button, kind, when,
+                                                                    AppleRemoteEventCodes.iRemotePipeLine(code));
+
+                for (AppleRemoteEventQueue eventQueue : eventQueues) {
+                    eventQueue.offer(event);
+                }
+                for (AppleRemoteEventCodeQueue eventCodeQueue : eventCodeQueues) {
+                    eventCodeQueue.offer(event.getCode(), event.getWhen());
+                }
+                for (AppleRemotePublisher publisher : publishers) {
+                    publisher.publish(event.getCode(), event.getWhen());
+                }
+                for (BatchCollector batchCollector : batchCollectors) {
+                    if (batchCollector.add(event, bytes) && batchCollector.maxLatencyMillis > 0) {
+                        batchCollector.flushTask = schedule(() -> {
+                            synchronized (dispatchLock) {
+                                batchCollector.deliver(this);
                             }
+                        }, batchCollector.maxLatencyMillis);
+                    }
+                }
+
+                for (AsyncDispatcher asyncDispatcher : asyncDispatchers) {
+                    asyncDispatcher.dispatch(event);
+                }
+
+                fireEvent(event);
+                if (!event.isConsumed()) {
+                    annotatedHandlers.dispatch(event, code);
+                }
+                if (!event.isConsumed()) {
+                    contextStack.dispatch(event, code);
+                }
+                sequenceMatcher.dispatch(event, code);
+            } finally {
+                metrics.dispatched(bytes, System.nanoTime() - dispatchStart);
+            }
+        }
+    }
+
+    /**
+     * Starts or cancels the hold watchdog of a button, according to an event. Must be called with
+     *  {@link #dispatchLock} held.
+     *
+     * @param button The button that fired the event.
+     * @param kind The kind of the event.
+     */
+    private void watchHold(final Button button, final Kind kind) {
+        final int index = button.ordinal();
+        if (holdWatchdogs[index] != null) {
+            holdWatchdogs[index].cancel(false);
+            holdWatchdogs[index] = null;
+        }
+        final long timeout = holdTimeoutMillis;
+        if (kind == Kind.HOLD_STARTED && timeout > 0) {
+            final long holdStartTime = buttonStates.getHoldStartTime(button);
+            holdWatchdogs[index] = schedule(() -> {
+                synchronized (dispatchLock) {
+                    if (buttonStates.isHeld(button) && buttonStates.getHoldStartTime(button) == holdStartTime) {
+                        stopHold(button);
+                        flushBatches();
+                    }
+                }
+            }, timeout);
+        }
+    }
+
+    /**
+     * Delivers the pending batches that should be delivered at the end of a read of iremotepipe's output
+     *  (or after synthesized events). Must be called with {@link #dispatchLock} held.
+     */
+    private void flushBatches() {
+        for (BatchCollector batchCollector : batchCollectors) {
+            if (batchCollector.endOfRead()) {
+                batchCollector.deliver(this);
+            }
+        }
+    }
+
+    /**
+     * Schedules a task on the scheduler of this AppleRemote.
+     *
+     * @param task The task.
+     * @param delayMillis The delay of the task, in milliseconds.
+     * @return The future of the task, or <code>null</code> if this AppleRemote has already stopped.
+     */
+    private ScheduledFuture<?> schedule(final Runnable task, final long delayMillis) {
+        try {
+            return scheduler.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Synthesizes a hold stopped event for every button that is being held down.
+     */
+    private void stopAllHolds() {
+        synchronized (dispatchLock) {
+            for (Button button : Button.values()) {
+                if (buttonStates.isHeld(button)) {
+                    stopHold(button);
+                }
+            }
+            flushBatches();
+        }
+    }
+
+    /**
+     * Synthesizes a hold stopped event for a button whose release was lost. Its raw output is the output iremotepipe
+     *  would have printed.
+     *
+     * @param button The button being held down.
+     */
+    private void stopHold(final Button button) {
+        dispatch(AppleRemoteEventCodes.code(button, Kind.HOLD_STOPPED), 0);
+    }
+
+    /**
+     * Fires the listener method that belongs to the button and the kind of the specified event.
+     *
+     * @param event The event to be fired.
+     */
+    private void fireEvent(final AppleRemoteEvent event) {
+        switch (event.getButton()) {
+            case VOLUME_UP:
+                        if (event.getKind() == Kind.HOLD_STARTED) {
+                            fireVolumeUpHoldStarted(event);
+                        } else if (event.getKind() == Kind.HOLD_STOPPED) {
+                            fireVolumeUpHoldStopped(event);
                         } else {
-                            fireVolumeUpPressed(line);
+                            fireVolumeUpPressed(event);
                         }
                         break;
-            case "down":
-                        if (held) {
-                            if (pressed) {
-                                fireVolumeDownHoldStarted(line);
-                            } else {
-                                fireVolumeDownHoldStopped(line);
-                            }
+            case VOLUME_DOWN:
+                        if (event.getKind() == Kind.HOLD_STARTED) {
+                            fireVolumeDownHoldStarted(event);
+                        } else if (event.getKind() == Kind.HOLD_STOPPED) {
+                            fireVolumeDownHoldStopped(event);
                         } else {
-                            fireVolumeDownPressed(line);
+                            fireVolumeDownPressed(event);
                         }
                         break;
-            case "left":
-                        if (held) {
-                            if (pressed) {
-                                firePreviousHoldStarted(line);
-                            } else {
-                                firePreviousHoldStopped(line);
-                            }
+            case PREVIOUS:
+                        if (event.getKind() == Kind.HOLD_STARTED) {
+                            firePreviousHoldStarted(event);
+                        } else if (event.getKind() == Kind.HOLD_STOPPED) {
+                            firePreviousHoldStopped(event);
                         } else {
-                            firePreviousPressed(line);
+                            firePreviousPressed(event);
                         }
                         break;
-            case "right":
-                        if (held) {
-                            if (pressed) {
-                                fireNextHoldStarted(line);
-                            } else {
-                                fireNextHoldStopped(line);
-                            }
+            case NEXT:
+                        if (event.getKind() == Kind.HOLD_STARTED) {
+                            fireNextHoldStarted(event);
+                        } else if (event.getKind() == Kind.HOLD_STOPPED) {
+                            fireNextHoldStopped(event);
                         } else {
-                            fireNextPressed(line);
+                            fireNextPressed(event);
                         }
                         break;
-            case "play":
-                        firePlayPausePressed(line);
-                        break;
-            case "sleep":
-                        firePlayPauseHeld(line);
+            case PLAY_PAUSE:
+                        if (event.getKind() == Kind.HELD) {
+                            firePlayPauseHeld(event);
+                        } else {
+                            firePlayPausePressed(event);
+                        }
                         break;
-            case "menu":
-                        if (held) {
-                            fireMenuHeld(line);
+            case MENU:
+                        if (event.getKind() == Kind.HELD) {
+                            fireMenuHeld(event);
                         } else {
-                            fireMenuPressed(line);
+                            fireMenuPressed(event);
                         }
                         break;
-            case "ok":
-                        fireSelectPressed(line);
+            case SELECT:
+                        fireSelectPressed(event);
                         break;
         }
     }
@@ -329,12 +1448,17 @@ public class AppleRemote extends Thread {
      * Fires the {@link AppleRemoteListener#volumeUpPressed(AppleRemoteEvent)} method
      *  of every {@link AppleRemoteListener} that is subscribed to this AppleRemote.
      *
-     * @param iRemotePipeOutput The raw output of iremotepipe for this event.
+     * @param event The event to be fired.
      */
-    private void fireVolumeUpPressed(final String iRemotePipeOutput) {
-        AppleRemoteEvent event = new AppleRemoteEvent(this, Button.VOLUME_UP, iRemotePipeOutput);
-        for (AppleRemoteListener appleRemoteListener : appleRemoteListeners) {
-            appleRemoteListener.volumeUpPressed(event);
+    private void fireVolumeUpPressed(final AppleRemoteEvent event) {
+        for (AppleRemoteListenerRegistry.Registration registration : appleRemoteListeners.snapshot()) {
+            final AppleRemoteListener appleRemoteListener = registration.get();
+            if (appleRemoteListener != null) {
+                appleRemoteListener.volumeUpPressed(event);
+                if (event.isConsumed()) {
+                    break;
+                }
+            }
         }
     }
 
@@ -346,12 +1470,17 @@ public class AppleRemote extends Thread {
      * Fires the {@link AppleRemoteListener#volumeUpHoldStarted(AppleRemoteEvent)} method
      *  of every {@link AppleRemoteListener} that is subscribed to this AppleRemote.
      *
-     * @param iRemotePipeOutput The raw output of iremotepipe for this event.
+     * @param event The event to be fired.
      */
-    private void fireVolumeUpHoldStarted(final String iRemotePipeOutput) {
-        AppleRemoteEvent event = new AppleRemoteEvent(this, Button.VOLUME_UP, iRemotePipeOutput);
-        for (AppleRemoteListener appleRemoteListener : appleRemoteListeners) {
-            appleRemoteListener.volumeUpHoldStarted(event);
+    private void fireVolumeUpHoldStarted(final AppleRemoteEvent event) {
+        for (AppleRemoteListenerRegistry.Registration registration : appleRemoteListeners.snapshot()) {
+            final AppleRemoteListener appleRemoteListener = registration.get();
+            if (appleRemoteListener != null) {
+                appleRemoteListener.volumeUpHoldStarted(event);
+                if (event.isConsumed()) {
+                    break;
+                }
+            }
         }
     }
 
@@ -363,12 +1492,17 @@ public class AppleRemote extends Thread {
      * Fires the {@link AppleRemoteListener#volumeUpHoldStopped(AppleRemoteEvent)} method
      *  of every {@link AppleRemoteListener} that is subscribed to this AppleRemote.
      *
-     * @param iRemotePipeOutput The raw output of iremotepipe for this event.
+     * @param event The event to be fired.
      */
-    private void fireVolumeUpHoldStopped(final String iRemotePipeOutput) {
-        AppleRemoteEvent event = new AppleRemoteEvent(this, Button.VOLUME_UP, iRemotePipeOutput);
-        for (AppleRemoteListener appleRemoteListener : appleRemoteListeners) {
-            appleRemoteListener.volumeUpHoldStopped(event);
+    private void fireVolumeUpHoldStopped(final AppleRemoteEvent event) {
+        for (AppleRemoteListenerRegistry.Registration registration : appleRemoteListeners.snapshot()) {
+            final AppleRemoteListener appleRemoteListener = registration.get();
+            if (appleRemoteListener != null) {
+                appleRemoteListener.volumeUpHoldStopped(event);
+                if (event.isConsumed()) {
+                    break;
+                }
+            }
         }
     }
 
@@ -380,12 +1514,17 @@ public class AppleRemote extends Thread {
      * Fires the {@link AppleRemoteListener#volumeDownPressed(AppleRemoteEvent)} method
      *  of every {@link AppleRemoteListener} that is subscribed to this AppleRemote.
      *
-     * @param iRemotePipeOutput The raw output of iremotepipe for this event.
+     * @param event The event to be fired.
      */
-    private void fireVolumeDownPressed(final String iRemotePipeOutput) {
-        AppleRemoteEvent event = new AppleRemoteEvent(this, Button.VOLUME_DOWN, iRemotePipeOutput);
-        for (AppleRemoteListener appleRemoteListener : appleRemoteListeners) {
-            appleRemoteListener.volumeDownPressed(event);
+    private void fireVolumeDownPressed(final AppleRemoteEvent event) {
+        for (AppleRemoteListenerRegistry.Registration registration : appleRemoteListeners.snapshot()) {
+            final AppleRemoteListener appleRemoteListener = registration.get();
+            if (appleRemoteListener != null) {
+                appleRemoteListener.volumeDownPressed(event);
+                if (event.isConsumed()) {
+                    break;
+                }
+            }
         }
     }
 
@@ -397,12 +1536,17 @@ public class AppleRemote extends Thread {
      * Fires the {@link AppleRemoteListener#volumeDownHoldStarted(AppleRemoteEvent)} method
      *  of every {@link AppleRemoteListener} that is subscribed to this AppleRemote.
      *
-     * @param iRemotePipeOutput The raw output of iremotepipe for this event.
+     * @param event The event to be fired.
      */
-    private void fireVolumeDownHoldStarted(final String iRemotePipeOutput) {
-        AppleRemoteEvent event = new AppleRemoteEvent(this, Button.VOLUME_DOWN, iRemotePipeOutput);
-        for (AppleRemoteListener appleRemoteListener : appleRemoteListeners) {
-            appleRemoteListener.volumeDownHoldStarted(event);
+    private void fireVolumeDownHoldStarted(final AppleRemoteEvent event) {
+        for (AppleRemoteListenerRegistry.Registration registration : appleRemoteListeners.snapshot()) {
+            final AppleRemoteListener appleRemoteListener = registration.get();
+            if (appleRemoteListener != null) {
+                appleRemoteListener.volumeDownHoldStarted(event);
+                if (event.isConsumed()) {
+                    break;
+                }
+            }
         }
     }
 
@@ -414,12 +1558,17 @@ public class AppleRemote extends Thread {
      * Fires the {@link AppleRemoteListener#volumeDownHoldStopped(AppleRemoteEvent)} method
      *  of every {@link AppleRemoteListener} that is subscribed to this AppleRemote.
      *
-     * @param iRemotePipeOutput The raw output of iremotepipe for this event.
+     * @param event The event to be fired.
      */
-    private void fireVolumeDownHoldStopped(final String iRemotePipeOutput) {
-        AppleRemoteEvent event = new AppleRemoteEvent(this, Button.VOLUME_DOWN, iRemotePipeOutput);
-        for (AppleRemoteListener appleRemoteListener : appleRemoteListeners) {
-            appleRemoteListener.volumeDownHoldStopped(event);
+    private void fireVolumeDownHoldStopped(final AppleRemoteEvent event) {
+        for (AppleRemoteListenerRegistry.Registration registration : appleRemoteListeners.snapshot()) {
+            final AppleRemoteListener appleRemoteListener = registration.get();
+            if (appleRemoteListener != null) {
+                appleRemoteListener.volumeDownHoldStopped(event);
+                if (event.isConsumed()) {
+                    break;
+                }
+            }
         }
     }
 
@@ -431,12 +1580,17 @@ public class AppleRemote extends Thread {
      * Fires the {@link AppleRemoteListener#previousPressed(AppleRemoteEvent)} method
      *  of every {@link AppleRemoteListener} that is subscribed to this AppleRemote.
      *
-     * @param iRemotePipeOutput The raw output of iremotepipe for this event.
+     * @param event The event to be fired.
      */
-    private void firePreviousPressed(final String iRemotePipeOutput) {
-        AppleRemoteEvent event = new AppleRemoteEvent(this, Button.PREVIOUS, iRemotePipeOutput);
-        for (AppleRemoteListener appleRemoteListener : appleRemoteListeners) {
-            appleRemoteListener.previousPressed(event);
+    private void firePreviousPressed(final AppleRemoteEvent event) {
+        for (AppleRemoteListenerRegistry.Registration registration : appleRemoteListeners.snapshot()) {
+            final AppleRemoteListener appleRemoteListener = registration.get();
+            if (appleRemoteListener != null) {
+                appleRemoteListener.previousPressed(event);
+                if (event.isConsumed()) {
+                    break;
+                }
+            }
         }
     }
 
@@ -448,12 +1602,17 @@ public class AppleRemote extends Thread {
      * Fires the {@link AppleRemoteListener#previousHoldStarted(AppleRemoteEvent)} method
      *  of every {@link AppleRemoteListener} that is subscribed to this AppleRemote.
      *
-     * @param iRemotePipeOutput The raw output of iremotepipe for this event.
+     * @param event The event to be fired.
      */
-    private void firePreviousHoldStarted(final String iRemotePipeOutput) {
-        AppleRemoteEvent event = new AppleRemoteEvent(this, Button.PREVIOUS, iRemotePipeOutput);
-        for (AppleRemoteListener appleRemoteListener : appleRemoteListeners) {
-            appleRemoteListener.previousHoldStarted(event);
+    private void firePreviousHoldStarted(final AppleRemoteEvent event) {
+        for (AppleRemoteListenerRegistry.Registration registration : appleRemoteListeners.snapshot()) {
+            final AppleRemoteListener appleRemoteListener = registration.get();
+            if (appleRemoteListener != null) {
+                appleRemoteListener.previousHoldStarted(event);
+                if (event.isConsumed()) {
+                    break;
+                }
+            }
         }
     }
 
@@ -465,12 +1624,17 @@ public class AppleRemote extends Thread {
      * Fires the {@link AppleRemoteListener#previousHoldStopped(AppleRemoteEvent)} method
      *  of every {@link AppleRemoteListener} that is subscribed to this AppleRemote.
      *
-     * @param iRemotePipeOutput The raw output of iremotepipe for this event.
+     * @param event The event to be fired.
      */
-    private void firePreviousHoldStopped(final String iRemotePipeOutput) {
-        AppleRemoteEvent event = new AppleRemoteEvent(this, Button.PREVIOUS, iRemotePipeOutput);
-        for (AppleRemoteListener appleRemoteListener : appleRemoteListeners) {
-            appleRemoteListener.previousHoldStopped(event);
+    private void firePreviousHoldStopped(final AppleRemoteEvent event) {
+        for (AppleRemoteListenerRegistry.Registration registration : appleRemoteListeners.snapshot()) {
+            final AppleRemoteListener appleRemoteListener = registration.get();
+            if (appleRemoteListener != null) {
+                appleRemoteListener.previousHoldStopped(event);
+                if (event.isConsumed()) {
+                    break;
+                }
+            }
         }
     }
 
@@ -482,12 +1646,17 @@ public class AppleRemote extends Thread {
      * Fires the {@link AppleRemoteListener#nextPressed(AppleRemoteEvent)} method
      *  of every {@link AppleRemoteListener} that is subscribed to this AppleRemote.
      *
-     * @param iRemotePipeOutput The raw output of iremotepipe for this event.
+     * @param event The event to be fired.
      */
-    private void fireNextPressed(final String iRemotePipeOutput) {
-        AppleRemoteEvent event = new AppleRemoteEvent(this, Button.NEXT, iRemotePipeOutput);
-        for (AppleRemoteListener appleRemoteListener : appleRemoteListeners) {
-            appleRemoteListener.nextPressed(event);
+    private void fireNextPressed(final AppleRemoteEvent event) {
+        for (AppleRemoteListenerRegistry.Registration registration : appleRemoteListeners.snapshot()) {
+            final AppleRemoteListener appleRemoteListener = registration.get();
+            if (appleRemoteListener != null) {
+                appleRemoteListener.nextPressed(event);
+                if (event.isConsumed()) {
+                    break;
+                }
+            }
         }
     }
 
@@ -499,12 +1668,17 @@ public class AppleRemote extends Thread {
      * Fires the {@link AppleRemoteListener#nextHoldStarted(AppleRemoteEvent)} method
      *  of every {@link AppleRemoteListener} that is subscribed to this AppleRemote.
      *
-     * @param iRemotePipeOutput The raw output of iremotepipe for this event.
+     * @param event The event to be fired.
      */
-    private void fireNextHoldStarted(final String iRemotePipeOutput) {
-        AppleRemoteEvent event = new AppleRemoteEvent(this, Button.NEXT, iRemotePipeOutput);
-        for (AppleRemoteListener appleRemoteListener : appleRemoteListeners) {
-            appleRemoteListener.nextHoldStarted(event);
+    private void fireNextHoldStarted(final AppleRemoteEvent event) {
+        for (AppleRemoteListenerRegistry.Registration registration : appleRemoteListeners.snapshot()) {
+            final AppleRemoteListener appleRemoteListener = registration.get();
+            if (appleRemoteListener != null) {
+                appleRemoteListener.nextHoldStarted(event);
+                if (event.isConsumed()) {
+                    break;
+                }
+            }
         }
     }
 
@@ -516,12 +1690,17 @@ public class AppleRemote extends Thread {
      * Fires the {@link AppleRemoteListener#nextHoldStopped(AppleRemoteEvent)} method
      *  of every {@link AppleRemoteListener} that is subscribed to this AppleRemote.
      *
-     * @param iRemotePipeOutput The raw output of iremotepipe for this event.
+     * @param event The event to be fired.
      */
-    private void fireNextHoldStopped(final String iRemotePipeOutput) {
-        AppleRemoteEvent event = new AppleRemoteEvent(this, Button.NEXT, iRemotePipeOutput);
-        for (AppleRemoteListener appleRemoteListener : appleRemoteListeners) {
-            appleRemoteListener.nextHoldStopped(event);
+    private void fireNextHoldStopped(final AppleRemoteEvent event) {
+        for (AppleRemoteListenerRegistry.Registration registration : appleRemoteListeners.snapshot()) {
+            final AppleRemoteListener appleRemoteListener = registration.get();
+            if (appleRemoteListener != null) {
+                appleRemoteListener.nextHoldStopped(event);
+                if (event.isConsumed()) {
+                    break;
+                }
+            }
         }
     }
 
@@ -533,12 +1712,17 @@ public class AppleRemote extends Thread {
      * Fires the {@link AppleRemoteListener#playPausePressed(AppleRemoteEvent)} method
      *  of every {@link AppleRemoteListener} that is subscribed to this AppleRemote.
      *
-     * @param iRemotePipeOutput The raw output of iremotepipe for this event.
+     * @param event The event to be fired.
      */
-    private void firePlayPausePressed(final String iRemotePipeOutput) {
-        AppleRemoteEvent event = new AppleRemoteEvent(this, Button.PLAY_PAUSE, iRemotePipeOutput);
-        for (AppleRemoteListener appleRemoteListener : appleRemoteListeners) {
-            appleRemoteListener.playPausePressed(event);
+    private void firePlayPausePressed(final AppleRemoteEvent event) {
+        for (AppleRemoteListenerRegistry.Registration registration : appleRemoteListeners.snapshot()) {
+            final AppleRemoteListener appleRemoteListener = registration.get();
+            if (appleRemoteListener != null) {
+                appleRemoteListener.playPausePressed(event);
+                if (event.isConsumed()) {
+                    break;
+                }
+            }
         }
     }
 
@@ -550,12 +1734,17 @@ public class AppleRemote extends Thread {
      * Fires the {@link AppleRemoteListener#playPauseHeld(AppleRemoteEvent)} method
      *  of every {@link AppleRemoteListener} that is subscribed to this AppleRemote.
      *
-     * @param iRemotePipeOutput The raw output of iremotepipe for this event.
+     * @param event The event to be fired.
      */
-    private void firePlayPauseHeld(final String iRemotePipeOutput) {
-        AppleRemoteEvent event = new AppleRemoteEvent(this, Button.PLAY_PAUSE, iRemotePipeOutput);
-        for (AppleRemoteListener appleRemoteListener : appleRemoteListeners) {
-            appleRemoteListener.playPauseHeld(event);
+    private void firePlayPauseHeld(final AppleRemoteEvent event) {
+        for (AppleRemoteListenerRegistry.Registration registration : appleRemoteListeners.snapshot()) {
+            final AppleRemoteListener appleRemoteListener = registration.get();
+            if (appleRemoteListener != null) {
+                appleRemoteListener.playPauseHeld(event);
+                if (event.isConsumed()) {
+                    break;
+                }
+            }
         }
     }
 
@@ -567,12 +1756,17 @@ public class AppleRemote extends Thread {
      * Fires the {@link AppleRemoteListener#menuPressed(AppleRemoteEvent)} method
      *  of every {@link AppleRemoteListener} that is subscribed to this AppleRemote.
      *
-     * @param iRemotePipeOutput The raw output of iremotepipe for this event.
+     * @param event The event to be fired.
      */
-    private void fireMenuPressed(final String iRemotePipeOutput) {
-        AppleRemoteEvent event = new AppleRemoteEvent(this, Button.MENU, iRemotePipeOutput);
-        for (AppleRemoteListener appleRemoteListener : appleRemoteListeners) {
-            appleRemoteListener.menuPressed(event);
+    private void fireMenuPressed(final AppleRemoteEvent event) {
+        for (AppleRemoteListenerRegistry.Registration registration : appleRemoteListeners.snapshot()) {
+            final AppleRemoteListener appleRemoteListener = registration.get();
+            if (appleRemoteListener != null) {
+                appleRemoteListener.menuPressed(event);
+                if (event.isConsumed()) {
+                    break;
+                }
+            }
         }
     }
 
@@ -584,12 +1778,17 @@ public class AppleRemote extends Thread {
      * Fires the {@link AppleRemoteListener#menuHeld(AppleRemoteEvent)} method
      *  of every {@link AppleRemoteListener} that is subscribed to this AppleRemote.
      *
-     * @param iRemotePipeOutput The raw output of iremotepipe for this event.
+     * @param event The event to be fired.
      */
-    private void fireMenuHeld(final String iRemotePipeOutput) {
-        AppleRemoteEvent event = new AppleRemoteEvent(this, Button.MENU, iRemotePipeOutput);
-        for (AppleRemoteListener appleRemoteListener : appleRemoteListeners) {
-            appleRemoteListener.menuHeld(event);
+    private void fireMenuHeld(final AppleRemoteEvent event) {
+        for (AppleRemoteListenerRegistry.Registration registration : appleRemoteListeners.snapshot()) {
+            final AppleRemoteListener appleRemoteListener = registration.get();
+            if (appleRemoteListener != null) {
+                appleRemoteListener.menuHeld(event);
+                if (event.isConsumed()) {
+                    break;
+                }
+            }
         }
     }
 
@@ -601,12 +1800,17 @@ public class AppleRemote extends Thread {
      * Fires the {@link AppleRemoteListener#selectPressed(AppleRemoteEvent)} method
      *  of every {@link AppleRemoteListener} that is subscribed to this AppleRemote.
      *
-     * @param iRemotePipeOutput The raw output of iremotepipe for this event.
+     * @param event The event to be fired.
      */
-    private void fireSelectPressed(final String iRemotePipeOutput) {
-        AppleRemoteEvent event = new AppleRemoteEvent(this, Button.SELECT, iRemotePipeOutput);
-        for (AppleRemoteListener appleRemoteListener : appleRemoteListeners) {
-            appleRemoteListener.selectPressed(event);
+    private void fireSelectPressed(final AppleRemoteEvent event) {
+        for (AppleRemoteListenerRegistry.Registration registration : appleRemoteListeners.snapshot()) {
+            final AppleRemoteListener appleRemoteListener = registration.get();
+            if (appleRemoteListener != null) {
+                appleRemoteListener.selectPressed(event);
+                if (event.isConsumed()) {
+                    break;
+                }
+            }
         }
     }
 
@@ -620,4 +1824,4 @@ public class AppleRemote extends Thread {
         return "AppleRemote@" + hashCode();
     }
 
-}
\ No newline at end of file
+}
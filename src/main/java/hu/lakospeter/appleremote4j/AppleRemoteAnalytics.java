@@ -0,0 +1,335 @@
+package hu.lakospeter.appleremote4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes usage statistics ({@link AppleRemoteUsageReport}) of recorded event logs: the number of events per
+ *  button and kind, hold durations, intervals between presses, double press rates and hourly event counts.
+ *
+ * <br><br>
+ *
+ * Two log formats are supported:
+ * <ul>
+ *     <li>Text logs: one event per line, in iremotepipe's output format, optionally preceded by the time of the event
+ *      in milliseconds since the epoch and whitespace, e.g.
+ *      <code>1424382566000 {"type":"menu","hold":false,"pressed":true}</code>. Events without a time are counted,
+ *      but they are left out of the time based statistics.</li>
+ *     <li>Binary logs: a sequence of big-endian <code>long</code>s, each one an event packed by
+ *      {@link AppleRemoteEventCodes#pack(int, long)} (e.g. drained from an {@link AppleRemoteEventCodeQueue}).</li>
+ * </ul>
+ *
+ * Events must be in chronological order. The log is memory-mapped and cut into splits, which are analyzed in parallel
+ *  on a {@link ForkJoinPool}, so multi-gigabyte logs can be processed efficiently. Holds and press intervals that
+ *  span two splits are matched up when the results of the splits are merged.
+ *
+ * @author lakospeter
+ */
+public class AppleRemoteAnalytics {
+
+    /**
+     * The default maximum time between two presses of the same button that counts as a double press, in milliseconds.
+     */
+    public static final long DEFAULT_DOUBLE_PRESS_MILLIS = 500;
+
+    /**
+     * The default size of the splits of a log that are analyzed in parallel, in bytes.
+     */
+    public static final long DEFAULT_SPLIT_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * The maximum length of a line of a text log. Longer lines are considered malformed.
+     */
+    private static final int MAX_LINE_LENGTH = 4096;
+
+    /**
+     * The size of a record of a binary log.
+     */
+    private static final int RECORD_SIZE = Long.BYTES;
+
+    /**
+     * The pool that analyzes the splits.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * The maximum time between two presses of the same button that counts as a double press, in milliseconds.
+     */
+    private final long doublePressMillis;
+
+    /**
+     * The size of the splits of a log, in bytes.
+     */
+    private final long splitSize;
+
+
+    /**
+     * Creates an AppleRemoteAnalytics that uses the common {@link ForkJoinPool}, and the default double press
+     *  interval and split size.
+     */
+    public AppleRemoteAnalytics() {
+        this(ForkJoinPool.commonPool(), DEFAULT_DOUBLE_PRESS_MILLIS, DEFAULT_SPLIT_SIZE);
+    }
+
+    /**
+     * Simple constructor that gives values to fields.
+     *
+     * @param pool The pool that analyzes the splits.
+     * @param doublePressMillis The maximum time between two presses of the same button that counts as a double press,
+     *          in milliseconds.
+     * @param splitSize The size of the splits of a log, in bytes. Rounded down to a multiple of the record size of
+     *          binary logs.
+     * @throws IllegalArgumentException If the split size is smaller than {@link #MAX_LINE_LENGTH}, or so large that
+     *          a split and the end of its last line cannot be mapped at once.
+     */
+    public AppleRemoteAnalytics(final ForkJoinPool pool, final long doublePressMillis, final long splitSize) {
+        if (splitSize < MAX_LINE_LENGTH) {
+            throw new IllegalArgumentException("Split size too small: " + splitSize);
+        }
+        if (splitSize > Integer.MAX_VALUE - MAX_LINE_LENGTH) {
+            throw new IllegalArgumentException("Split size too large: " + splitSize);
+        }
+        this.pool = pool;
+        this.doublePressMillis = doublePressMillis;
+        this.splitSize = splitSize - splitSize % RECORD_SIZE;
+    }
+
+    /**
+     * Analyzes a text log.
+     *
+     * @param file The log file.
+     * @return The usage statistics of the log.
+     * @throws IOException If the file cannot be read.
+     */
+    public AppleRemoteUsageReport analyzeTextLog(final Path file) throws IOException {
+        return analyze(file, false);
+    }
+
+    /**
+     * Analyzes a binary log.
+     *
+     * @param file The log file.
+     * @return The usage statistics of the log.
+     * @throws IOException If the file cannot be read.
+     */
+    public AppleRemoteUsageReport analyzeBinaryLog(final Path file) throws IOException {
+        return analyze(file, true);
+    }
+
+    /**
+     * Analyzes all of the splits of a log in parallel, and merges their results.
+     *
+     * @param file The log file.
+     * @param binary Whether the log is a binary log.
+     * @return The usage statistics of the log.
+     * @throws IOException If the file cannot be read.
+     */
+    private AppleRemoteUsageReport analyze(final Path file, final boolean binary) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            final int splits = (int) Math.max(1, (size + splitSize - 1) / splitSize);
+            return new AppleRemoteUsageReport(pool.invoke(new SplitTask(channel, size, binary, 0, splits)));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Analyzes a split of a text log. A line belongs to the split its first byte is in.
+     *
+     * @param channel The channel of the log file.
+     * @param size The size of the log file.
+     * @param start The index of the first byte of the split.
+     * @param end The index after the last byte of the split.
+     * @return The statistics of the split.
+     * @throws IOException If the file cannot be read.
+     */
+    private UsageAccumulator analyzeTextSplit(final FileChannel channel, final long size, final long start,
+                                              final long end) throws IOException {
+        final UsageAccumulator accumulator = new UsageAccumulator(doublePressMillis);
+        final long mapStart = start == 0 ? 0 : start - 1;
+        final long mapEnd = Math.min(size, end + MAX_LINE_LENGTH);
+        final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+        final int limit = (int) (mapEnd - mapStart);
+        final int splitEnd = (int) (end - mapStart);
+
+        int position = 0;
+        if (start > 0) {
+            while (position < limit && buffer.get(position) != '\n') {
+                position++;
+            }
+            position++;
+        }
+
+        while (position < splitEnd) {
+            int lineEnd = position;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            if (lineEnd == limit && mapEnd < size) {
+                accumulator.addMalformed();
+                break;
+            }
+            analyzeLine(buffer, position, lineEnd, accumulator);
+            position = lineEnd + 1;
+        }
+        return accumulator;
+    }
+
+    /**
+     * Analyzes one line of a text log.
+     *
+     * @param buffer The buffer that holds the line.
+     * @param from The index of the first byte of the line.
+     * @param to The index after the last byte of the line.
+     * @param accumulator The statistics the event of the line is added to.
+     */
+    private static void analyzeLine(final ByteBuffer buffer, int from, final int to,
+                                    final UsageAccumulator accumulator) {
+        while (from < to && buffer.get(from) <= ' ') {
+            from++;
+        }
+        if (from == to) {
+            return;
+        }
+
+        long when = -1;
+        if (buffer.get(from) >= '0' && buffer.get(from) <= '9') {
+            when = 0;
+            while (from < to && buffer.get(from) >= '0' && buffer.get(from) <= '9') {
+                when = when * 10 + buffer.get(from) - '0';
+                from++;
+            }
+            while (from < to && (buffer.get(from) == ' ' || buffer.get(from) == '\t')) {
+                from++;
+            }
+        }
+
+        final int code = IRemotePipeParser.parse(buffer, from, to);
+        if (code >= 0) {
+            accumulator.add(code, when);
+        } else if (code == IRemotePipeParser.MALFORMED) {
+            accumulator.addMalformed();
+        }
+    }
+
+    /**
+     * Analyzes a split of a binary log.
+     *
+     * @param channel The channel of the log file.
+     * @param size The size of the log file.
+     * @param start The index of the first byte of the split. It is a multiple of the record size.
+     * @param end The index after the last byte of the split.
+     * @return The statistics of the split.
+     * @throws IOException If the file cannot be read.
+     */
+    private UsageAccumulator analyzeBinarySplit(final FileChannel channel, final long size, final long start,
+                                                final long end) throws IOException {
+        final UsageAccumulator accumulator = new UsageAccumulator(doublePressMillis);
+        final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        final int limit = (int) (end - start);
+
+        int position = 0;
+        for (; position + RECORD_SIZE <= limit; position += RECORD_SIZE) {
+            final long packed = buffer.getLong(position);
+            final int code = AppleRemoteEventCodes.unpackCode(packed);
+            if (packed >= 0 && AppleRemoteEventCodes.isValid(code)) {
+                accumulator.add(code, AppleRemoteEventCodes.unpackWhen(packed));
+            } else {
+                accumulator.addMalformed();
+            }
+        }
+        if (position < limit) {
+            accumulator.addMalformed();
+        }
+        return accumulator;
+    }
+
+    /**
+     * Task that analyzes a range of splits of a log: it halves the range until only one split is left, and merges
+     *  the results of the halves in order.
+     */
+    private final class SplitTask extends RecursiveTask<UsageAccumulator> {
+
+        /**
+         * Unique identifier for serialization.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The channel of the log file.
+         */
+        private final transient FileChannel channel;
+
+        /**
+         * The size of the log file.
+         */
+        private final long size;
+
+        /**
+         * Whether the log is a binary log.
+         */
+        private final boolean binary;
+
+        /**
+         * The index of the first split of the range.
+         */
+        private final int from;
+
+        /**
+         * The index after the last split of the range.
+         */
+        private final int to;
+
+
+        /**
+         * Simple constructor that gives values to fields.
+         *
+         * @param channel The channel of the log file.
+         * @param size The size of the log file.
+         * @param binary Whether the log is a binary log.
+         * @param from The index of the first split of the range.
+         * @param to The index after the last split of the range.
+         */
+        private SplitTask(final FileChannel channel, final long size, final boolean binary, final int from,
+                          final int to) {
+            this.channel = channel;
+            this.size = size;
+            this.binary = binary;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Analyzes the range of splits.
+         *
+         * @return The statistics of the range.
+         */
+        @Override
+        protected UsageAccumulator compute() {
+            if (to - from > 1) {
+                final int middle = (from + to) >>> 1;
+                final SplitTask first = new SplitTask(channel, size, binary, from, middle);
+                first.fork();
+                final UsageAccumulator second = new SplitTask(channel, size, binary, middle, to).compute();
+                return first.join().merge(second);
+            }
+
+            final long start = from * splitSize;
+            final long end = Math.min(size, start + splitSize);
+            try {
+                return binary ? analyzeBinarySplit(channel, size, start, end)
+                              : analyzeTextSplit(channel, size, start, end);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package hu.lakospeter.appleremote4j;
+
+import java.util.EventListener;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Listener whose handling of the events of an {@link AppleRemote} completes asynchronously (e.g. it makes HTTP calls).
+ *
+ * <br><br>
+ *
+ * The events of different buttons are handled concurrently, but the events of the same button are handled one at a
+ *  time, in the order they were fired: the listener is only called with an event after the stage it returned for the
+ *  previous event of the same button has completed, so e.g. a hold stop never overtakes its hold start. The number of
+ *  stages in flight is bounded (see {@link AppleRemote#addAsyncListener(AppleRemoteAsyncListener, int,
+ *  java.util.function.BiConsumer)}). The AppleRemote never waits for a stage to complete: while the bound is reached,
+ *  the listener does not receive the events, and they are counted as overflows (see
+ *  {@link AppleRemote#getAsyncOverflowCount(AppleRemoteAsyncListener)}). Holds are never cut in half: the listener
+ *  receives the hold stop of every hold start it received, even over the bound, and does not receive the hold stop
+ *  of a hold start it missed.
+ *
+ * <br><br>
+ *
+ * The listener should only start its work and return a stage, without blocking, because it may be called on the
+ *  thread that dispatches the events of the AppleRemote, or on the thread that completed the previous stage.
+ *
+ * @author lakospeter
+ */
+@FunctionalInterface
+public interface AppleRemoteAsyncListener extends EventListener {
+
+    /**
+     * Called when an event is fired, after the handling of the previous event of the same button has completed.
+     *
+     * @param e The {@link AppleRemoteEvent} that describes the event.
+     * @return The stage that completes when the event is handled, or <code>null</code> if it is already handled.
+     *          If it completes exceptionally, the failure is reported to the failure handler of the listener.
+     */
+    CompletionStage<Void> eventReceived(AppleRemoteEvent e);
+
+}
@@ -0,0 +1,27 @@
+package hu.lakospeter.appleremote4j;
+
+import java.util.EventListener;
+
+/**
+ * Listener that receives the events of an {@link AppleRemote} in batches, instead of one at a time.
+ *
+ * <br><br>
+ *
+ * A batch holds all of the events that were available in one read of iremotepipe's output, so when events arrive in
+ *  a burst, the listener can amortize its per-event costs (locks, repaints, I/O) over the whole burst. If the
+ *  listener was added with a maximum batch latency (see
+ *  {@link AppleRemote#addBatchListener(AppleRemoteBatchListener, long)}), a batch can also span several reads, but
+ *  it is delivered at the latest when its first event is that old.
+ *
+ * @author lakospeter
+ */
+public interface AppleRemoteBatchListener extends EventListener {
+
+    /**
+     * Called with every batch of events, in the order the events were fired.
+     *
+     * @param batch The {@link AppleRemoteEventBatch} that holds the events. It is never empty.
+     */
+    void eventsReceived(AppleRemoteEventBatch batch);
+
+}
@@ -0,0 +1,123 @@
+package hu.lakospeter.appleremote4j;
+
+/**
+ * A focus context (e.g. a menu, a dialog or a player screen) that handles the events of an {@link AppleRemote} while
+ *  it is on the top of the remote's context stack (see {@link AppleRemote#pushContext(AppleRemoteContext)}).
+ *
+ * <br><br>
+ *
+ * A context has at most one handler for every (button, kind) pair. If a context falls through, the events it has no
+ *  handler for are routed to the context below it on the stack; otherwise they are not routed to any context.
+ *  The handlers are resolved when the context is pushed, so handlers added later only take effect when the context is
+ *  pushed again.
+ *
+ * @author lakospeter
+ */
+public final class AppleRemoteContext {
+
+    /**
+     * The name of this context, for debugging.
+     */
+    private final String name;
+
+    /**
+     * Whether the events this context has no handler for are routed to the context below it.
+     */
+    private final boolean fallThrough;
+
+    /**
+     * The handlers of this context, indexed by event code (see {@link AppleRemoteEventCodes}).
+     */
+    private final AppleRemoteEventHandler[] handlers = new AppleRemoteEventHandler[AppleRemoteEventCodes.CODE_COUNT];
+
+
+    /**
+     * Creates a context that does not fall through.
+     *
+     * @param name The name of the context, for debugging.
+     */
+    public AppleRemoteContext(final String name) {
+        this(name, false);
+    }
+
+    /**
+     * Simple constructor that gives values to fields.
+     *
+     * @param name The name of the context, for debugging.
+     * @param fallThrough Whether the events the context has no handler for are routed to the context below it.
+     */
+    public AppleRemoteContext(final String name, final boolean fallThrough) {
+        this.name = name;
+        this.fallThrough = fallThrough;
+    }
+
+    /**
+     * Sets the handler of the presses of a button in this context.
+     *
+     * @param button The button.
+     * @param handler The handler, or <code>null</code> to remove the handler.
+     * @return This context, so that calls can be chained.
+     */
+    public AppleRemoteContext on(final AppleRemote.Button button, final AppleRemoteEventHandler handler) {
+        return on(button, AppleRemote.Kind.PRESSED, handler);
+    }
+
+    /**
+     * Sets the handler of an event of a button in this context.
+     *
+     * @param button The button.
+     * @param kind The kind of the event.
+     * @param handler The handler, or <code>null</code> to remove the handler.
+     * @return This context, so that calls can be chained.
+     * @throws IllegalArgumentException If the button never fires this kind of event.
+     */
+    public synchronized AppleRemoteContext on(final AppleRemote.Button button, final AppleRemote.Kind kind,
+                                              final AppleRemoteEventHandler handler) {
+        final int code = AppleRemoteEventCodes.code(button, kind);
+        if (!AppleRemoteEventCodes.isValid(code)) {
+            throw new IllegalArgumentException(button + " never fires " + kind);
+        }
+        handlers[code] = handler;
+        return this;
+    }
+
+    /**
+     * Returns the name of this context.
+     *
+     * @return The name of this context.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns whether the events this context has no handler for are routed to the context below it.
+     *
+     * @return <code>true</code> if this context falls through.
+     */
+    public boolean isFallThrough() {
+        return fallThrough;
+    }
+
+    /**
+     * Returns a copy of the handlers of this context.
+     *
+     * @return The handlers, indexed by event code, with <code>null</code> for the codes without a handler.
+     */
+    synchronized AppleRemoteEventHandler[] getHandlers() {
+        return handlers.clone();
+    }
+
+    /**
+     * Returns a string representation of this AppleRemoteContext.
+     *
+     * @return A string representation of this AppleRemoteContext.
+     */
+    @Override
+    public String toString() {
+        return "AppleRemoteContext{" +
+                "name='" + name + '\'' +
+                ", fallThrough=" + fallThrough +
+                '}';
+    }
+}
@@ -19,22 +19,54 @@ public class AppleRemoteEvent extends EventObject {
      */
     private final AppleRemote.Button button;
 
+    /**
+     * The kind of the event (e.g. pressed, hold started), or <code>null</code> if it is not known.
+     */
+    private final AppleRemote.Kind kind;
+
+    /**
+     * The time of the event, in milliseconds since the epoch.
+     */
+    private final long when;
+
     /**
      * The raw output of iremotepipe for this event.
      */
     private final String message;
 
+    /**
+     * Whether a listener consumed the event, so that it is not passed to the remaining listeners.
+     */
+    private transient boolean consumed;
+
 
     /**
      * Simple constructor that gives values to fields.
+     *  The kind of the event will be unknown, and its time will be the current time.
      *
      * @param source The source of this event (usually an {@link AppleRemote}.
      * @param button The button that fired the event.
      * @param message The raw output of iremotepipe for this event.
      */
     public AppleRemoteEvent(final Object source, final AppleRemote.Button button, final String message) {
+        this(source, button, null, System.currentTimeMillis(), message);
+    }
+
+    /**
+     * Simple constructor that gives values to fields.
+     *
+     * @param source The source of this event (usually an {@link AppleRemote}.
+     * @param button The button that fired the event.
+     * @param kind The kind of the event (e.g. pressed, hold started).
+     * @param when The time of the event, in milliseconds since the epoch.
+     * @param message The raw output of iremotepipe for this event.
+     */
+    public AppleRemoteEvent(final Object source, final AppleRemote.Button button, final AppleRemote.Kind kind,
+                            final long when, final String message) {
         super(source);
         this.button = button;
+        this.kind = kind;
+        this.when = when;
         this.message = message;
     }
 
@@ -47,6 +79,33 @@ public class AppleRemoteEvent extends EventObject {
         return button;
     }
 
+    /**
+     * Returns the kind of the event (e.g. pressed, hold started).
+     *
+     * @return The kind of the event, or <code>null</code> if it is not known.
+     */
+    public AppleRemote.Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the time of the event.
+     *
+     * @return The time of the event, in milliseconds since the epoch.
+     */
+    public long getWhen() {
+        return when;
+    }
+
+    /**
+     * Returns the primitive event code of this event (see {@link AppleRemoteEventCodes}).
+     *
+     * @return The event code, or -1 if the kind of the event is not known.
+     */
+    public int getCode() {
+        return kind == null ? -1 : AppleRemoteEventCodes.code(button, kind);
+    }
+
     /**
      * Returns the raw output of iremotepipe for this event.
      *
@@ -57,8 +116,26 @@ public class AppleRemoteEvent extends EventObject {
     }
 
     /**
-     * Returns a string representation of this AppleRemoteEvent, including its source, the button that fired the event
-     *  and the raw output of iremotepipe for this event.
+     * Consumes this event, so that it is not passed to the remaining listeners (those with a lower priority, or added
+     *  later with the same priority), nor to the annotated listeners and the focus contexts of the {@link AppleRemote}.
+     *  The queues, publishers and batch listeners of the AppleRemote receive every event, consumed or not.
+     */
+    public void consume() {
+        consumed = true;
+    }
+
+    /**
+     * Returns whether this event was consumed by a listener.
+     *
+     * @return <code>true</code> if this event was consumed.
+     */
+    public boolean isConsumed() {
+        return consumed;
+    }
+
+    /**
+     * Returns a string representation of this AppleRemoteEvent, including its source, the button that fired the event,
+     *  its kind and time, and the raw output of iremotepipe for this event.
      *
      * @return A string representation of this AppleRemoteEvent.
      */
@@ -67,6 +144,8 @@ public class AppleRemoteEvent extends EventObject {
         return "AppleRemoteEvent{" +
                 "source=" + source +
                 ", button=" + button +
+                ", kind=" + kind +
+                ", when=" + when +
                 ", message='" + message + '\'' +
                 '}';
     }
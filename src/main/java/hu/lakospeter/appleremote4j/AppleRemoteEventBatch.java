@@ -0,0 +1,129 @@
+package hu.lakospeter.appleremote4j;
+
+import java.util.Collections;
+import java.util.EventObject;
+import java.util.List;
+
+/**
+ * An immutable batch of {@link AppleRemoteEvent}s, delivered to {@link AppleRemoteBatchListener}s, together with
+ *  its sizing metrics.
+ *
+ * @author lakospeter
+ */
+public class AppleRemoteEventBatch extends EventObject {
+
+    /**
+     * Unique identifier for serialization.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The events of the batch, in the order they were fired.
+     */
+    private final List<AppleRemoteEvent> events;
+
+    /**
+     * The number of reads of iremotepipe's output the events of the batch come from.
+     */
+    private final int readCount;
+
+    /**
+     * The number of bytes of iremotepipe's output the events of the batch were parsed from.
+     */
+    private final long byteCount;
+
+    /**
+     * The time the batch was delivered, in milliseconds since the epoch.
+     */
+    private final long deliveryTime;
+
+
+    /**
+     * Simple constructor that gives values to fields.
+     *
+     * @param source The source of this batch (usually an {@link AppleRemote}).
+     * @param events The events of the batch, in the order they were fired. The list must not be modified later.
+     * @param readCount The number of reads of iremotepipe's output the events come from.
+     * @param byteCount The number of bytes of iremotepipe's output the events were parsed from.
+     * @param deliveryTime The time the batch was delivered, in milliseconds since the epoch.
+     */
+    public AppleRemoteEventBatch(final Object source, final List<AppleRemoteEvent> events, final int readCount,
+                                 final long byteCount, final long deliveryTime) {
+        super(source);
+        this.events = Collections.unmodifiableList(events);
+        this.readCount = readCount;
+        this.byteCount = byteCount;
+        this.deliveryTime = deliveryTime;
+    }
+
+    /**
+     * Returns the events of the batch.
+     *
+     * @return An unmodifiable list of the events, in the order they were fired.
+     */
+    public List<AppleRemoteEvent> getEvents() {
+        return events;
+    }
+
+    /**
+     * Returns the number of events in the batch.
+     *
+     * @return The size of the batch.
+     */
+    public int size() {
+        return events.size();
+    }
+
+    /**
+     * Returns the number of reads of iremotepipe's output the events of the batch come from.
+     *  It is 0 if the batch only holds synthesized events (e.g. hold stops of the hold watchdog).
+     *
+     * @return The number of reads.
+     */
+    public int getReadCount() {
+        return readCount;
+    }
+
+    /**
+     * Returns the number of bytes of iremotepipe's output the events of the batch were parsed from.
+     *
+     * @return The number of bytes.
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * Returns the time the batch was delivered.
+     *
+     * @return The time in milliseconds since the epoch.
+     */
+    public long getDeliveryTime() {
+        return deliveryTime;
+    }
+
+    /**
+     * Returns the time between the first event of the batch and the delivery of the batch.
+     *
+     * @return The latency of the batch, in milliseconds.
+     */
+    public long getLatency() {
+        return events.isEmpty() ? 0 : deliveryTime - events.get(0).getWhen();
+    }
+
+    /**
+     * Returns a string representation of this AppleRemoteEventBatch, including its source and sizing metrics.
+     *
+     * @return A string representation of this AppleRemoteEventBatch.
+     */
+    @Override
+    public String toString() {
+        return "AppleRemoteEventBatch{" +
+                "source=" + source +
+                ", size=" + events.size() +
+                ", readCount=" + readCount +
+                ", byteCount=" + byteCount +
+                ", latency=" + getLatency() +
+                '}';
+    }
+}
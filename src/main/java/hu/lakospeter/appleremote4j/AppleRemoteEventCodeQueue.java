@@ -0,0 +1,155 @@
+package hu.lakospeter.appleremote4j;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, lock-free, single-producer/single-consumer queue of primitive {@link AppleRemote} events.
+ *
+ * <br><br>
+ *
+ * It works exactly like {@link AppleRemoteEventQueue}, but instead of {@link AppleRemoteEvent} objects it holds
+ *  event codes packed together with the time of the event (see {@link AppleRemoteEventCodes#pack(int, long)}),
+ *  so neither the producer nor the consumer allocates any objects. A game or render loop can drain it into the same
+ *  preallocated <code>long[]</code> once per frame.
+ *
+ * <br><br>
+ *
+ * The producer is the {@link AppleRemote} that this queue was added to with
+ *  {@link AppleRemote#addEventCodeQueue(AppleRemoteEventCodeQueue)}, so a queue must not be added to more than one
+ *  AppleRemote. The consumer is the one thread that calls {@link #poll()} and {@link #drainTo(long[])}.
+ *
+ * @author lakospeter
+ */
+public class AppleRemoteEventCodeQueue {
+
+    /**
+     * The value returned by {@link #poll()} when the queue is empty. Packed events are never negative.
+     */
+    public static final long EMPTY = -1L;
+
+    /**
+     * The ring buffer that holds the packed events. Its length is a power of two.
+     */
+    private final long[] buffer;
+
+    /**
+     * Mask that turns a position into an index of {@link #buffer}.
+     */
+    private final int mask;
+
+    /**
+     * The position of the next event to be taken by the consumer. Only the consumer writes it.
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * The position of the next event to be added by the producer. Only the producer writes it.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * The number of events that were dropped because the queue was full.
+     */
+    private final AtomicLong overflowCount = new AtomicLong();
+
+    /**
+     * The producer's cached copy of {@link #head}, to avoid reading the consumer's counter on every offer.
+     */
+    private long cachedHead;
+
+
+    /**
+     * Creates an empty queue.
+     *
+     * @param capacity The maximum number of events the queue can hold. It is rounded up to the next power of two.
+     * @throws IllegalArgumentException If the capacity is less than 1 or greater than 2^30.
+     */
+    public AppleRemoteEventCodeQueue(final int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        buffer = new long[1 << (32 - Integer.numberOfLeadingZeros(capacity - 1))];
+        mask = buffer.length - 1;
+    }
+
+    /**
+     * Adds an event to the queue, or drops it if the queue is full. Only the producer may call this method.
+     *
+     * @param code The event code.
+     * @param when The time of the event, in milliseconds since the epoch.
+     * @return <code>true</code> if the event was added, <code>false</code> if it was dropped.
+     */
+    boolean offer(final int code, final long when) {
+        final long currentTail = tail.get();
+        if (currentTail - cachedHead >= buffer.length) {
+            cachedHead = head.get();
+            if (currentTail - cachedHead >= buffer.length) {
+                overflowCount.lazySet(overflowCount.get() + 1);
+                return false;
+            }
+        }
+        buffer[(int) currentTail & mask] = AppleRemoteEventCodes.pack(code, when);
+        tail.lazySet(currentTail + 1);
+        return true;
+    }
+
+    /**
+     * Takes the oldest event from the queue. Only the consumer may call this method.
+     *
+     * @return The oldest event packed into a <code>long</code> (see {@link AppleRemoteEventCodes#unpackCode(long)}
+     *          and {@link AppleRemoteEventCodes#unpackWhen(long)}), or {@link #EMPTY} if the queue is empty.
+     */
+    public long poll() {
+        final long currentHead = head.get();
+        if (currentHead >= tail.get()) {
+            return EMPTY;
+        }
+        final long packed = buffer[(int) currentHead & mask];
+        head.lazySet(currentHead + 1);
+        return packed;
+    }
+
+    /**
+     * Takes as many events from the queue as fit in the specified array, and stores them at its beginning in the
+     *  order they were fired. Only the consumer may call this method.
+     *
+     * @param packedEvents The array the packed events are stored in.
+     * @return The number of events taken.
+     */
+    public int drainTo(final long[] packedEvents) {
+        final long currentHead = head.get();
+        final int count = (int) Math.min(tail.get() - currentHead, packedEvents.length);
+        for (int i = 0; i < count; i++) {
+            packedEvents[i] = buffer[(int) (currentHead + i) & mask];
+        }
+        head.lazySet(currentHead + count);
+        return count;
+    }
+
+    /**
+     * Returns the number of events in the queue. The result is only an estimate if it is not called by the consumer.
+     *
+     * @return The number of events in the queue.
+     */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    /**
+     * Returns the maximum number of events the queue can hold.
+     *
+     * @return The capacity of the queue.
+     */
+    public int capacity() {
+        return buffer.length;
+    }
+
+    /**
+     * Returns the number of events that were dropped because the queue was full.
+     *
+     * @return The number of dropped events.
+     */
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+}
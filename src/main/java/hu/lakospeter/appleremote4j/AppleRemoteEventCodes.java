@@ -0,0 +1,169 @@
+package hu.lakospeter.appleremote4j;
+
+/**
+ * Primitive (allocation free) representation of {@link AppleRemote} events.
+ *
+ * <br><br>
+ *
+ * Every (button, kind) pair is identified by a small <code>int</code> event code, and an event code together with the
+ *  time of the event can be packed into a single non-negative <code>long</code>. Consumers that want to avoid boxing
+ *  (e.g. game and render loops polling an {@link AppleRemoteEventCodeQueue}) can work with these values directly.
+ *
+ * @author lakospeter
+ */
+public final class AppleRemoteEventCodes {
+
+    /**
+     * The number of possible event codes. Every event code is in the <code>[0, CODE_COUNT)</code> range.
+     */
+    public static final int CODE_COUNT = AppleRemote.Button.values().length * AppleRemote.Kind.values().length;
+
+    /**
+     * The number of low bits of a packed value that hold the event code.
+     */
+    private static final int CODE_BITS = 8;
+
+    /**
+     * Mask of the event code bits of a packed value.
+     */
+    private static final long CODE_MASK = (1L << CODE_BITS) - 1;
+
+    /**
+     * Cached copy of {@link AppleRemote.Button#values()}, so that decoding does not allocate.
+     */
+    private static final AppleRemote.Button[] BUTTONS = AppleRemote.Button.values();
+
+    /**
+     * Cached copy of {@link AppleRemote.Kind#values()}, so that decoding does not allocate.
+     */
+    private static final AppleRemote.Kind[] KINDS = AppleRemote.Kind.values();
+
+    /**
+     * The canonical iremotepipe output line of every event code, or <code>null</code> for the codes that iremotepipe
+     *  never produces (e.g. the Select button being held).
+     */
+    private static final String[] IREMOTEPIPE_LINES = new String[CODE_COUNT];
+
+    static {
+        line(AppleRemote.Button.VOLUME_UP, "up");
+        line(AppleRemote.Button.VOLUME_DOWN, "down");
+        line(AppleRemote.Button.PREVIOUS, "left");
+        line(AppleRemote.Button.NEXT, "right");
+        IREMOTEPIPE_LINES[code(AppleRemote.Button.PLAY_PAUSE, AppleRemote.Kind.PRESSED)] =
+                "{\"type\":\"play\",\"hold\":false,\"pressed\":true}";
+        IREMOTEPIPE_LINES[code(AppleRemote.Button.PLAY_PAUSE, AppleRemote.Kind.HELD)] =
+                "{\"type\":\"sleep\",\"hold\":false,\"pressed\":true}";
+        IREMOTEPIPE_LINES[code(AppleRemote.Button.MENU, AppleRemote.Kind.PRESSED)] =
+                "{\"type\":\"menu\",\"hold\":false,\"pressed\":true}";
+        IREMOTEPIPE_LINES[code(AppleRemote.Button.MENU, AppleRemote.Kind.HELD)] =
+                "{\"type\":\"menu\",\"hold\":true,\"pressed\":true}";
+        IREMOTEPIPE_LINES[code(AppleRemote.Button.SELECT, AppleRemote.Kind.PRESSED)] =
+                "{\"type\":\"ok\",\"hold\":false,\"pressed\":true}";
+    }
+
+
+    /**
+     * This class only has static methods, it should not be instantiated.
+     */
+    private AppleRemoteEventCodes() {
+    }
+
+    /**
+     * Registers the canonical iremotepipe output lines of a button that supports pressing, and starting and stopping
+     *  a hold.
+     *
+     * @param button The button.
+     * @param type The value of the <code>type</code> field in iremotepipe's output for this button.
+     */
+    private static void line(final AppleRemote.Button button, final String type) {
+        IREMOTEPIPE_LINES[code(button, AppleRemote.Kind.PRESSED)] =
+                "{\"type\":\"" + type + "\",\"hold\":false,\"pressed\":true}";
+        IREMOTEPIPE_LINES[code(button, AppleRemote.Kind.HOLD_STARTED)] =
+                "{\"type\":\"" + type + "\",\"hold\":true,\"pressed\":true}";
+        IREMOTEPIPE_LINES[code(button, AppleRemote.Kind.HOLD_STOPPED)] =
+                "{\"type\":\"" + type + "\",\"hold\":true,\"pressed\":false}";
+    }
+
+    /**
+     * Returns the event code of the specified button and kind.
+     *
+     * @param button The button that fired the event.
+     * @param kind The kind of the event.
+     * @return The event code, in the <code>[0, CODE_COUNT)</code> range.
+     */
+    public static int code(final AppleRemote.Button button, final AppleRemote.Kind kind) {
+        return button.ordinal() * KINDS.length + kind.ordinal();
+    }
+
+    /**
+     * Returns the button of the specified event code.
+     *
+     * @param code An event code.
+     * @return The button that fired the event.
+     */
+    public static AppleRemote.Button button(final int code) {
+        return BUTTONS[code / KINDS.length];
+    }
+
+    /**
+     * Returns the kind of the specified event code.
+     *
+     * @param code An event code.
+     * @return The kind of the event.
+     */
+    public static AppleRemote.Kind kind(final int code) {
+        return KINDS[code % KINDS.length];
+    }
+
+    /**
+     * Returns whether iremotepipe can produce the event with the specified code
+     *  (e.g. the Select button can be pressed, but it cannot be held).
+     *
+     * @param code An event code.
+     * @return <code>true</code> if the code is in range and describes an event that the remote can fire.
+     */
+    public static boolean isValid(final int code) {
+        return code >= 0 && code < CODE_COUNT && IREMOTEPIPE_LINES[code] != null;
+    }
+
+    /**
+     * Returns the canonical iremotepipe output line of the specified event code.
+     *
+     * @param code An event code.
+     * @return The canonical iremotepipe output line, or <code>null</code> if iremotepipe never produces this event.
+     */
+    public static String iRemotePipeLine(final int code) {
+        return IREMOTEPIPE_LINES[code];
+    }
+
+    /**
+     * Packs an event code and the time of the event into a single non-negative <code>long</code>.
+     *
+     * @param code An event code.
+     * @param when The time of the event, in milliseconds since the epoch.
+     * @return The packed value.
+     */
+    public static long pack(final int code, final long when) {
+        return (when << CODE_BITS) | code;
+    }
+
+    /**
+     * Returns the event code of a packed value.
+     *
+     * @param packed A value returned by {@link #pack(int, long)}.
+     * @return The event code.
+     */
+    public static int unpackCode(final long packed) {
+        return (int) (packed & CODE_MASK);
+    }
+
+    /**
+     * Returns the time of the event of a packed value.
+     *
+     * @param packed A value returned by {@link #pack(int, long)}.
+     * @return The time of the event, in milliseconds since the epoch.
+     */
+    public static long unpackWhen(final long packed) {
+        return packed >>> CODE_BITS;
+    }
+}
@@ -0,0 +1,20 @@
+package hu.lakospeter.appleremote4j;
+
+import java.util.EventListener;
+
+/**
+ * Handler of one specific kind of {@link AppleRemote} event (e.g. the Next button being pressed).
+ *
+ * @author lakospeter
+ */
+@FunctionalInterface
+public interface AppleRemoteEventHandler extends EventListener {
+
+    /**
+     * Called when the event this handler was registered for is fired.
+     *
+     * @param e The {@link AppleRemoteEvent} that describes the event.
+     */
+    void handle(AppleRemoteEvent e);
+
+}
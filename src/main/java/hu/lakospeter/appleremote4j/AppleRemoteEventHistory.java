@@ -0,0 +1,233 @@
+package hu.lakospeter.appleremote4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The history of the most recent events of an {@link AppleRemote} (see {@link AppleRemote#getEventHistory()}), so that
+ *  listeners can ask e.g. whether the Menu button was pressed in the last 500 milliseconds, or what the last five
+ *  events were, without keeping their own buffers.
+ *
+ * <br><br>
+ *
+ * The events are kept in a preallocated ring, packed into <code>long</code>s (see {@link AppleRemoteEventCodes}).
+ *  The ring is written by the thread that dispatches the events without locking, and it can be queried from any
+ *  thread without locking, concurrently with the dispatching: a query never returns an event that was overwritten
+ *  while it was reading. {@link #copyLast(long[])}, {@link #wasPressedWithin(AppleRemote.Button, long)} and
+ *  {@link #occurredWithin(AppleRemote.Button, AppleRemote.Kind, long)} do not allocate.
+ *
+ * @author lakospeter
+ */
+public final class AppleRemoteEventHistory {
+
+    /**
+     * The source of the events returned by the queries.
+     */
+    private final Object source;
+
+    /**
+     * The ring of packed events. It has one more slot than the capacity, for the event that is being written.
+     */
+    private final AtomicLongArray events;
+
+    /**
+     * The number of events recorded so far. The event with index <code>i</code> is in the slot
+     *  <code>i % events.length()</code>.
+     */
+    private final AtomicLong recordedCount = new AtomicLong();
+
+
+    /**
+     * Creates an empty history.
+     *
+     * @param source The source of the events returned by the queries (usually an {@link AppleRemote}).
+     * @param capacity The number of events the history keeps.
+     */
+    AppleRemoteEventHistory(final Object source, final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        this.source = source;
+        events = new AtomicLongArray(capacity + 1);
+    }
+
+    /**
+     * Records an event. Must be called by the thread that dispatches the events.
+     *
+     * @param code The event code of the event (see {@link AppleRemoteEventCodes}).
+     * @param when The time of the event, in milliseconds since the epoch.
+     */
+    void record(final int code, final long when) {
+        final long index = recordedCount.get();
+        events.lazySet((int) (index % events.length()), AppleRemoteEventCodes.pack(code, when));
+        recordedCount.lazySet(index + 1);
+    }
+
+    /**
+     * Returns the number of events the history keeps.
+     *
+     * @return The capacity of the history.
+     */
+    public int capacity() {
+        return events.length() - 1;
+    }
+
+    /**
+     * Returns the number of events recorded since the AppleRemote was created, including the ones that are no longer
+     *  in the history.
+     *
+     * @return The number of events recorded.
+     */
+    public long getRecordedCount() {
+        return recordedCount.get();
+    }
+
+    /**
+     * Copies the last events to an array, packed (see {@link AppleRemoteEventCodes#pack(int, long)}), oldest first.
+     *
+     * @param packedEvents The array to copy the events to. At most as many events are copied as its length.
+     * @return The number of events copied to the beginning of the array.
+     */
+    public int copyLast(final long[] packedEvents) {
+        final long end = recordedCount.get();
+        final long start = Math.max(0, end - Math.min(packedEvents.length, capacity()));
+        for (long index = start; index < end; index++) {
+            packedEvents[(int) (index - start)] = events.get((int) (index % events.length()));
+        }
+        // drop the events that were overwritten while they were being copied
+        final long firstValid = Math.max(start, recordedCount.get() - capacity());
+        if (firstValid >= end) {
+            return 0;
+        }
+        if (firstValid > start) {
+            System.arraycopy(packedEvents, (int) (firstValid - start), packedEvents, 0, (int) (end - firstValid));
+        }
+        return (int) (end - firstValid);
+    }
+
+    /**
+     * Returns the last events.
+     *
+     * @param count The maximum number of events to return.
+     * @return The last events (at most as many as the capacity of the history), oldest first.
+     * @throws IllegalArgumentException If the count is negative.
+     */
+    public List<AppleRemoteEvent> getLast(final int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Invalid count: " + count);
+        }
+        final long[] packedEvents = new long[Math.min(count, capacity())];
+        final int copied = copyLast(packedEvents);
+        final List<AppleRemoteEvent> lastEvents = new ArrayList<>(copied);
+        for (int index = 0; index < copied; index++) {
+            lastEvents.add(event(packedEvents[index]));
+        }
+        return lastEvents;
+    }
+
+    /**
+     * Returns the last events of a button.
+     *
+     * @param button The button.
+     * @param count The maximum number of events to return.
+     * @return The last events of the button that are still in the history, oldest first.
+     * @throws IllegalArgumentException If the count is negative.
+     */
+    public List<AppleRemoteEvent> getLast(final AppleRemote.Button button, final int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Invalid count: " + count);
+        }
+        final List<AppleRemoteEvent> lastEvents = new ArrayList<>();
+        for (long index = recordedCount.get() - 1; index >= 0 && lastEvents.size() < count; index--) {
+            final long packed = read(index);
+            if (packed < 0) {
+                break;
+            }
+            if (AppleRemoteEventCodes.button(AppleRemoteEventCodes.unpackCode(packed)) == button) {
+                lastEvents.add(event(packed));
+            }
+        }
+        Collections.reverse(lastEvents);
+        return lastEvents;
+    }
+
+    /**
+     * Returns the events since the specified time.
+     *
+     * @param time The time, in milliseconds since the epoch.
+     * @return The events of the history that were fired at or after the time, oldest first.
+     */
+    public List<AppleRemoteEvent> getSince(final long time) {
+        final List<AppleRemoteEvent> eventsSince = new ArrayList<>();
+        for (long index = recordedCount.get() - 1; index >= 0; index--) {
+            final long packed = read(index);
+            if (packed < 0 || AppleRemoteEventCodes.unpackWhen(packed) < time) {
+                break;
+            }
+            eventsSince.add(event(packed));
+        }
+        Collections.reverse(eventsSince);
+        return eventsSince;
+    }
+
+    /**
+     * Returns whether a button fired an event of the specified kind in the last milliseconds.
+     *
+     * @param button The button.
+     * @param kind The kind of the event.
+     * @param millis The length of the time window that ends now, in milliseconds.
+     * @return <code>true</code> if such an event is in the history, and it was fired in the time window.
+     */
+    public boolean occurredWithin(final AppleRemote.Button button, final AppleRemote.Kind kind, final long millis) {
+        final int code = AppleRemoteEventCodes.code(button, kind);
+        final long since = System.currentTimeMillis() - millis;
+        for (long index = recordedCount.get() - 1; index >= 0; index--) {
+            final long packed = read(index);
+            if (packed < 0 || AppleRemoteEventCodes.unpackWhen(packed) < since) {
+                return false;
+            }
+            if (AppleRemoteEventCodes.unpackCode(packed) == code) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether a button was pressed in the last milliseconds.
+     *
+     * @param button The button.
+     * @param millis The length of the time window that ends now, in milliseconds.
+     * @return <code>true</code> if the button was pressed in the time window.
+     */
+    public boolean wasPressedWithin(final AppleRemote.Button button, final long millis) {
+        return occurredWithin(button, AppleRemote.Kind.PRESSED, millis);
+    }
+
+    /**
+     * Reads an event of the history.
+     *
+     * @param index The index of the event.
+     * @return The packed event, or -1 if it is no longer in the history.
+     */
+    private long read(final long index) {
+        final long packed = events.get((int) (index % events.length()));
+        return index >= recordedCount.get() - capacity() ? packed : -1;
+    }
+
+    /**
+     * Creates an event object from a packed event.
+     *
+     * @param packed The packed event.
+     * @return The event, with the canonical iremotepipe output line of its event code as its raw output.
+     */
+    private AppleRemoteEvent event(final long packed) {
+        final int code = AppleRemoteEventCodes.unpackCode(packed);
+        return new AppleRemoteEvent(source, AppleRemoteEventCodes.button(code), AppleRemoteEventCodes.kind(code),
+                                    AppleRemoteEventCodes.unpackWhen(packed),
+                                    AppleRemoteEventCodes.iRemotePipeLine(code));
+    }
+}
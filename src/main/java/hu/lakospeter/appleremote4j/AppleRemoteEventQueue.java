@@ -0,0 +1,169 @@
+package hu.lakospeter.appleremote4j;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, lock-free, single-producer/single-consumer queue of {@link AppleRemoteEvent}s, for consumers that want to
+ *  poll for events (e.g. once per frame in a game or render loop) instead of receiving callbacks on the thread of
+ *  an {@link AppleRemote}.
+ *
+ * <br><br>
+ *
+ * The producer is the {@link AppleRemote} that this queue was added to with
+ *  {@link AppleRemote#addEventQueue(AppleRemoteEventQueue)}, so a queue must not be added to more than one
+ *  AppleRemote. The consumer is the one thread that calls {@link #poll()} and {@link #drainTo(Collection)}.
+ *
+ * <br><br>
+ *
+ * If the consumer falls behind and the queue becomes full, new events are dropped and counted
+ *  (see {@link #getOverflowCount()}), so the events that the consumer sees are always the oldest ones.
+ *
+ * @author lakospeter
+ */
+public class AppleRemoteEventQueue {
+
+    /**
+     * The ring buffer that holds the events. Its length is a power of two.
+     */
+    private final AppleRemoteEvent[] buffer;
+
+    /**
+     * Mask that turns a position into an index of {@link #buffer}.
+     */
+    private final int mask;
+
+    /**
+     * The position of the next event to be taken by the consumer. Only the consumer writes it.
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * The position of the next event to be added by the producer. Only the producer writes it.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * The number of events that were dropped because the queue was full.
+     */
+    private final AtomicLong overflowCount = new AtomicLong();
+
+    /**
+     * The producer's cached copy of {@link #head}, to avoid reading the consumer's counter on every offer.
+     */
+    private long cachedHead;
+
+
+    /**
+     * Creates an empty queue.
+     *
+     * @param capacity The maximum number of events the queue can hold. It is rounded up to the next power of two.
+     * @throws IllegalArgumentException If the capacity is less than 1 or greater than 2^30.
+     */
+    public AppleRemoteEventQueue(final int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        buffer = new AppleRemoteEvent[1 << (32 - Integer.numberOfLeadingZeros(capacity - 1))];
+        mask = buffer.length - 1;
+    }
+
+    /**
+     * Adds an event to the queue, or drops it if the queue is full. Only the producer may call this method.
+     *
+     * @param event The event to be added.
+     * @return <code>true</code> if the event was added, <code>false</code> if it was dropped.
+     */
+    boolean offer(final AppleRemoteEvent event) {
+        final long currentTail = tail.get();
+        if (currentTail - cachedHead >= buffer.length) {
+            cachedHead = head.get();
+            if (currentTail - cachedHead >= buffer.length) {
+                overflowCount.lazySet(overflowCount.get() + 1);
+                return false;
+            }
+        }
+        buffer[(int) currentTail & mask] = event;
+        tail.lazySet(currentTail + 1);
+        return true;
+    }
+
+    /**
+     * Takes the oldest event from the queue. Only the consumer may call this method.
+     *
+     * @return The oldest event, or <code>null</code> if the queue is empty.
+     */
+    public AppleRemoteEvent poll() {
+        final long currentHead = head.get();
+        if (currentHead >= tail.get()) {
+            return null;
+        }
+        final int index = (int) currentHead & mask;
+        final AppleRemoteEvent event = buffer[index];
+        buffer[index] = null;
+        head.lazySet(currentHead + 1);
+        return event;
+    }
+
+    /**
+     * Takes all of the available events from the queue, and adds them to the specified collection in the order they
+     *  were fired. Only the consumer may call this method.
+     *
+     * @param events The collection the events are added to.
+     * @return The number of events taken.
+     */
+    public int drainTo(final Collection<? super AppleRemoteEvent> events) {
+        return drainTo(events, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Takes at most the specified number of events from the queue, and adds them to the specified collection in
+     *  the order they were fired. Only the consumer may call this method.
+     *
+     * @param events The collection the events are added to.
+     * @param maxEvents The maximum number of events to take.
+     * @return The number of events taken.
+     * @throws IllegalArgumentException If the maximum number of events is negative.
+     */
+    public int drainTo(final Collection<? super AppleRemoteEvent> events, final int maxEvents) {
+        if (maxEvents < 0) {
+            throw new IllegalArgumentException("Invalid maximum number of events: " + maxEvents);
+        }
+        final long currentHead = head.get();
+        final int count = (int) Math.min(tail.get() - currentHead, maxEvents);
+        for (int i = 0; i < count; i++) {
+            final int index = (int) (currentHead + i) & mask;
+            events.add(buffer[index]);
+            buffer[index] = null;
+        }
+        head.lazySet(currentHead + count);
+        return count;
+    }
+
+    /**
+     * Returns the number of events in the queue. The result is only an estimate if it is not called by the consumer.
+     *
+     * @return The number of events in the queue.
+     */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    /**
+     * Returns the maximum number of events the queue can hold.
+     *
+     * @return The capacity of the queue.
+     */
+    public int capacity() {
+        return buffer.length;
+    }
+
+    /**
+     * Returns the number of events that were dropped because the queue was full.
+     *
+     * @return The number of dropped events.
+     */
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+}
@@ -0,0 +1,377 @@
+package hu.lakospeter.appleremote4j;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The registry of the {@link AppleRemoteListener}s of an {@link AppleRemote}, built for many listeners that are added
+ *  and removed often. Listeners are notified in the order of their priorities (highest first), and in the order they
+ *  were added within the same priority.
+ *
+ * <br><br>
+ *
+ * Listeners are looked up by a hash map, and removed by leaving a hole in the registration list, which is compacted
+ *  when half of it is holes, so adding and removing a listener costs amortised constant time. Dispatching iterates a
+ *  snapshot of the registrations, which is only rebuilt (and sorted by priority) before the first dispatch after
+ *  a change, not on every change, so dispatching is a plain array scan.
+ *  Listeners can also be registered weakly: they are purged automatically after they are garbage collected.
+ *
+ * <br><br>
+ *
+ * The registry also tracks the interest of its listeners: the event codes whose listener methods are overridden by
+ *  at least one listener. The methods of a listener class are only inspected once, and the number of interested
+ *  listeners of every event code is updated when a listener is added or removed, so reading the interest never
+ *  rebuilds the snapshot.
+ *
+ * @author lakospeter
+ */
+final class AppleRemoteListenerRegistry {
+
+    /**
+     * The snapshot of an empty registry.
+     */
+    private static final Registration[] NO_REGISTRATIONS = new Registration[0];
+
+    /**
+     * The name of the {@link AppleRemoteListener} method of every event code, or <code>null</code> for the codes that
+     *  are never fired.
+     */
+    private static final String[] LISTENER_METHOD_NAMES = new String[AppleRemoteEventCodes.CODE_COUNT];
+
+    static {
+        listenerMethods(AppleRemote.Button.VOLUME_UP, "volumeUp");
+        listenerMethods(AppleRemote.Button.VOLUME_DOWN, "volumeDown");
+        listenerMethods(AppleRemote.Button.PREVIOUS, "previous");
+        listenerMethods(AppleRemote.Button.NEXT, "next");
+        LISTENER_METHOD_NAMES[AppleRemoteEventCodes.code(AppleRemote.Button.PLAY_PAUSE, AppleRemote.Kind.PRESSED)] =
+                "playPausePressed";
+        LISTENER_METHOD_NAMES[AppleRemoteEventCodes.code(AppleRemote.Button.PLAY_PAUSE, AppleRemote.Kind.HELD)] =
+                "playPauseHeld";
+        LISTENER_METHOD_NAMES[AppleRemoteEventCodes.code(AppleRemote.Button.MENU, AppleRemote.Kind.PRESSED)] =
+                "menuPressed";
+        LISTENER_METHOD_NAMES[AppleRemoteEventCodes.code(AppleRemote.Button.MENU, AppleRemote.Kind.HELD)] =
+                "menuHeld";
+        LISTENER_METHOD_NAMES[AppleRemoteEventCodes.code(AppleRemote.Button.SELECT, AppleRemote.Kind.PRESSED)] =
+                "selectPressed";
+    }
+
+    /**
+     * The interest mask of every listener class (see {@link #getInterestMask()}), computed once per class.
+     */
+    private static final ClassValue<Integer> INTEREST_MASKS = new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(final Class<?> type) {
+            return interestMask(type);
+        }
+    };
+
+    /**
+     * The registrations of the strongly registered listeners.
+     */
+    private final Map<AppleRemoteListener, Registration> strongRegistrations = new HashMap<>();
+
+    /**
+     * The registrations of the weakly registered listeners. The map does not keep the listeners reachable.
+     */
+    private final Map<AppleRemoteListener, Registration> weakRegistrations = new WeakHashMap<>();
+
+    /**
+     * The registrations in the order they were added, with <code>null</code> holes in place of the removed ones.
+     */
+    private final List<Registration> registrations = new ArrayList<>();
+
+    /**
+     * The number of <code>null</code> holes in {@link #registrations}.
+     */
+    private int holeCount;
+
+    /**
+     * The queue the weak registrations are enqueued to after their listeners are garbage collected.
+     */
+    private final ReferenceQueue<AppleRemoteListener> collectedListeners = new ReferenceQueue<>();
+
+    /**
+     * The registrations in the order they were added, or <code>null</code> if the registry was changed since the
+     *  snapshot was last built.
+     */
+    private volatile Registration[] snapshot = NO_REGISTRATIONS;
+
+    /**
+     * The number of registered listeners that are interested in every event code, indexed by event code.
+     */
+    private final int[] interestCounts = new int[AppleRemoteEventCodes.CODE_COUNT];
+
+    /**
+     * The interest mask of the registered listeners: bit <code>code</code> is set if
+     *  <code>interestCounts[code]</code> is positive.
+     */
+    private volatile int interestMask;
+
+
+    /**
+     * Adds a listener, if it is not registered already.
+     *
+     * @param listener The listener.
+     * @param priority The priority of the listener. Listeners with higher priorities are notified first.
+     * @param weak Whether the registry should only keep a weak reference to the listener.
+     * @return <code>true</code> if the listener was added.
+     */
+    synchronized boolean add(final AppleRemoteListener listener, final int priority, final boolean weak) {
+        purge();
+        if (strongRegistrations.containsKey(listener) || weakRegistrations.containsKey(listener)) {
+            return false;
+        }
+        final Registration registration = new Registration(listener, priority, weak ? collectedListeners : null,
+                                                           registrations.size(),
+                                                           INTEREST_MASKS.get(listener.getClass()));
+        (weak ? weakRegistrations : strongRegistrations).put(listener, registration);
+        registrations.add(registration);
+        updateInterest(registration.interestMask, 1);
+        snapshot = null;
+        return true;
+    }
+
+    /**
+     * Removes a listener, if it is registered.
+     *
+     * @param listener The listener.
+     * @return <code>true</code> if the listener was removed.
+     */
+    synchronized boolean remove(final AppleRemoteListener listener) {
+        purge();
+        Registration registration = strongRegistrations.remove(listener);
+        if (registration == null) {
+            registration = weakRegistrations.remove(listener);
+        }
+        if (registration == null) {
+            return false;
+        }
+        removeRegistration(registration);
+        return true;
+    }
+
+    /**
+     * Returns whether no listener is registered.
+     *
+     * @return <code>true</code> if the registry is empty.
+     */
+    synchronized boolean isEmpty() {
+        purge();
+        return registrations.size() == holeCount;
+    }
+
+    /**
+     * Returns the number of registered listeners.
+     *
+     * @return The number of listeners.
+     */
+    synchronized int size() {
+        purge();
+        return registrations.size() - holeCount;
+    }
+
+    /**
+     * Returns the registrations of the listeners, in the order of their priorities, and in the order they were added
+     *  within the same priority. The listener of a weak registration
+     *  may have been garbage collected since the snapshot was built, so {@link Registration#get()} must be checked.
+     *
+     * @return The snapshot of the registrations. It must not be modified.
+     */
+    Registration[] snapshot() {
+        final Reference<? extends AppleRemoteListener> collected = collectedListeners.poll();
+        final Registration[] currentSnapshot = snapshot;
+        if (currentSnapshot != null && collected == null) {
+            return currentSnapshot;
+        }
+        synchronized (this) {
+            if (collected != null) {
+                removeRegistration((Registration) collected);
+            }
+            purge();
+            if (snapshot == null) {
+                final Registration[] newSnapshot = new Registration[registrations.size() - holeCount];
+                int index = 0;
+                for (Registration registration : registrations) {
+                    if (registration != null) {
+                        newSnapshot[index++] = registration;
+                    }
+                }
+                // stable, so the listeners with the same priority stay in the order they were added
+                Arrays.sort(newSnapshot, (first, second) -> Integer.compare(second.priority, first.priority));
+                snapshot = newSnapshot;
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Returns the interest mask of the listeners: bit <code>code</code> is set if at least one listener overrides
+     *  the listener method of the event code. The weak registrations whose listeners were collected are purged first.
+     *
+     * @return The interest mask, or 0 if no listener is interested in any event.
+     */
+    int getInterestMask() {
+        final Reference<? extends AppleRemoteListener> collected = collectedListeners.poll();
+        if (collected != null) {
+            synchronized (this) {
+                removeRegistration((Registration) collected);
+                purge();
+            }
+        }
+        return interestMask;
+    }
+
+    /**
+     * Registers the listener method names of a button that supports pressing, and starting and stopping a hold.
+     *
+     * @param button The button.
+     * @param prefix The prefix of the method names of the button.
+     */
+    private static void listenerMethods(final AppleRemote.Button button, final String prefix) {
+        LISTENER_METHOD_NAMES[AppleRemoteEventCodes.code(button, AppleRemote.Kind.PRESSED)] = prefix + "Pressed";
+        LISTENER_METHOD_NAMES[AppleRemoteEventCodes.code(button, AppleRemote.Kind.HOLD_STARTED)] =
+                prefix + "HoldStarted";
+        LISTENER_METHOD_NAMES[AppleRemoteEventCodes.code(button, AppleRemote.Kind.HOLD_STOPPED)] =
+                prefix + "HoldStopped";
+    }
+
+    /**
+     * Computes the interest mask of a listener class: the event codes whose listener methods it overrides. If the
+     *  methods cannot be inspected, the class is considered to be interested in every event.
+     *
+     * @param type The listener class.
+     * @return The interest mask of the class.
+     */
+    private static int interestMask(final Class<?> type) {
+        int mask = 0;
+        for (int code = 0; code < LISTENER_METHOD_NAMES.length; code++) {
+            if (LISTENER_METHOD_NAMES[code] != null) {
+                try {
+                    if (type.getMethod(LISTENER_METHOD_NAMES[code], AppleRemoteEvent.class).getDeclaringClass()
+                            != AppleRemoteListener.class) {
+                        mask |= 1 << code;
+                    }
+                } catch (NoSuchMethodException | SecurityException ex) {
+                    mask |= 1 << code;
+                }
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Removes the weak registrations whose listeners were garbage collected. Must be called with the lock held.
+     */
+    private void purge() {
+        Reference<? extends AppleRemoteListener> reference;
+        while ((reference = collectedListeners.poll()) != null) {
+            removeRegistration((Registration) reference);
+        }
+    }
+
+    /**
+     * Removes a registration from the registration list, and compacts the list if half of it is holes. Must be called
+     *  with the lock held.
+     *
+     * @param registration The registration.
+     */
+    private void removeRegistration(final Registration registration) {
+        if (registration.index < 0) {
+            return;
+        }
+        registrations.set(registration.index, null);
+        registration.index = -1;
+        holeCount++;
+        updateInterest(registration.interestMask, -1);
+        snapshot = null;
+        if (holeCount > registrations.size() / 2) {
+            int newIndex = 0;
+            for (int index = 0; index < registrations.size(); index++) {
+                final Registration moved = registrations.get(index);
+                if (moved != null) {
+                    moved.index = newIndex;
+                    registrations.set(newIndex++, moved);
+                }
+            }
+            registrations.subList(newIndex, registrations.size()).clear();
+            holeCount = 0;
+        }
+    }
+
+    /**
+     * Adds a listener to or removes a listener from the interested listener counts of the event codes, and updates
+     *  the interest mask. Must be called with the lock held.
+     *
+     * @param mask The interest mask of the listener.
+     * @param delta 1 if the listener was added, -1 if it was removed.
+     */
+    private void updateInterest(final int mask, final int delta) {
+        int newInterestMask = interestMask;
+        for (int code = 0; code < interestCounts.length; code++) {
+            if ((mask & 1 << code) != 0) {
+                interestCounts[code] += delta;
+                if (interestCounts[code] > 0) {
+                    newInterestMask |= 1 << code;
+                } else {
+                    newInterestMask &= ~(1 << code);
+                }
+            }
+        }
+        interestMask = newInterestMask;
+    }
+
+    /**
+     * The registration of a listener. It keeps the listener strongly reachable, unless it is a weak registration.
+     */
+    static final class Registration extends WeakReference<AppleRemoteListener> {
+
+        /**
+         * The listener of a strong registration, or <code>null</code> for a weak registration.
+         */
+        private final AppleRemoteListener strongListener;
+
+        /**
+         * The priority of the listener.
+         */
+        private final int priority;
+
+        /**
+         * The interest mask of the class of the listener.
+         */
+        private final int interestMask;
+
+        /**
+         * The index of this registration in the registration list, or -1 if it was removed. Guarded by the lock of
+         *  the registry.
+         */
+        private int index;
+
+
+        /**
+         * Creates a registration.
+         *
+         * @param listener The listener.
+         * @param priority The priority of the listener.
+         * @param queue The queue to enqueue the registration to after the listener is garbage collected, or
+         *          <code>null</code> for a strong registration.
+         * @param index The index of the registration in the registration list.
+         * @param interestMask The interest mask of the class of the listener.
+         */
+        private Registration(final AppleRemoteListener listener, final int priority,
+                             final ReferenceQueue<AppleRemoteListener> queue, final int index,
+                             final int interestMask) {
+            super(listener, queue);
+            this.strongListener = queue == null ? listener : null;
+            this.priority = priority;
+            this.index = index;
+            this.interestMask = interestMask;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package hu.lakospeter.appleremote4j;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Live usage counters of an {@link AppleRemote}: the number of events of every (button, kind) pair in rolling time
+ *  windows of up to an hour (see {@link AppleRemote#getLiveCounters()}), e.g. for real-time dashboards.
+ *
+ * <br><br>
+ *
+ * The counts are kept in two rings of time buckets: 60 one-second buckets for the windows of up to a minute, and
+ *  60 one-minute buckets for the longer windows, so a window is rounded up to whole seconds or whole minutes, and it
+ *  includes the current (partial) second or minute. The counters are updated by the thread that dispatches the
+ *  events, without locking, and they can be read from any thread without blocking the dispatching: every read returns
+ *  the counts of a consistent moment, between two events.
+ *
+ * @author lakospeter
+ */
+public final class AppleRemoteLiveCounters {
+
+    /**
+     * The longest window the counters can be queried for, in milliseconds.
+     */
+    public static final long MAX_WINDOW_MILLIS = 60L * 60 * 1000;
+
+    /**
+     * The number of buckets in a ring.
+     */
+    private static final int BUCKET_COUNT = 60;
+
+    /**
+     * The buckets of the windows of up to a minute.
+     */
+    private final Ring seconds = new Ring(1000);
+
+    /**
+     * The buckets of the windows of more than a minute.
+     */
+    private final Ring minutes = new Ring(60 * 1000);
+
+    /**
+     * Incremented before and after every update, so it is odd while an update is in progress, and readers can detect
+     *  that an update happened while they were reading.
+     */
+    private final AtomicLong version = new AtomicLong();
+
+
+    /**
+     * Creates empty counters.
+     */
+    AppleRemoteLiveCounters() {
+    }
+
+    /**
+     * Counts an event. Must be called by the thread that dispatches the events.
+     *
+     * @param code The event code of the event (see {@link AppleRemoteEventCodes}).
+     * @param when The time of the event, in milliseconds since the epoch.
+     */
+    void record(final int code, final long when) {
+        version.incrementAndGet();
+        seconds.add(code, when);
+        minutes.add(code, when);
+        version.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of events of every event code in the specified window.
+     *
+     * @param windowMillis The length of the window that ends now, in milliseconds.
+     * @return The counts, indexed by event code (see {@link AppleRemoteEventCodes}).
+     * @throws IllegalArgumentException If the window is not positive, or longer than {@link #MAX_WINDOW_MILLIS}.
+     */
+    public long[] getCounts(final long windowMillis) {
+        return getCounts(windowMillis, System.currentTimeMillis());
+    }
+
+    /**
+     * Returns the number of events of every event code in the specified window that ends at the specified time.
+     *
+     * @param windowMillis The length of the window, in milliseconds.
+     * @param now The end of the window, in milliseconds since the epoch.
+     * @return The counts, indexed by event code (see {@link AppleRemoteEventCodes}).
+     * @throws IllegalArgumentException If the window is not positive, or longer than {@link #MAX_WINDOW_MILLIS}.
+     */
+    long[] getCounts(final long windowMillis, final long now) {
+        if (windowMillis <= 0 || windowMillis > MAX_WINDOW_MILLIS) {
+            throw new IllegalArgumentException("Invalid window: " + windowMillis);
+        }
+        final Ring ring = windowMillis <= BUCKET_COUNT * seconds.bucketMillis ? seconds : minutes;
+        final long[] counts = new long[AppleRemoteEventCodes.CODE_COUNT];
+        long before;
+        do {
+            while (((before = version.get()) & 1) != 0) {
+                Thread.yield();
+            }
+            Arrays.fill(counts, 0);
+            ring.sum(counts, now, windowMillis);
+        } while (version.get() != before);
+        return counts;
+    }
+
+    /**
+     * Returns the number of events of a (button, kind) pair in the specified window.
+     *
+     * @param button The button.
+     * @param kind The kind of the events.
+     * @param windowMillis The length of the window that ends now, in milliseconds.
+     * @return The number of events.
+     * @throws IllegalArgumentException If the window is not positive, or longer than {@link #MAX_WINDOW_MILLIS}.
+     */
+    public long getCount(final AppleRemote.Button button, final AppleRemote.Kind kind, final long windowMillis) {
+        return getCounts(windowMillis)[AppleRemoteEventCodes.code(button, kind)];
+    }
+
+    /**
+     * Returns the number of events of a button (of any kind) in the specified window.
+     *
+     * @param button The button.
+     * @param windowMillis The length of the window that ends now, in milliseconds.
+     * @return The number of events.
+     * @throws IllegalArgumentException If the window is not positive, or longer than {@link #MAX_WINDOW_MILLIS}.
+     */
+    public long getCount(final AppleRemote.Button button, final long windowMillis) {
+        final long[] counts = getCounts(windowMillis);
+        long count = 0;
+        for (AppleRemote.Kind kind : AppleRemote.Kind.values()) {
+            count += counts[AppleRemoteEventCodes.code(button, kind)];
+        }
+        return count;
+    }
+
+    /**
+     * Returns the rate of the events of a (button, kind) pair in the specified window.
+     *
+     * @param button The button.
+     * @param kind The kind of the events.
+     * @param windowMillis The length of the window that ends now, in milliseconds.
+     * @return The number of events per second.
+     * @throws IllegalArgumentException If the window is not positive, or longer than {@link #MAX_WINDOW_MILLIS}.
+     */
+    public double getRate(final AppleRemote.Button button, final AppleRemote.Kind kind, final long windowMillis) {
+        return getCount(button, kind, windowMillis) * 1000.0 / windowMillis;
+    }
+
+    /**
+     * Returns the rate of the holds (the hold starts, and the events of the buttons that only report being held) of
+     *  all of the buttons in the specified window.
+     *
+     * @param windowMillis The length of the window that ends now, in milliseconds.
+     * @return The number of holds per second.
+     * @throws IllegalArgumentException If the window is not positive, or longer than {@link #MAX_WINDOW_MILLIS}.
+     */
+    public double getHoldRate(final long windowMillis) {
+        final long[] counts = getCounts(windowMillis);
+        long count = 0;
+        for (AppleRemote.Button button : AppleRemote.Button.values()) {
+            count += counts[AppleRemoteEventCodes.code(button, AppleRemote.Kind.HOLD_STARTED)];
+            count += counts[AppleRemoteEventCodes.code(button, AppleRemote.Kind.HELD)];
+        }
+        return count * 1000.0 / windowMillis;
+    }
+
+    /**
+     * A ring of time buckets, each of which holds the counts of every event code in a period of time.
+     */
+    private static final class Ring {
+
+        /**
+         * The length of the period of a bucket, in milliseconds.
+         */
+        private final long bucketMillis;
+
+        /**
+         * The period (the time divided by the bucket length) every bucket holds the counts of, or -1.
+         */
+        private final AtomicLongArray periods = new AtomicLongArray(BUCKET_COUNT);
+
+        /**
+         * The counts of every bucket, indexed by <code>bucket * CODE_COUNT + code</code>.
+         */
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT * AppleRemoteEventCodes.CODE_COUNT);
+
+
+        /**
+         * Creates an empty ring.
+         *
+         * @param bucketMillis The length of the period of a bucket, in milliseconds.
+         */
+        private Ring(final long bucketMillis) {
+            this.bucketMillis = bucketMillis;
+            for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+                periods.set(bucket, -1);
+            }
+        }
+
+        /**
+         * Counts an event in the bucket of its period, and clears the bucket first if it holds an older period.
+         *  The event is ignored if the bucket holds a newer period. Must only be called by one thread at a time.
+         *
+         * @param code The event code of the event.
+         * @param when The time of the event, in milliseconds since the epoch.
+         */
+        private void add(final int code, final long when) {
+            final long period = when / bucketMillis;
+            final int bucket = (int) (period % BUCKET_COUNT);
+            final int offset = bucket * AppleRemoteEventCodes.CODE_COUNT;
+            final long bucketPeriod = periods.get(bucket);
+            if (bucketPeriod > period) {
+                // the clock went back by more than the length of the ring
+                return;
+            }
+            if (bucketPeriod != period) {
+                for (int index = offset; index < offset + AppleRemoteEventCodes.CODE_COUNT; index++) {
+                    counts.lazySet(index, 0);
+                }
+                periods.lazySet(bucket, period);
+            }
+            counts.lazySet(offset + code, counts.get(offset + code) + 1);
+        }
+
+        /**
+         * Adds the counts of the buckets of a window to an array.
+         *
+         * @param sums The counts of every event code, to add to.
+         * @param now The end of the window, in milliseconds since the epoch.
+         * @param windowMillis The length of the window, in milliseconds. It is rounded up to whole buckets.
+         */
+        private void sum(final long[] sums, final long now, final long windowMillis) {
+            final long nowPeriod = now / bucketMillis;
+            final long periodCount = Math.min((windowMillis + bucketMillis - 1) / bucketMillis, BUCKET_COUNT);
+            for (long period = nowPeriod - periodCount + 1; period <= nowPeriod; period++) {
+                final int bucket = (int) (period % BUCKET_COUNT);
+                if (periods.get(bucket) == period) {
+                    final int offset = bucket * AppleRemoteEventCodes.CODE_COUNT;
+                    for (int code = 0; code < AppleRemoteEventCodes.CODE_COUNT; code++) {
+                        sums[code] += counts.get(offset + code);
+                    }
+                }
+            }
+        }
+    }
+}
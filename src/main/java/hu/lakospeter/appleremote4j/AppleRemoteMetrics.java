@@ -0,0 +1,275 @@
+package hu.lakospeter.appleremote4j;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * The operational metrics of an {@link AppleRemote} (see {@link AppleRemote#getMetrics()}): whether iremotepipe is
+ *  alive, the numbers of events, malformed lines and listeners, and the time spent dispatching events.
+ *
+ * <br><br>
+ *
+ * The metrics can be published as a JMX MBean with {@link #registerMBean()}, or served in the Prometheus text format
+ *  by an {@link AppleRemotePrometheusExporter}. Every counter is only updated by one thread at a time (the thread
+ *  that reads iremotepipe's output, or the thread that holds the dispatch lock), without a memory fence, and the
+ *  gauges are only computed when the metrics are read.
+ *
+ * @author lakospeter
+ */
+public final class AppleRemoteMetrics implements AppleRemoteMetricsMBean {
+
+    /**
+     * The domain of the JMX object names of the metrics.
+     */
+    public static final String JMX_DOMAIN = "hu.lakospeter.appleremote4j";
+
+    /**
+     * The index of the number of parsed events in {@link #counters}.
+     */
+    private static final int PARSED_EVENTS = 0;
+
+    /**
+     * The index of the number of synthesized events in {@link #counters}.
+     */
+    private static final int SYNTHESIZED_EVENTS = 1;
+
+    /**
+     * The index of the number of malformed lines in {@link #counters}.
+     */
+    private static final int MALFORMED_LINES = 2;
+
+    /**
+     * The index of the number of lines with an unknown type in {@link #counters}.
+     */
+    private static final int UNKNOWN_LINES = 3;
+
+    /**
+     * The index of the number of bytes read in {@link #counters}.
+     */
+    private static final int BYTES_READ = 4;
+
+    /**
+     * The index of the total dispatch time in {@link #counters}.
+     */
+    private static final int DISPATCH_NANOS_TOTAL = 5;
+
+    /**
+     * The index of the maximum dispatch time in {@link #counters}.
+     */
+    private static final int DISPATCH_NANOS_MAX = 6;
+
+    /**
+     * The index of the number of events dropped because nothing was interested in them in {@link #counters}.
+     */
+    private static final int DROPPED_EVENTS = 7;
+
+    /**
+     * The AppleRemote whose metrics these are.
+     */
+    private final AppleRemote appleRemote;
+
+    /**
+     * The counters, indexed by the constants of this class.
+     */
+    private final AtomicLongArray counters = new AtomicLongArray(8);
+
+    /**
+     * The name the MBean was registered with, or <code>null</code>.
+     */
+    private ObjectName objectName;
+
+
+    /**
+     * Creates the metrics of an AppleRemote.
+     *
+     * @param appleRemote The AppleRemote whose metrics these are.
+     */
+    AppleRemoteMetrics(final AppleRemote appleRemote) {
+        this.appleRemote = appleRemote;
+    }
+
+    /**
+     * Returns the name of the AppleRemote whose metrics these are (the name of its {@link Thread}).
+     *
+     * @return The name of the AppleRemote.
+     */
+    public String getName() {
+        return appleRemote.getName();
+    }
+
+    /**
+     * Registers these metrics in the platform MBean server, as
+     *  <code>hu.lakospeter.appleremote4j:type=AppleRemote,name=&lt;name of the AppleRemote&gt;</code>.
+     *
+     * @return The name of the MBean.
+     * @throws JMException If the MBean could not be registered.
+     */
+    public synchronized ObjectName registerMBean() throws JMException {
+        if (objectName == null) {
+            final ObjectName name = new ObjectName(JMX_DOMAIN + ":type=AppleRemote,name="
+                                                   + ObjectName.quote(getName()));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            objectName = name;
+        }
+        return objectName;
+    }
+
+    /**
+     * Unregisters these metrics from the platform MBean server, if they are registered.
+     *
+     * @throws JMException If the MBean could not be unregistered.
+     */
+    public synchronized void unregisterMBean() throws JMException {
+        if (objectName != null) {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            objectName = null;
+        }
+    }
+
+    @Override
+    public boolean isIRemotePipeAlive() {
+        return appleRemote.isIRemotePipeAlive();
+    }
+
+    @Override
+    public boolean isSuspended() {
+        return appleRemote.isSuspended();
+    }
+
+    @Override
+    public long getEventCount() {
+        return getParsedEventCount() + getSynthesizedEventCount();
+    }
+
+    @Override
+    public long getParsedEventCount() {
+        return counters.get(PARSED_EVENTS);
+    }
+
+    @Override
+    public long getSynthesizedEventCount() {
+        return counters.get(SYNTHESIZED_EVENTS);
+    }
+
+    @Override
+    public long getDroppedEventCount() {
+        return counters.get(DROPPED_EVENTS);
+    }
+
+    @Override
+    public long getMalformedLineCount() {
+        return counters.get(MALFORMED_LINES);
+    }
+
+    @Override
+    public long getUnknownLineCount() {
+        return counters.get(UNKNOWN_LINES);
+    }
+
+    @Override
+    public long getBytesRead() {
+        return counters.get(BYTES_READ);
+    }
+
+    @Override
+    public int getListenerCount() {
+        return appleRemote.getListenerCount();
+    }
+
+    @Override
+    public long getQueueOverflowCount() {
+        return appleRemote.getQueueOverflowCount();
+    }
+
+    @Override
+    public long getDispatchTimeTotalNanos() {
+        return counters.get(DISPATCH_NANOS_TOTAL);
+    }
+
+    @Override
+    public long getDispatchTimeMaxNanos() {
+        return counters.get(DISPATCH_NANOS_MAX);
+    }
+
+    /**
+     * Counts a dispatched event. Must be called with the dispatch lock of the AppleRemote held.
+     *
+     * @param bytes The number of bytes the event was parsed from, or 0 if it was synthesized.
+     * @param nanos The time spent dispatching the event, in nanoseconds.
+     */
+    void dispatched(final int bytes, final long nanos) {
+        increment(bytes > 0 ? PARSED_EVENTS : SYNTHESIZED_EVENTS, 1);
+        increment(DISPATCH_NANOS_TOTAL, nanos);
+        if (nanos > counters.get(DISPATCH_NANOS_MAX)) {
+            counters.lazySet(DISPATCH_NANOS_MAX, nanos);
+        }
+    }
+
+    /**
+     * Counts an event that was dropped because nothing was interested in it. Must be called with the dispatch lock
+     *  of the AppleRemote held.
+     */
+    void dropped() {
+        increment(DROPPED_EVENTS, 1);
+    }
+
+    /**
+     * Counts a malformed line. Must be called by the thread that reads iremotepipe's output.
+     */
+    void malformedLine() {
+        increment(MALFORMED_LINES, 1);
+    }
+
+    /**
+     * Counts a line with an unknown type. Must be called by the thread that reads iremotepipe's output.
+     */
+    void unknownLine() {
+        increment(UNKNOWN_LINES, 1);
+    }
+
+    /**
+     * Counts the bytes of a read. Must be called by the thread that reads iremotepipe's output.
+     *
+     * @param bytes The number of bytes read.
+     */
+    void read(final int bytes) {
+        increment(BYTES_READ, bytes);
+    }
+
+    /**
+     * Increments a counter that is only updated by one thread at a time.
+     *
+     * @param counter The index of the counter.
+     * @param delta The value to add to the counter.
+     */
+    private void increment(final int counter, final long delta) {
+        counters.lazySet(counter, counters.get(counter) + delta);
+    }
+
+    /**
+     * Returns a string representation of these AppleRemoteMetrics, with every metric the MBean exposes.
+     *
+     * @return A string representation of these AppleRemoteMetrics.
+     */
+    @Override
+    public String toString() {
+        return "AppleRemoteMetrics{" +
+                "name=" + getName() +
+                ", iRemotePipeAlive=" + isIRemotePipeAlive() +
+                ", suspended=" + isSuspended() +
+                ", eventCount=" + getEventCount() +
+                ", parsedEventCount=" + getParsedEventCount() +
+                ", synthesizedEventCount=" + getSynthesizedEventCount() +
+                ", droppedEventCount=" + getDroppedEventCount() +
+                ", malformedLineCount=" + getMalformedLineCount() +
+                ", unknownLineCount=" + getUnknownLineCount() +
+                ", bytesRead=" + getBytesRead() +
+                ", listenerCount=" + getListenerCount() +
+                ", queueOverflowCount=" + getQueueOverflowCount() +
+                ", dispatchTimeTotalNanos=" + getDispatchTimeTotalNanos() +
+                ", dispatchTimeMaxNanos=" + getDispatchTimeMaxNanos() +
+                '}';
+    }
+}
@@ -0,0 +1,102 @@
+package hu.lakospeter.appleremote4j;
+
+/**
+ * The JMX management interface of the metrics of an {@link AppleRemote} (see {@link AppleRemoteMetrics}).
+ *
+ * @author lakospeter
+ */
+public interface AppleRemoteMetricsMBean {
+
+    /**
+     * Returns whether the iremotepipe process of the AppleRemote is running.
+     *
+     * @return <code>true</code> if iremotepipe is alive.
+     */
+    boolean isIRemotePipeAlive();
+
+    /**
+     * Returns whether the AppleRemote suspended iremotepipe, because nothing was interested in any event.
+     *
+     * @return <code>true</code> if the AppleRemote is suspended.
+     */
+    boolean isSuspended();
+
+    /**
+     * Returns the number of events dispatched, parsed or synthesized.
+     *
+     * @return The number of events.
+     */
+    long getEventCount();
+
+    /**
+     * Returns the number of events parsed from iremotepipe's output.
+     *
+     * @return The number of parsed events.
+     */
+    long getParsedEventCount();
+
+    /**
+     * Returns the number of events synthesized by the AppleRemote (e.g. the hold stops of lost holds).
+     *
+     * @return The number of synthesized events.
+     */
+    long getSynthesizedEventCount();
+
+    /**
+     * Returns the number of events that were dropped before they were created, because no listener, handler, queue,
+     *  publisher or sequence was interested in them. They are also counted as parsed or synthesized events.
+     *
+     * @return The number of dropped events.
+     */
+    long getDroppedEventCount();
+
+    /**
+     * Returns the number of lines of iremotepipe's output that could not be parsed.
+     *
+     * @return The number of malformed lines.
+     */
+    long getMalformedLineCount();
+
+    /**
+     * Returns the number of lines of iremotepipe's output with an event type that appleremote4j does not know.
+     *
+     * @return The number of lines with an unknown type.
+     */
+    long getUnknownLineCount();
+
+    /**
+     * Returns the number of bytes read from iremotepipe's output.
+     *
+     * @return The number of bytes read.
+     */
+    long getBytesRead();
+
+    /**
+     * Returns the number of {@link AppleRemoteListener}s of the AppleRemote.
+     *
+     * @return The number of listeners.
+     */
+    int getListenerCount();
+
+    /**
+     * Returns the number of events dropped by the polling queues of the AppleRemote because they were full.
+     *
+     * @return The number of events dropped by the queues that are currently added.
+     */
+    long getQueueOverflowCount();
+
+    /**
+     * Returns the total time spent dispatching events.
+     *
+     * @return The total dispatch time, in nanoseconds.
+     */
+    long getDispatchTimeTotalNanos();
+
+    /**
+     * Returns the longest time spent dispatching one event.
+     *
+     * @return The maximum dispatch time, in nanoseconds.
+     */
+    long getDispatchTimeMaxNanos();
+
+}
@@ -0,0 +1,223 @@
+package hu.lakospeter.appleremote4j;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Lightweight HTTP endpoint that serves the {@link AppleRemoteMetrics} of one or more {@link AppleRemote}s in the
+ *  Prometheus text format at <code>/metrics</code>, using the HTTP server that is built into the JDK.
+ *
+ * <br><br>
+ *
+ * The metrics are only rendered when they are scraped. The samples of every AppleRemote are labelled with its name,
+ *  e.g. <code>appleremote4j_events_total{remote="Thread-0"} 42</code>. The server keeps running until the exporter is
+ *  closed.
+ *
+ * @author lakospeter
+ */
+public class AppleRemotePrometheusExporter implements Closeable {
+
+    /**
+     * The content type of the Prometheus text format.
+     */
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    /**
+     * The metric families that are exported.
+     */
+    private static final List<Family> FAMILIES = Collections.unmodifiableList(Arrays.asList(
+            new Family("appleremote4j_iremotepipe_up", "gauge",
+                       "Whether the iremotepipe process is running.",
+                       metrics -> metrics.isIRemotePipeAlive() ? 1 : 0),
+            new Family("appleremote4j_suspended", "gauge",
+                       "Whether iremotepipe is suspended because nothing is interested in any event.",
+                       metrics -> metrics.isSuspended() ? 1 : 0),
+            new Family("appleremote4j_parsed_events_total", "counter",
+                       "Events parsed from iremotepipe's output.",
+                       AppleRemoteMetrics::getParsedEventCount),
+            new Family("appleremote4j_synthesized_events_total", "counter",
+                       "Events synthesized by appleremote4j, e.g. the hold stops of lost holds.",
+                       AppleRemoteMetrics::getSynthesizedEventCount),
+            new Family("appleremote4j_dropped_events_total", "counter",
+                       "Events dropped because nothing was interested in them.",
+                       AppleRemoteMetrics::getDroppedEventCount),
+            new Family("appleremote4j_malformed_lines_total", "counter",
+                       "Lines of iremotepipe's output that could not be parsed.",
+                       AppleRemoteMetrics::getMalformedLineCount),
+            new Family("appleremote4j_unknown_lines_total", "counter",
+                       "Lines of iremotepipe's output with an unknown event type.",
+                       AppleRemoteMetrics::getUnknownLineCount),
+            new Family("appleremote4j_read_bytes_total", "counter",
+                       "Bytes read from iremotepipe's output.",
+                       AppleRemoteMetrics::getBytesRead),
+            new Family("appleremote4j_listeners", "gauge",
+                       "AppleRemoteListeners of the remote.",
+                       AppleRemoteMetrics::getListenerCount),
+            new Family("appleremote4j_queue_overflows_total", "counter",
+                       "Events dropped by full polling queues.",
+                       AppleRemoteMetrics::getQueueOverflowCount),
+            new Family("appleremote4j_dispatch_seconds_total", "counter",
+                       "Time spent dispatching events.",
+                       metrics -> metrics.getDispatchTimeTotalNanos() / 1e9),
+            new Family("appleremote4j_dispatch_seconds_max", "gauge",
+                       "Longest time spent dispatching one event.",
+                       metrics -> metrics.getDispatchTimeMaxNanos() / 1e9)));
+
+    /**
+     * The metrics that are exported.
+     */
+    private final List<AppleRemoteMetrics> metrics;
+
+    /**
+     * The HTTP server of the endpoint.
+     */
+    private final HttpServer server;
+
+
+    /**
+     * Starts serving the metrics of the specified AppleRemotes.
+     *
+     * @param address The address to listen on (e.g. <code>new InetSocketAddress("localhost", 9400)</code>).
+     * @param metrics The metrics to export.
+     * @throws IOException If the HTTP server could not be started.
+     */
+    public AppleRemotePrometheusExporter(final InetSocketAddress address, final AppleRemoteMetrics... metrics)
+            throws IOException {
+        this.metrics = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(metrics)));
+        server = HttpServer.create(address, 0);
+        server.createContext("/metrics", this::handle);
+        server.start();
+    }
+
+    /**
+     * Returns the address the endpoint listens on.
+     *
+     * @return The address of the HTTP server.
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Renders the metrics in the Prometheus text format.
+     *
+     * @return The metrics, one sample per line.
+     */
+    public String render() {
+        final StringBuilder text = new StringBuilder();
+        for (Family family : FAMILIES) {
+            text.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            text.append("# TYPE ").append(family.name).append(' ').append(family.type).append('\n');
+            for (AppleRemoteMetrics remoteMetrics : metrics) {
+                text.append(family.name).append("{remote=\"").append(escape(remoteMetrics.getName())).append("\"} ");
+                final double value = family.value.applyAsDouble(remoteMetrics);
+                if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+                    text.append((long) value);
+                } else {
+                    text.append(value);
+                }
+                text.append('\n');
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Stops the HTTP server.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    /**
+     * Answers a request of the endpoint.
+     *
+     * @param exchange The request and its response.
+     * @throws IOException If the response could not be sent.
+     */
+    private void handle(final HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod()) && !"HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            final byte[] body = render().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream responseBody = exchange.getResponseBody()) {
+                responseBody.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Escapes a label value of the Prometheus text format.
+     *
+     * @param value The label value.
+     * @return The escaped label value.
+     */
+    private static String escape(final String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * A metric family: its name, type and help text, and how its value is read from the metrics of an AppleRemote.
+     */
+    private static final class Family {
+
+        /**
+         * The name of the metric.
+         */
+        private final String name;
+
+        /**
+         * The type of the metric (<code>counter</code> or <code>gauge</code>).
+         */
+        private final String type;
+
+        /**
+         * The help text of the metric.
+         */
+        private final String help;
+
+        /**
+         * Reads the value of the metric from the metrics of an AppleRemote.
+         */
+        private final ToDoubleFunction<AppleRemoteMetrics> value;
+
+
+        /**
+         * Simple constructor that gives values to fields.
+         *
+         * @param name The name of the metric.
+         * @param type The type of the metric.
+         * @param help The help text of the metric.
+         * @param value Reads the value of the metric from the metrics of an AppleRemote.
+         */
+        private Family(final String name, final String type, final String help,
+                       final ToDoubleFunction<AppleRemoteMetrics> value) {
+            this.name = name;
+            this.type = type;
+            this.help = help;
+            this.value = value;
+        }
+    }
+}
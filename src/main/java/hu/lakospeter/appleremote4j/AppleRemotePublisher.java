@@ -0,0 +1,147 @@
+package hu.lakospeter.appleremote4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Publishes the events of an {@link AppleRemote} to other processes (JVMs) on the same host, through a ring in
+ *  a shared memory-mapped file.
+ *
+ * <br><br>
+ *
+ * Only one process can own the IR receiver, so only that process should create an AppleRemote and start
+ *  iremotepipe. It adds an AppleRemotePublisher to its AppleRemote with
+ *  {@link AppleRemote#addPublisher(AppleRemotePublisher)}, and every other process attaches an
+ *  {@link AppleRemoteSubscriber} to the same file. Publishing an event is a few memory writes: there are no sockets,
+ *  no copying and no waiting for the subscribers.
+ *
+ * <br><br>
+ *
+ * Publishing is lossy for slow subscribers: a subscriber that falls more than a whole ring behind loses the
+ *  overwritten events (see {@link AppleRemoteSubscriber#getLostCount()}).
+ *
+ * <br><br>
+ *
+ * A publisher that is no longer needed should be removed from its AppleRemote and closed. The ring file is left in
+ *  place, so a new publisher can continue it.
+ *
+ * @author lakospeter
+ */
+public class AppleRemotePublisher implements Closeable {
+
+    /**
+     * The default number of events the ring holds.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * The shared ring the events are written to, or <code>null</code> after the publisher was closed.
+     */
+    private volatile SharedEventRing ring;
+
+    /**
+     * The number of events the ring holds.
+     */
+    private final int capacity;
+
+    /**
+     * The number of events published before the publisher was closed.
+     */
+    private volatile long publishedCountWhenClosed;
+
+
+    /**
+     * Creates or opens the ring file with the default capacity.
+     *
+     * @param file The ring file. Its subscribers have to attach to the same file.
+     * @throws IOException If the file cannot be created or mapped.
+     */
+    public AppleRemotePublisher(final Path file) throws IOException {
+        this(file, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates or opens the ring file. If it already holds a ring of the same capacity (e.g. the publishing process
+     *  was restarted), the attached subscribers continue to receive events from it. Otherwise a new ring is
+     *  initialized in the file, and the attached subscribers map it again.
+     *
+     * @param file The ring file. Its subscribers have to attach to the same file.
+     * @param capacity The number of events the ring holds. It is rounded up to the next power of two.
+     * @throws IOException If the file cannot be created or mapped.
+     * @throws IllegalArgumentException If the capacity is less than 1 or greater than 2^24.
+     */
+    public AppleRemotePublisher(final Path file, final int capacity) throws IOException {
+        ring = SharedEventRing.openForWriting(file, capacity);
+        this.capacity = ring.capacity();
+    }
+
+    /**
+     * Writes an event to the ring. Only the {@link AppleRemote} this publisher was added to may call this method,
+     *  so a publisher must not be added to more than one AppleRemote.
+     *
+     * @param code The event code.
+     * @param when The time of the event, in milliseconds since the epoch.
+     */
+    void publish(final int code, final long when) {
+        final SharedEventRing currentRing = ring;
+        if (currentRing != null) {
+            currentRing.write(AppleRemoteEventCodes.pack(code, when));
+        }
+    }
+
+    /**
+     * Returns the number of events published to the ring so far.
+     *
+     * @return The number of published events.
+     */
+    public long getPublishedCount() {
+        final SharedEventRing currentRing = ring;
+        return currentRing != null ? currentRing.writeSequence() : publishedCountWhenClosed;
+    }
+
+    /**
+     * Returns the number of events the ring holds.
+     *
+     * @return The capacity of the ring.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Closes this publisher: the events of its AppleRemote are not published anymore, and the mapping of the ring
+     *  file is released (when it is garbage collected, as Java 8 cannot unmap a file explicitly). The subscribers
+     *  stay attached, and receive the events of the next publisher of the same file.
+     */
+    @Override
+    public void close() {
+        final SharedEventRing currentRing = ring;
+        if (currentRing != null) {
+            publishedCountWhenClosed = currentRing.writeSequence();
+            ring = null;
+        }
+    }
+
+    /**
+     * Starts an {@link AppleRemote} that publishes its events to a ring file, until the process is killed.
+     *
+     * @param args The ring file, optionally followed by the iremotepipe command (e.g. the command of
+     *          {@link IRemotePipeEmulator}). Without a command, the default iremotepipe is started.
+     * @throws Exception If the ring file cannot be created.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: AppleRemotePublisher RING_FILE [IREMOTEPIPE_COMMAND...]");
+            return;
+        }
+        final AppleRemotePublisher publisher = new AppleRemotePublisher(Paths.get(args[0]));
+        final AppleRemote appleRemote = args.length > 1
+                ? new AppleRemote(Arrays.asList(args).subList(1, args.length))
+                : new AppleRemote();
+        appleRemote.addPublisher(publisher);
+        appleRemote.join();
+    }
+}
@@ -0,0 +1,146 @@
+package hu.lakospeter.appleremote4j;
+
+import java.util.Arrays;
+
+/**
+ * An immutable sequence of {@link AppleRemote} events (e.g. Menu, Menu, Play/Pause pressed), with the maximum time
+ *  between two consecutive events of the sequence, to be used as a shortcut or a service code
+ *  (see {@link AppleRemote#addSequence(AppleRemoteSequence, AppleRemoteEventHandler)}).
+ *
+ * <br><br>
+ *
+ * A sequence only matches if its events follow each other without any other event between them.
+ *
+ * @author lakospeter
+ */
+public final class AppleRemoteSequence {
+
+    /**
+     * The event codes of the sequence (see {@link AppleRemoteEventCodes}).
+     */
+    private final int[] codes;
+
+    /**
+     * The maximum time between two consecutive events of the sequence, in milliseconds.
+     */
+    private final long maxGapMillis;
+
+
+    /**
+     * Creates a sequence of events.
+     *
+     * @param maxGapMillis The maximum time between two consecutive events of the sequence, in milliseconds.
+     * @param codes The event codes of the sequence (see {@link AppleRemoteEventCodes#code(AppleRemote.Button,
+     *          AppleRemote.Kind)}).
+     * @throws IllegalArgumentException If the sequence is empty, an event code is never fired, or the maximum time is
+     *          not positive.
+     */
+    public AppleRemoteSequence(final long maxGapMillis, final int... codes) {
+        if (codes.length == 0) {
+            throw new IllegalArgumentException("The sequence is empty.");
+        }
+        if (maxGapMillis <= 0) {
+            throw new IllegalArgumentException("Invalid maximum time between events: " + maxGapMillis);
+        }
+        for (int code : codes) {
+            if (!AppleRemoteEventCodes.isValid(code)) {
+                throw new IllegalArgumentException("Invalid event code: " + code);
+            }
+        }
+        this.codes = codes.clone();
+        this.maxGapMillis = maxGapMillis;
+    }
+
+    /**
+     * Creates a sequence of button presses.
+     *
+     * @param maxGapMillis The maximum time between two consecutive presses of the sequence, in milliseconds.
+     * @param buttons The buttons that have to be pressed, in order.
+     * @return The sequence.
+     * @throws IllegalArgumentException If the sequence is empty, or the maximum time is not positive.
+     */
+    public static AppleRemoteSequence ofPresses(final long maxGapMillis, final AppleRemote.Button... buttons) {
+        final int[] codes = new int[buttons.length];
+        for (int index = 0; index < buttons.length; index++) {
+            codes[index] = AppleRemoteEventCodes.code(buttons[index], AppleRemote.Kind.PRESSED);
+        }
+        return new AppleRemoteSequence(maxGapMillis, codes);
+    }
+
+    /**
+     * Returns the number of events of the sequence.
+     *
+     * @return The length of the sequence.
+     */
+    public int length() {
+        return codes.length;
+    }
+
+    /**
+     * Returns the event code of an event of the sequence.
+     *
+     * @param index The index of the event in the sequence.
+     * @return The event code (see {@link AppleRemoteEventCodes}).
+     */
+    public int getCode(final int index) {
+        return codes[index];
+    }
+
+    /**
+     * Returns the maximum time between two consecutive events of the sequence.
+     *
+     * @return The maximum time, in milliseconds.
+     */
+    public long getMaxGapMillis() {
+        return maxGapMillis;
+    }
+
+    /**
+     * Returns whether another object is a sequence of the same events with the same maximum time between them.
+     *
+     * @param o The other object.
+     * @return <code>true</code> if the other object is an equal sequence.
+     */
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AppleRemoteSequence)) {
+            return false;
+        }
+        final AppleRemoteSequence that = (AppleRemoteSequence) o;
+        return maxGapMillis == that.maxGapMillis && Arrays.equals(codes, that.codes);
+    }
+
+    /**
+     * Returns the hash code of this sequence.
+     *
+     * @return The hash code of this sequence.
+     */
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(codes) + Long.hashCode(maxGapMillis);
+    }
+
+    /**
+     * Returns a string representation of this AppleRemoteSequence, including its events and the maximum time between
+     *  them.
+     *
+     * @return A string representation of this AppleRemoteSequence.
+     */
+    @Override
+    public String toString() {
+        final StringBuilder events = new StringBuilder();
+        for (int code : codes) {
+            if (events.length() > 0) {
+                events.append(", ");
+            }
+            events.append(AppleRemoteEventCodes.button(code)).append(' ').append(AppleRemoteEventCodes.kind(code));
+        }
+        return "AppleRemoteSequence{" +
+                "events=[" + events + ']' +
+                ", maxGapMillis=" + maxGapMillis +
+                '}';
+    }
+}
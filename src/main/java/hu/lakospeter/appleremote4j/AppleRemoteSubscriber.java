@@ -0,0 +1,218 @@
+package hu.lakospeter.appleremote4j;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Receives the events of an {@link AppleRemote} in another process (JVM) on the same host, through the shared ring
+ *  file of an {@link AppleRemotePublisher}.
+ *
+ * <br><br>
+ *
+ * A subscriber receives the events that are published after it was attached. Events are received as packed
+ *  <code>long</code>s (see {@link AppleRemoteEventCodes}), so receiving them does not allocate. Any number of
+ *  subscribers can be attached to the same file, but a subscriber must only be used by one thread at a time.
+ *
+ * <br><br>
+ *
+ * If the publisher initializes the ring again (e.g. it was restarted with a different capacity), the subscriber maps
+ *  the file again, and receives the events of the new ring from its beginning.
+ *
+ * <br><br>
+ *
+ * {@link #take()} waits for the next event by spinning for a short while, then parking with an exponentially
+ *  growing, bounded timeout, so events are received within microseconds while they are frequent, and an idle
+ *  subscriber does not burn CPU.
+ *
+ * @author lakospeter
+ */
+public class AppleRemoteSubscriber {
+
+    /**
+     * The value returned by {@link #poll()} when there is no new event.
+     */
+    public static final long EMPTY = -1L;
+
+    /**
+     * The number of times {@link #take()} checks for an event before it starts to park.
+     */
+    private static final int SPIN_TRIES = 1000;
+
+    /**
+     * The first park timeout of {@link #take()}, in nanoseconds.
+     */
+    private static final long MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+
+    /**
+     * The longest park timeout of {@link #take()}, in nanoseconds.
+     */
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * The ring file.
+     */
+    private final Path file;
+
+    /**
+     * The shared ring the events are read from.
+     */
+    private SharedEventRing ring;
+
+    /**
+     * The epoch of {@link #ring} when it was mapped.
+     */
+    private long epoch;
+
+    /**
+     * The sequence of the next event to be received.
+     */
+    private long sequence;
+
+    /**
+     * The number of events that were overwritten before they could be received.
+     */
+    private long lostCount;
+
+
+    /**
+     * Attaches to the ring file of an {@link AppleRemotePublisher}.
+     *
+     * @param file The ring file.
+     * @throws IOException If the file cannot be mapped, or it was not created by a publisher.
+     */
+    public AppleRemoteSubscriber(final Path file) throws IOException {
+        this.file = file;
+        ring = SharedEventRing.openForReading(file);
+        epoch = ring.epoch();
+        sequence = ring.writeSequence();
+    }
+
+    /**
+     * Receives the next event, if there is one.
+     *
+     * @return The next event packed into a <code>long</code> (see {@link AppleRemoteEventCodes#unpackCode(long)} and
+     *          {@link AppleRemoteEventCodes#unpackWhen(long)}), or {@link #EMPTY} if there is no new event.
+     */
+    public long poll() {
+        if (ring.epoch() != epoch && !remap()) {
+            return EMPTY;
+        }
+        while (true) {
+            final long writeSequence = ring.writeSequence();
+            if (sequence >= writeSequence) {
+                return EMPTY;
+            }
+            if (writeSequence - sequence > ring.capacity()) {
+                lostCount += writeSequence - sequence - ring.capacity();
+                sequence = writeSequence - ring.capacity();
+            }
+            final long packed = ring.read(sequence);
+            if (packed == SharedEventRing.NOT_READY) {
+                return EMPTY;
+            }
+            sequence++;
+            if (packed != SharedEventRing.OVERWRITTEN) {
+                return packed;
+            }
+            // overwritten by the publisher while it was being read
+            lostCount++;
+        }
+    }
+
+    /**
+     * Maps the ring file again, after the publisher initialized a new ring in it.
+     *
+     * @return <code>true</code> if the new ring was mapped, <code>false</code> if it is not initialized yet.
+     */
+    private boolean remap() {
+        final SharedEventRing newRing;
+        try {
+            newRing = SharedEventRing.tryOpenForReading(file);
+        } catch (IOException ex) {
+            return false;
+        }
+        if (newRing == null) {
+            return false;
+        }
+        ring = newRing;
+        epoch = newRing.epoch();
+        sequence = 0;
+        return true;
+    }
+
+    /**
+     * Waits for the next event and receives it.
+     *
+     * @return The next event packed into a <code>long</code>.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public long take() throws InterruptedException {
+        return take(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Waits at most the specified time for the next event and receives it.
+     *
+     * @param timeout The maximum time to wait.
+     * @param unit The unit of the timeout.
+     * @return The next event packed into a <code>long</code>, or {@link #EMPTY} if no event was published in time.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public long take(final long timeout, final TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long parkNanos = MIN_PARK_NANOS;
+        int tries = 0;
+        while (true) {
+            final long packed = poll();
+            if (packed != EMPTY) {
+                return packed;
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            final long remainingNanos = deadline - System.nanoTime();
+            if (remainingNanos <= 0) {
+                return EMPTY;
+            }
+            if (tries < SPIN_TRIES) {
+                tries++;
+            } else {
+                LockSupport.parkNanos(Math.min(parkNanos, remainingNanos));
+                parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of events that were overwritten by the publisher before this subscriber could receive them.
+     *
+     * @return The number of lost events.
+     */
+    public long getLostCount() {
+        return lostCount;
+    }
+
+    /**
+     * Attaches to a ring file and prints its events, until the process is killed.
+     *
+     * @param args The ring file.
+     * @throws Exception If the ring file cannot be mapped.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            System.err.println("Usage: AppleRemoteSubscriber RING_FILE");
+            return;
+        }
+        final AppleRemoteSubscriber subscriber = new AppleRemoteSubscriber(Paths.get(args[0]));
+        while (true) {
+            final long packed = subscriber.take();
+            final int code = AppleRemoteEventCodes.unpackCode(packed);
+            System.out.println(AppleRemoteEventCodes.unpackWhen(packed) + " "
+                    + AppleRemoteEventCodes.button(code) + " " + AppleRemoteEventCodes.kind(code)
+                    + " (lost: " + subscriber.getLostCount() + ")");
+        }
+    }
+}
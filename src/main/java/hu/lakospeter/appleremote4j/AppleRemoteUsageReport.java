@@ -0,0 +1,185 @@
+package hu.lakospeter.appleremote4j;
+
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Immutable usage statistics of a recorded event log, computed by {@link AppleRemoteAnalytics}.
+ *
+ * <br><br>
+ *
+ * The duration histograms have {@link #getHistogramBucketCount()} buckets: bucket <code>i</code> holds the durations
+ *  in the <code>[2^(i-1), 2^i)</code> milliseconds range, bucket 0 holds the durations below 1 millisecond, and the
+ *  last bucket also holds all longer durations.
+ *
+ * @author lakospeter
+ */
+public class AppleRemoteUsageReport {
+
+    /**
+     * The number of events of every event code.
+     */
+    private final long[] counts;
+
+    /**
+     * The number of lines or records that could not be parsed.
+     */
+    private final long malformedCount;
+
+    /**
+     * Histogram of the hold durations.
+     */
+    private final long[] holdDurations;
+
+    /**
+     * Histogram of the intervals between two consecutive presses of the same button.
+     */
+    private final long[] pressIntervals;
+
+    /**
+     * The number of double presses of every button.
+     */
+    private final long[] doublePresses;
+
+    /**
+     * The number of events in every hour, keyed by the start of the hour in milliseconds since the epoch.
+     */
+    private final SortedMap<Long, Long> hourlyCounts;
+
+
+    /**
+     * Creates a report from the accumulator of a whole event log.
+     *
+     * @param accumulator The accumulator of the whole event log.
+     */
+    AppleRemoteUsageReport(final UsageAccumulator accumulator) {
+        accumulator.finish();
+        counts = accumulator.counts.clone();
+        malformedCount = accumulator.malformedCount;
+        holdDurations = accumulator.holdDurations.clone();
+        pressIntervals = accumulator.pressIntervals.clone();
+        doublePresses = accumulator.doublePresses.clone();
+        hourlyCounts = Collections.unmodifiableSortedMap(new TreeMap<>(accumulator.hourlyCounts));
+    }
+
+    /**
+     * Returns the number of events of the specified button and kind.
+     *
+     * @param button The button.
+     * @param kind The kind of the event.
+     * @return The number of events.
+     */
+    public long getCount(final AppleRemote.Button button, final AppleRemote.Kind kind) {
+        return counts[AppleRemoteEventCodes.code(button, kind)];
+    }
+
+    /**
+     * Returns the number of events of the specified button, of any kind.
+     *
+     * @param button The button.
+     * @return The number of events.
+     */
+    public long getCount(final AppleRemote.Button button) {
+        long count = 0;
+        for (AppleRemote.Kind kind : AppleRemote.Kind.values()) {
+            count += getCount(button, kind);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of all events.
+     *
+     * @return The number of events.
+     */
+    public long getTotalCount() {
+        long count = 0;
+        for (long codeCount : counts) {
+            count += codeCount;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of lines or records that could not be parsed.
+     *
+     * @return The number of malformed lines or records.
+     */
+    public long getMalformedCount() {
+        return malformedCount;
+    }
+
+    /**
+     * Returns the number of double presses of the specified button: presses that followed the previous press of
+     *  the same button within the double press interval of the {@link AppleRemoteAnalytics}.
+     *
+     * @param button The button.
+     * @return The number of double presses.
+     */
+    public long getDoublePressCount(final AppleRemote.Button button) {
+        return doublePresses[button.ordinal()];
+    }
+
+    /**
+     * Returns the ratio of the double presses of the specified button to all of its presses.
+     *
+     * @param button The button.
+     * @return The double press rate between 0 and 1, or 0 if the button was never pressed.
+     */
+    public double getDoublePressRate(final AppleRemote.Button button) {
+        final long presses = getCount(button, AppleRemote.Kind.PRESSED);
+        return presses == 0 ? 0 : (double) doublePresses[button.ordinal()] / presses;
+    }
+
+    /**
+     * Returns the number of buckets of the duration histograms.
+     *
+     * @return The number of buckets.
+     */
+    public int getHistogramBucketCount() {
+        return holdDurations.length;
+    }
+
+    /**
+     * Returns the histogram of the hold durations.
+     *
+     * @return A copy of the histogram.
+     */
+    public long[] getHoldDurationHistogram() {
+        return holdDurations.clone();
+    }
+
+    /**
+     * Returns the histogram of the intervals between two consecutive presses of the same button.
+     *
+     * @return A copy of the histogram.
+     */
+    public long[] getPressIntervalHistogram() {
+        return pressIntervals.clone();
+    }
+
+    /**
+     * Returns the number of events in every hour of the log. Only the events with a known time are counted.
+     *
+     * @return An unmodifiable map from the start of the hour (in milliseconds since the epoch) to the number of
+     *          events in that hour.
+     */
+    public SortedMap<Long, Long> getHourlyCounts() {
+        return hourlyCounts;
+    }
+
+    /**
+     * Returns a string representation of this AppleRemoteUsageReport, including its total and malformed counts.
+     *
+     * @return A string representation of this AppleRemoteUsageReport.
+     */
+    @Override
+    public String toString() {
+        return "AppleRemoteUsageReport{" +
+                "totalCount=" + getTotalCount() +
+                ", malformedCount=" + malformedCount +
+                ", hours=" + hourlyCounts.size() +
+                '}';
+    }
+}
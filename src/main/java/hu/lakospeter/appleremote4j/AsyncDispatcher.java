@@ -0,0 +1,148 @@
+package hu.lakospeter.appleremote4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+
+/**
+ * Dispatches the events of an {@link AppleRemote} to an {@link AppleRemoteAsyncListener}: it chains the stages of the
+ *  events of every button, so that the events of the same button are handled in order, and bounds the number of
+ *  stages in flight. {@link #dispatch(AppleRemoteEvent)} must be called by the thread that dispatches the events of
+ *  the AppleRemote, with its dispatch lock held, so it never waits: when the maximum number of stages are in flight,
+ *  the event is dropped and counted as an overflow. The hold stop of an admitted hold start is never dropped (it may
+ *  exceed the maximum by one stage per button), and the hold stop of a dropped hold start is always dropped, so the
+ *  listener never sees half of a hold.
+ *
+ * @author lakospeter
+ */
+final class AsyncDispatcher {
+
+    /**
+     * The listener the events are dispatched to.
+     */
+    final AppleRemoteAsyncListener listener;
+
+    /**
+     * The handler of the failures of the listener.
+     */
+    private final BiConsumer<AppleRemoteEvent, Throwable> failureHandler;
+
+    /**
+     * The permits of the stages in flight.
+     */
+    private final Semaphore inFlight;
+
+    /**
+     * The last stage of every button, indexed by the ordinal of the button. They always complete normally.
+     */
+    private final CompletableFuture<?>[] tails = new CompletableFuture<?>[AppleRemote.Button.values().length];
+
+    /**
+     * Whether the last hold start of every button was admitted, indexed by the ordinal of the button. Only used by the
+     *  thread that dispatches the events.
+     */
+    private final boolean[] holdsAdmitted = new boolean[AppleRemote.Button.values().length];
+
+    /**
+     * The number of events that were dropped because the maximum number of stages were in flight. Only written by
+     *  the thread that dispatches the events.
+     */
+    private volatile long overflowCount;
+
+
+    /**
+     * Simple constructor that gives values to fields.
+     *
+     * @param listener The listener the events are dispatched to.
+     * @param maxInFlight The maximum number of stages in flight.
+     * @param failureHandler The handler of the failures of the listener.
+     */
+    AsyncDispatcher(final AppleRemoteAsyncListener listener, final int maxInFlight,
+                    final BiConsumer<AppleRemoteEvent, Throwable> failureHandler) {
+        this.listener = listener;
+        this.failureHandler = failureHandler;
+        inFlight = new Semaphore(maxInFlight);
+        final CompletableFuture<Void> completed = CompletableFuture.completedFuture(null);
+        for (int index = 0; index < tails.length; index++) {
+            tails[index] = completed;
+        }
+    }
+
+    /**
+     * Chains the handling of an event after the handling of the previous event of the same button, unless the maximum
+     *  number of stages are in flight, in which case the event is dropped. A hold stop is admitted if and only if its
+     *  hold start was admitted.
+     *
+     * @param event The event.
+     */
+    void dispatch(final AppleRemoteEvent event) {
+        final int index = event.getButton().ordinal();
+        final boolean acquired;
+        if (event.getKind() == AppleRemote.Kind.HOLD_STOPPED) {
+            if (!holdsAdmitted[index]) {
+                overflowCount++;
+                return;
+            }
+            holdsAdmitted[index] = false;
+            acquired = inFlight.tryAcquire();
+        } else {
+            acquired = inFlight.tryAcquire();
+            if (event.getKind() == AppleRemote.Kind.HOLD_STARTED) {
+                holdsAdmitted[index] = acquired;
+            }
+            if (!acquired) {
+                overflowCount++;
+                return;
+            }
+        }
+        tails[index] = tails[index]
+                .thenCompose(previous -> call(event))
+                .handle((result, failure) -> {
+                    if (acquired) {
+                        inFlight.release();
+                    }
+                    if (failure != null) {
+                        reportFailure(event, failure instanceof CompletionException && failure.getCause() != null
+                                             ? failure.getCause() : failure);
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * Returns the number of events that were dropped because the maximum number of stages were in flight.
+     *
+     * @return The number of dropped events.
+     */
+    long getOverflowCount() {
+        return overflowCount;
+    }
+
+    /**
+     * Calls the listener with an event.
+     *
+     * @param event The event.
+     * @return The stage of the listener, or a completed stage if the listener returned <code>null</code>.
+     */
+    private CompletionStage<Void> call(final AppleRemoteEvent event) {
+        final CompletionStage<Void> stage = listener.eventReceived(event);
+        return stage == null ? CompletableFuture.completedFuture(null) : stage;
+    }
+
+    /**
+     * Reports a failure of the listener to the failure handler. The failures of the failure handler are printed.
+     *
+     * @param event The event whose handling failed.
+     * @param failure The failure.
+     */
+    private void reportFailure(final AppleRemoteEvent event, final Throwable failure) {
+        try {
+            failureHandler.accept(event, failure);
+        } catch (RuntimeException ex) {
+            System.err.println("Error: The failure handler of an async listener failed.");
+            ex.printStackTrace();
+        }
+    }
+}
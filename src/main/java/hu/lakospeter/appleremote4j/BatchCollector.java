@@ -0,0 +1,112 @@
+package hu.lakospeter.appleremote4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Collects the events of the batch that is going to be delivered to an {@link AppleRemoteBatchListener}.
+ *  All of its methods must be called by the thread that dispatches the events of the {@link AppleRemote}, with its
+ *  dispatch lock held.
+ *
+ * @author lakospeter
+ */
+final class BatchCollector {
+
+    /**
+     * The listener the batches are delivered to.
+     */
+    final AppleRemoteBatchListener listener;
+
+    /**
+     * The maximum time between the first event of a batch and its delivery, in milliseconds, or 0 to deliver a batch
+     *  at the end of every read.
+     */
+    final long maxLatencyMillis;
+
+    /**
+     * The events of the pending batch.
+     */
+    private List<AppleRemoteEvent> events = new ArrayList<>();
+
+    /**
+     * The number of reads the events of the pending batch come from.
+     */
+    private int readCount;
+
+    /**
+     * The number of bytes the events of the pending batch were parsed from.
+     */
+    private long byteCount;
+
+    /**
+     * Whether an event was added since the end of the last read.
+     */
+    private boolean addedInRead;
+
+    /**
+     * The task that delivers the pending batch when its maximum latency is reached, or <code>null</code>.
+     */
+    ScheduledFuture<?> flushTask;
+
+
+    /**
+     * Simple constructor that gives values to fields.
+     *
+     * @param listener The listener the batches are delivered to.
+     * @param maxLatencyMillis The maximum batch latency in milliseconds, or 0 to deliver a batch at the end of every
+     *          read.
+     */
+    BatchCollector(final AppleRemoteBatchListener listener, final long maxLatencyMillis) {
+        this.listener = listener;
+        this.maxLatencyMillis = maxLatencyMillis;
+    }
+
+    /**
+     * Adds an event to the pending batch.
+     *
+     * @param event The event.
+     * @param bytes The number of bytes the event was parsed from, or 0 if it was synthesized.
+     * @return <code>true</code> if this was the first event of the batch.
+     */
+    boolean add(final AppleRemoteEvent event, final int bytes) {
+        events.add(event);
+        byteCount += bytes;
+        addedInRead |= bytes > 0;
+        return events.size() == 1;
+    }
+
+    /**
+     * Marks the end of a read of iremotepipe's output.
+     *
+     * @return <code>true</code> if the pending batch should be delivered now.
+     */
+    boolean endOfRead() {
+        if (addedInRead) {
+            readCount++;
+            addedInRead = false;
+        }
+        return maxLatencyMillis == 0 && !events.isEmpty();
+    }
+
+    /**
+     * Delivers the pending batch to the listener, if it is not empty.
+     *
+     * @param source The source of the batch.
+     */
+    void deliver(final Object source) {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+        final AppleRemoteEventBatch batch = new AppleRemoteEventBatch(source, events, readCount, byteCount,
+                                                                      System.currentTimeMillis());
+        events = new ArrayList<>();
+        readCount = 0;
+        byteCount = 0;
+        listener.eventsReceived(batch);
+    }
+}
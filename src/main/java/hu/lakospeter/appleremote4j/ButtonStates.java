@@ -0,0 +1,104 @@
+package hu.lakospeter.appleremote4j;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The live state of the buttons of an {@link AppleRemote}: which buttons are being held down, and when each button
+ *  was last pressed.
+ *
+ * <br><br>
+ *
+ * It is updated by the one thread that dispatches the events of the AppleRemote, and it can be read by any number
+ *  of threads at any rate without locking. The held buttons are stored as a bitset in a single atomic value, so
+ *  a snapshot of them is always consistent.
+ *
+ * @author lakospeter
+ */
+final class ButtonStates {
+
+    /**
+     * The number of buttons.
+     */
+    private static final int BUTTON_COUNT = AppleRemote.Button.values().length;
+
+    /**
+     * Bitset of the buttons being held down, indexed by {@link AppleRemote.Button#ordinal()}.
+     */
+    private final AtomicInteger heldMask = new AtomicInteger();
+
+    /**
+     * The time each button was last pressed (or its hold was started), or 0 if it was never pressed.
+     */
+    private final AtomicLongArray lastPressTimes = new AtomicLongArray(BUTTON_COUNT);
+
+    /**
+     * The time the current hold of each button was started, or 0 if it is not being held down.
+     */
+    private final AtomicLongArray holdStartTimes = new AtomicLongArray(BUTTON_COUNT);
+
+
+    /**
+     * Updates the state with an event. Only the dispatching thread may call this method.
+     *
+     * @param button The button that fired the event.
+     * @param kind The kind of the event.
+     * @param when The time of the event, in milliseconds since the epoch.
+     */
+    void update(final AppleRemote.Button button, final AppleRemote.Kind kind, final long when) {
+        final int index = button.ordinal();
+        switch (kind) {
+            case HOLD_STARTED:
+                        holdStartTimes.lazySet(index, when);
+                        heldMask.lazySet(heldMask.get() | 1 << index);
+                        lastPressTimes.lazySet(index, when);
+                        break;
+            case HOLD_STOPPED:
+                        heldMask.lazySet(heldMask.get() & ~(1 << index));
+                        holdStartTimes.lazySet(index, 0);
+                        break;
+            default:
+                        lastPressTimes.lazySet(index, when);
+                        break;
+        }
+    }
+
+    /**
+     * Returns whether the specified button is being held down.
+     *
+     * @param button The button.
+     * @return <code>true</code> if the hold of the button was started and not stopped yet.
+     */
+    boolean isHeld(final AppleRemote.Button button) {
+        return (heldMask.get() & 1 << button.ordinal()) != 0;
+    }
+
+    /**
+     * Returns the bitset of the buttons being held down.
+     *
+     * @return The bitset, indexed by {@link AppleRemote.Button#ordinal()}.
+     */
+    int getHeldMask() {
+        return heldMask.get();
+    }
+
+    /**
+     * Returns the time the specified button was last pressed (or its hold was started).
+     *
+     * @param button The button.
+     * @return The time in milliseconds since the epoch, or 0 if it was never pressed.
+     */
+    long getLastPressTime(final AppleRemote.Button button) {
+        return lastPressTimes.get(button.ordinal());
+    }
+
+    /**
+     * Returns the time the current hold of the specified button was started.
+     *
+     * @param button The button.
+     * @return The time in milliseconds since the epoch, or 0 if it is not being held down.
+     */
+    long getHoldStartTime(final AppleRemote.Button button) {
+        return holdStartTimes.get(button.ordinal());
+    }
+}
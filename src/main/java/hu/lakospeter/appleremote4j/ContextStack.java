@@ -0,0 +1,186 @@
+package hu.lakospeter.appleremote4j;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The focus context stack of an {@link AppleRemote} (see {@link AppleRemoteContext}).
+ *
+ * <br><br>
+ *
+ * The stack is an immutable linked list, and it is changed by replacing its top node atomically, so it can be changed
+ *  from any thread without blocking the dispatching of events. Every node holds the resolved handler of every event
+ *  code (its own handler, or the resolved handler of the node below it if its context falls through), so routing an
+ *  event is a single array lookup.
+ *
+ * @author lakospeter
+ */
+final class ContextStack {
+
+    /**
+     * The top node of the stack, or <code>null</code> if the stack is empty.
+     */
+    private final AtomicReference<Node> top = new AtomicReference<>();
+
+
+    /**
+     * Pushes a context on the top of the stack.
+     *
+     * @param context The context.
+     */
+    void push(final AppleRemoteContext context) {
+        final AppleRemoteEventHandler[] handlers = context.getHandlers();
+        Node oldTop;
+        do {
+            oldTop = top.get();
+        } while (!top.compareAndSet(oldTop, new Node(context, handlers, oldTop)));
+    }
+
+    /**
+     * Pops the context on the top of the stack.
+     *
+     * @return The popped context, or <code>null</code> if the stack was empty.
+     */
+    AppleRemoteContext pop() {
+        Node oldTop;
+        do {
+            oldTop = top.get();
+            if (oldTop == null) {
+                return null;
+            }
+        } while (!top.compareAndSet(oldTop, oldTop.next));
+        return oldTop.context;
+    }
+
+    /**
+     * Removes the topmost occurrence of a context from the stack, wherever it is. The nodes above it are re-resolved.
+     *
+     * @param context The context.
+     * @return <code>true</code> if the context was on the stack.
+     */
+    boolean remove(final AppleRemoteContext context) {
+        Node oldTop;
+        Node newTop;
+        do {
+            oldTop = top.get();
+            final Deque<Node> above = new ArrayDeque<>();
+            Node node = oldTop;
+            while (node != null && node.context != context) {
+                above.push(node);
+                node = node.next;
+            }
+            if (node == null) {
+                return false;
+            }
+            newTop = node.next;
+            while (!above.isEmpty()) {
+                final Node aboveNode = above.pop();
+                newTop = new Node(aboveNode.context, aboveNode.ownHandlers, newTop);
+            }
+        } while (!top.compareAndSet(oldTop, newTop));
+        return true;
+    }
+
+    /**
+     * Returns the context on the top of the stack.
+     *
+     * @return The context on the top of the stack, or <code>null</code> if the stack is empty.
+     */
+    AppleRemoteContext peek() {
+        final Node node = top.get();
+        return node == null ? null : node.context;
+    }
+
+    /**
+     * Returns the event codes the context on the top of the stack resolves to a handler.
+     *
+     * @return The interest mask of the stack, or 0 if the stack is empty.
+     */
+    int getInterestMask() {
+        final Node node = top.get();
+        return node == null ? 0 : node.interestMask;
+    }
+
+    /**
+     * Routes an event to the handler the contexts on the stack resolve its code to.
+     *
+     * @param event The event.
+     * @param code The event code of the event.
+     * @return <code>true</code> if the event was routed to a handler.
+     */
+    boolean dispatch(final AppleRemoteEvent event, final int code) {
+        final Node node = top.get();
+        if (node == null) {
+            return false;
+        }
+        final AppleRemoteEventHandler handler = node.resolvedHandlers[code];
+        if (handler == null) {
+            return false;
+        }
+        handler.handle(event);
+        return true;
+    }
+
+    /**
+     * An immutable node of the stack.
+     */
+    private static final class Node {
+
+        /**
+         * The context of this node.
+         */
+        private final AppleRemoteContext context;
+
+        /**
+         * The handlers of the context, as they were when it was pushed, indexed by event code.
+         */
+        private final AppleRemoteEventHandler[] ownHandlers;
+
+        /**
+         * The handlers of the event codes, resolved through the nodes below this one, indexed by event code.
+         */
+        private final AppleRemoteEventHandler[] resolvedHandlers;
+
+        /**
+         * The event codes that have resolved handlers, as a bit mask.
+         */
+        private final int interestMask;
+
+        /**
+         * The node below this one, or <code>null</code>.
+         */
+        private final Node next;
+
+
+        /**
+         * Creates a node, and resolves its handlers.
+         *
+         * @param context The context of the node.
+         * @param ownHandlers The handlers of the context, indexed by event code.
+         * @param next The node below the new node, or <code>null</code>.
+         */
+        private Node(final AppleRemoteContext context, final AppleRemoteEventHandler[] ownHandlers, final Node next) {
+            this.context = context;
+            this.ownHandlers = ownHandlers;
+            this.next = next;
+            if (context.isFallThrough() && next != null) {
+                resolvedHandlers = ownHandlers.clone();
+                for (int code = 0; code < resolvedHandlers.length; code++) {
+                    if (resolvedHandlers[code] == null) {
+                        resolvedHandlers[code] = next.resolvedHandlers[code];
+                    }
+                }
+            } else {
+                resolvedHandlers = ownHandlers;
+            }
+            int mask = 0;
+            for (int code = 0; code < resolvedHandlers.length; code++) {
+                if (resolvedHandlers[code] != null) {
+                    mask |= 1 << code;
+                }
+            }
+            interestMask = mask;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package hu.lakospeter.appleremote4j;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Pure Java emulator of unconed's iremotepipe, which prints iremotepipe's output format to its standard output.
+ *  It makes it possible to run {@link AppleRemote} end to end (process start, pipe reading, parsing and dispatching)
+ *  on systems without an IR receiver, e.g. in tests and benchmarks on Linux.
+ *
+ * <br><br>
+ *
+ * Usage: <code>java hu.lakospeter.appleremote4j.IRemotePipeEmulator [options]</code>
+ * <ul>
+ *     <li><code>--script FILE</code>: prints the events of a script. Every line of the script is an iremotepipe
+ *      output line, optionally preceded by the number of milliseconds to wait before printing it, e.g.
+ *      <code>250 {"type":"menu","hold":false,"pressed":true}</code>. Empty lines and lines starting with
+ *      <code>#</code> are ignored.</li>
+ *     <li><code>--count N</code>: prints N generated events (default: 0, which means no limit). Generated events are
+ *      random presses and holds; every hold start is followed by its hold stop.</li>
+ *     <li><code>--rate R</code>: prints the generated events at R events per second (default: 0, which means as
+ *      fast as possible).</li>
+ *     <li><code>--seed S</code>: the seed of the generated events (default: 0).</li>
+ *     <li><code>--no-flush</code>: does not flush the output after every event, unlike iremotepipe.</li>
+ * </ul>
+ *
+ * The emulator exits when the script or the generated events are finished, which ends the output of iremotepipe
+ *  for the {@link AppleRemote} that started it.
+ *
+ * @author lakospeter
+ */
+public class IRemotePipeEmulator {
+
+    /**
+     * The usage message of {@link #main(String[])}.
+     */
+    private static final String USAGE = "Usage: IRemotePipeEmulator [--script FILE] [--count N] [--rate R] [--seed S]"
+            + " [--no-flush]";
+
+    /**
+     * The event codes that iremotepipe can produce.
+     */
+    private static final int[] VALID_CODES = validCodes();
+
+    /**
+     * The output the events are printed to.
+     */
+    private final OutputStream output;
+
+    /**
+     * Whether the output is flushed after every event.
+     */
+    private final boolean flush;
+
+
+    /**
+     * Simple constructor that gives values to fields.
+     *
+     * @param output The output the events are printed to.
+     * @param flush Whether the output is flushed after every event.
+     */
+    public IRemotePipeEmulator(final OutputStream output, final boolean flush) {
+        this.output = output;
+        this.flush = flush;
+    }
+
+    /**
+     * Returns the command that runs the emulator in a new JVM, with the class path of the current JVM.
+     *  It can be passed to {@link AppleRemote#AppleRemote(List)}.
+     *
+     * @param args The arguments of the emulator.
+     * @return The path of the java program, followed by its arguments.
+     */
+    public static List<String> command(final String... args) {
+        final List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(IRemotePipeEmulator.class.getName());
+        command.addAll(Arrays.asList(args));
+        return command;
+    }
+
+    /**
+     * Prints the events of a script.
+     *
+     * @param script The lines of the script.
+     * @throws IOException If an I/O error occurs while printing.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public void playScript(final BufferedReader script) throws IOException, InterruptedException {
+        String line;
+        while ((line = script.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            if (Character.isDigit(line.charAt(0))) {
+                final String[] delayAndLine = line.split("\\s+", 2);
+                TimeUnit.MILLISECONDS.sleep(Long.parseLong(delayAndLine[0]));
+                line = delayAndLine.length > 1 ? delayAndLine[1] : "";
+            }
+            print(line.getBytes(StandardCharsets.US_ASCII));
+        }
+        output.flush();
+    }
+
+    /**
+     * Prints random generated events at the specified rate.
+     *
+     * @param count The number of events to print, or 0 for no limit.
+     * @param rate The number of events per second, or 0 to print them as fast as possible.
+     * @param seed The seed of the random events.
+     * @throws IOException If an I/O error occurs while printing.
+     */
+    public void generate(final long count, final double rate, final long seed) throws IOException {
+        final byte[][] lines = new byte[AppleRemoteEventCodes.CODE_COUNT][];
+        for (int code : VALID_CODES) {
+            lines[code] = AppleRemoteEventCodes.iRemotePipeLine(code).getBytes(StandardCharsets.US_ASCII);
+        }
+
+        final Random random = new Random(seed);
+        final long intervalNanos = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / rate) : 0;
+        long nextNanos = System.nanoTime();
+        int pendingHoldStop = -1;
+
+        for (long i = 0; count == 0 || i < count; i++) {
+            final int code;
+            if (pendingHoldStop >= 0) {
+                code = pendingHoldStop;
+                pendingHoldStop = -1;
+            } else {
+                int randomCode;
+                do {
+                    randomCode = VALID_CODES[random.nextInt(VALID_CODES.length)];
+                } while (AppleRemoteEventCodes.kind(randomCode) == AppleRemote.Kind.HOLD_STOPPED);
+                if (AppleRemoteEventCodes.kind(randomCode) == AppleRemote.Kind.HOLD_STARTED) {
+                    pendingHoldStop = AppleRemoteEventCodes.code(AppleRemoteEventCodes.button(randomCode),
+                                                                 AppleRemote.Kind.HOLD_STOPPED);
+                }
+                code = randomCode;
+            }
+
+            if (intervalNanos > 0) {
+                nextNanos += intervalNanos;
+                long waitNanos;
+                while ((waitNanos = nextNanos - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(waitNanos);
+                }
+            }
+            print(lines[code]);
+        }
+        output.flush();
+    }
+
+    /**
+     * Prints one line of output.
+     *
+     * @param line The bytes of the line, without the line terminator.
+     * @throws IOException If an I/O error occurs while printing.
+     */
+    private void print(final byte[] line) throws IOException {
+        output.write(line);
+        output.write('\n');
+        if (flush) {
+            output.flush();
+        }
+    }
+
+    /**
+     * Returns the event codes that iremotepipe can produce.
+     *
+     * @return The valid event codes.
+     */
+    private static int[] validCodes() {
+        int count = 0;
+        final int[] codes = new int[AppleRemoteEventCodes.CODE_COUNT];
+        for (int code = 0; code < AppleRemoteEventCodes.CODE_COUNT; code++) {
+            if (AppleRemoteEventCodes.isValid(code)) {
+                codes[count++] = code;
+            }
+        }
+        return Arrays.copyOf(codes, count);
+    }
+
+    /**
+     * Returns the value of a command line option.
+     *
+     * @param args Command line arguments.
+     * @param index The index of the value.
+     * @return The value.
+     * @throws IllegalArgumentException If the option is the last argument, so it has no value.
+     */
+    private static String value(final String[] args, final int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value of " + args[index - 1]);
+        }
+        return args[index];
+    }
+
+    /**
+     * Runs the emulator with the specified command line arguments.
+     *
+     * @param args Command line arguments (see the documentation of the class). If they are invalid, the usage
+     *          message is printed to the standard error.
+     * @throws Exception If an I/O error occurs.
+     */
+    public static void main(String[] args) throws Exception {
+        String script = null;
+        long count = 0;
+        double rate = 0;
+        long seed = 0;
+        boolean flush = true;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--script":
+                                script = value(args, ++i);
+                                break;
+                    case "--count":
+                                count = Long.parseLong(value(args, ++i));
+                                break;
+                    case "--rate":
+                                rate = Double.parseDouble(value(args, ++i));
+                                break;
+                    case "--seed":
+                                seed = Long.parseLong(value(args, ++i));
+                                break;
+                    case "--no-flush":
+                                flush = false;
+                                break;
+                    default:
+                                throw new IllegalArgumentException("Unknown argument: " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException ex) {
+            // NumberFormatException is an IllegalArgumentException too
+            System.err.println(ex.getMessage());
+            System.err.println(USAGE);
+            return;
+        }
+
+        final IRemotePipeEmulator emulator = new IRemotePipeEmulator(new BufferedOutputStream(System.out), flush);
+        if (script != null) {
+            try (BufferedReader reader = Files.newBufferedReader(Paths.get(script), StandardCharsets.US_ASCII)) {
+                emulator.playScript(reader);
+            }
+        } else {
+            emulator.generate(count, rate, seed);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package hu.lakospeter.appleremote4j;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Allocation free parser of iremotepipe's output lines, e.g. <code>{"type":"up","hold":true,"pressed":false}</code>.
+ *
+ * <br><br>
+ *
+ * It works on raw bytes, so that large amounts of output (e.g. memory-mapped event logs) can be parsed without
+ *  decoding them into {@link String}s first.
+ *
+ * @author lakospeter
+ */
+final class IRemotePipeParser {
+
+    /**
+     * Returned by {@link #parse(ByteBuffer, int, int)} if the line is not in iremotepipe's output format.
+     */
+    static final int MALFORMED = -1;
+
+    /**
+     * Returned by {@link #parse(ByteBuffer, int, int)} if the line is well-formed, but its type is not known
+     *  (iremotepipe prints <code>unknown</code> for the buttons it does not recognize).
+     */
+    static final int UNKNOWN_TYPE = -2;
+
+    /**
+     * The beginning of every line, up to the value of the <code>type</code> field.
+     */
+    private static final byte[] TYPE_PREFIX = bytes("{\"type\":\"");
+
+    /**
+     * The text between the value of the <code>type</code> field and the value of the <code>hold</code> field.
+     */
+    private static final byte[] HOLD_PREFIX = bytes("\",\"hold\":");
+
+    /**
+     * The text between the value of the <code>hold</code> field and the value of the <code>pressed</code> field.
+     */
+    private static final byte[] PRESSED_PREFIX = bytes(",\"pressed\":");
+
+    /**
+     * The values of the <code>type</code> field that iremotepipe prints.
+     */
+    private static final byte[][] TYPES = {
+            bytes("up"), bytes("down"), bytes("left"), bytes("right"),
+            bytes("play"), bytes("sleep"), bytes("menu"), bytes("ok")
+    };
+
+    /**
+     * The literal <code>true</code>.
+     */
+    private static final byte[] TRUE = bytes("true");
+
+    /**
+     * The literal <code>false</code>.
+     */
+    private static final byte[] FALSE = bytes("false");
+
+
+    /**
+     * This class only has static methods, it should not be instantiated.
+     */
+    private IRemotePipeParser() {
+    }
+
+    /**
+     * Parses one line of iremotepipe's output. Trailing whitespace (e.g. <code>\r</code>) is ignored.
+     *
+     * @param buffer The buffer that holds the line. Its position and limit are not changed.
+     * @param from The index of the first byte of the line.
+     * @param to The index after the last byte of the line (excluding the line terminator).
+     * @return The event code of the line (see {@link AppleRemoteEventCodes}), or {@link #UNKNOWN_TYPE}, or
+     *          {@link #MALFORMED}.
+     */
+    static int parse(final ByteBuffer buffer, final int from, int to) {
+        while (to > from && buffer.get(to - 1) <= ' ') {
+            to--;
+        }
+        int index = expect(buffer, from, to, TYPE_PREFIX);
+        if (index < 0) {
+            return MALFORMED;
+        }
+
+        final int typeStart = index;
+        while (index < to && buffer.get(index) != '"') {
+            index++;
+        }
+        final int type = type(buffer, typeStart, index);
+
+        index = expect(buffer, index, to, HOLD_PREFIX);
+        if (index < 0) {
+            return MALFORMED;
+        }
+        final boolean held = index < to && buffer.get(index) == 't';
+        index = expect(buffer, index, to, held ? TRUE : FALSE);
+        if (index < 0) {
+            return MALFORMED;
+        }
+
+        index = expect(buffer, index, to, PRESSED_PREFIX);
+        if (index < 0) {
+            return MALFORMED;
+        }
+        final boolean pressed = index < to && buffer.get(index) == 't';
+        index = expect(buffer, index, to, pressed ? TRUE : FALSE);
+        if (index < 0 || index != to - 1 || buffer.get(index) != '}') {
+            return MALFORMED;
+        }
+
+        return code(type, held, pressed);
+    }
+
+    /**
+     * Returns the event code of a parsed line, according to the possible outputs of iremotepipe listed in
+     *  {@link AppleRemote}.
+     *
+     * @param type The index of the value of the <code>type</code> field in {@link #TYPES}, or -1 if it is unknown.
+     * @param held The value of the <code>hold</code> field.
+     * @param pressed The value of the <code>pressed</code> field.
+     * @return The event code, or {@link #UNKNOWN_TYPE}.
+     */
+    private static int code(final int type, final boolean held, final boolean pressed) {
+        final AppleRemote.Kind holdKind = held
+                ? (pressed ? AppleRemote.Kind.HOLD_STARTED : AppleRemote.Kind.HOLD_STOPPED)
+                : AppleRemote.Kind.PRESSED;
+        switch (type) {
+            case 0:
+                        return AppleRemoteEventCodes.code(AppleRemote.Button.VOLUME_UP, holdKind);
+            case 1:
+                        return AppleRemoteEventCodes.code(AppleRemote.Button.VOLUME_DOWN, holdKind);
+            case 2:
+                        return AppleRemoteEventCodes.code(AppleRemote.Button.PREVIOUS, holdKind);
+            case 3:
+                        return AppleRemoteEventCodes.code(AppleRemote.Button.NEXT, holdKind);
+            case 4:
+                        return AppleRemoteEventCodes.code(AppleRemote.Button.PLAY_PAUSE, AppleRemote.Kind.PRESSED);
+            case 5:
+                        return AppleRemoteEventCodes.code(AppleRemote.Button.PLAY_PAUSE, AppleRemote.Kind.HELD);
+            case 6:
+                        return AppleRemoteEventCodes.code(AppleRemote.Button.MENU,
+                                                          held ? AppleRemote.Kind.HELD : AppleRemote.Kind.PRESSED);
+            case 7:
+                        return AppleRemoteEventCodes.code(AppleRemote.Button.SELECT, AppleRemote.Kind.PRESSED);
+            default:
+                        return UNKNOWN_TYPE;
+        }
+    }
+
+    /**
+     * Finds the value of the <code>type</code> field in {@link #TYPES}.
+     *
+     * @param buffer The buffer that holds the line.
+     * @param from The index of the first byte of the value.
+     * @param to The index after the last byte of the value.
+     * @return The index of the value in {@link #TYPES}, or -1 if it is unknown.
+     */
+    private static int type(final ByteBuffer buffer, final int from, final int to) {
+        for (int type = 0; type < TYPES.length; type++) {
+            if (TYPES[type].length == to - from && expect(buffer, from, to, TYPES[type]) == to) {
+                return type;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether the specified bytes can be found in the buffer at the specified index.
+     *
+     * @param buffer The buffer that holds the line.
+     * @param from The index where the bytes are expected.
+     * @param to The index after the last byte of the line.
+     * @param expected The expected bytes.
+     * @return The index after the expected bytes, or -1 if they were not found.
+     */
+    private static int expect(final ByteBuffer buffer, final int from, final int to, final byte[] expected) {
+        if (to - from < expected.length) {
+            return -1;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(from + i) != expected[i]) {
+                return -1;
+            }
+        }
+        return from + expected.length;
+    }
+
+    /**
+     * Returns the ASCII bytes of a string.
+     *
+     * @param string The string.
+     * @return The bytes of the string.
+     */
+    private static byte[] bytes(final String string) {
+        return string.getBytes(StandardCharsets.US_ASCII);
+    }
+}
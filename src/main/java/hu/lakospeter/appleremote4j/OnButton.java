@@ -0,0 +1,38 @@
+package hu.lakospeter.appleremote4j;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method of an annotated listener (see {@link AppleRemote#addAnnotatedListener(Object)}) as the handler of
+ *  the specified button and kind, e.g. <code>@OnButton(button = NEXT, kind = HOLD_STARTED)</code>.
+ *
+ * <br><br>
+ *
+ * The method must be public, and it must have no parameters, or one parameter of type {@link AppleRemoteEvent}.
+ *
+ * @author lakospeter
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface OnButton {
+
+    /**
+     * The button whose events the method handles.
+     *
+     * @return The button.
+     */
+    AppleRemote.Button button();
+
+    /**
+     * The kind of the events the method handles.
+     *
+     * @return The kind of the events.
+     */
+    AppleRemote.Kind kind() default AppleRemote.Kind.PRESSED;
+
+}
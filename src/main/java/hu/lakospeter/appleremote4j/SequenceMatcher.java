@@ -0,0 +1,287 @@
+package hu.lakospeter.appleremote4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Matches the events of an {@link AppleRemote} against all of its registered {@link AppleRemoteSequence}s at once.
+ *
+ * <br><br>
+ *
+ * The sequences are compiled together into an Aho-Corasick automaton over the event codes, with a full transition
+ *  table, so every event advances the matching of all of the sequences with a single table lookup, however many
+ *  sequences are registered. The automaton is immutable: registering or removing a sequence compiles a new automaton
+ *  on the calling thread, and publishes it through a volatile field, so it never blocks the dispatching of events.
+ *  {@link #dispatch(AppleRemoteEvent, int)} must be called by the thread that dispatches the events, with the dispatch
+ *  lock of the AppleRemote held.
+ *
+ * @author lakospeter
+ */
+final class SequenceMatcher {
+
+    /**
+     * The registered sequences and their handlers, guarded by the lock of this matcher.
+     */
+    private final List<Registration> registrations = new ArrayList<>();
+
+    /**
+     * The automaton of the registered sequences.
+     */
+    private volatile Automaton automaton = new Automaton(new Registration[0]);
+
+    /**
+     * The automaton the matching state belongs to. Only used by the dispatching thread.
+     */
+    private Automaton currentAutomaton;
+
+    /**
+     * The current state of {@link #currentAutomaton}. Only used by the dispatching thread.
+     */
+    private int state;
+
+    /**
+     * The times of the last events, as many as the length of the longest sequence, in a ring. Only used by the
+     *  dispatching thread.
+     */
+    private long[] times;
+
+    /**
+     * The number of events matched since {@link #currentAutomaton} was set. Only used by the dispatching thread.
+     */
+    private long eventCount;
+
+
+    /**
+     * Registers a sequence with a handler, and recompiles the automaton.
+     *
+     * @param sequence The sequence.
+     * @param handler The handler that is called with the last event of the sequence when the sequence is matched.
+     */
+    synchronized void add(final AppleRemoteSequence sequence, final AppleRemoteEventHandler handler) {
+        for (Registration registration : registrations) {
+            if (registration.sequence.equals(sequence) && registration.handler == handler) {
+                return;
+            }
+        }
+        registrations.add(new Registration(sequence, handler));
+        automaton = new Automaton(registrations.toArray(new Registration[registrations.size()]));
+    }
+
+    /**
+     * Removes the registration of a sequence with a handler, and recompiles the automaton.
+     *
+     * @param sequence The sequence.
+     * @param handler The handler of the sequence.
+     */
+    synchronized void remove(final AppleRemoteSequence sequence, final AppleRemoteEventHandler handler) {
+        if (registrations.removeIf(registration -> registration.sequence.equals(sequence)
+                                                   && registration.handler == handler)) {
+            automaton = new Automaton(registrations.toArray(new Registration[registrations.size()]));
+        }
+    }
+
+    /**
+     * Returns whether any sequence is registered. The matching needs every event if there is one, because any event
+     *  can break a sequence.
+     *
+     * @return <code>true</code> if a sequence is registered.
+     */
+    boolean hasSequences() {
+        return automaton.maxLength > 0;
+    }
+
+    /**
+     * Advances the matching with an event, and calls the handlers of the sequences it completes. After a match, the
+     *  matching starts over, so the events of a matched sequence are not reused by the next match.
+     *
+     * @param event The event.
+     * @param code The event code of the event.
+     */
+    void dispatch(final AppleRemoteEvent event, final int code) {
+        final Automaton automaton = this.automaton;
+        if (automaton != currentAutomaton) {
+            currentAutomaton = automaton;
+            state = 0;
+            times = new long[automaton.maxLength];
+            eventCount = 0;
+        }
+        if (automaton.maxLength == 0) {
+            return;
+        }
+
+        final long when = event.getWhen();
+        if (state != 0 && when - times[(int) ((eventCount - 1) % times.length)] > automaton.maxGapMillis) {
+            state = 0;
+        }
+        state = automaton.transitions[state * AppleRemoteEventCodes.CODE_COUNT + code];
+        times[(int) (eventCount++ % times.length)] = when;
+
+        boolean matched = false;
+        for (int index : automaton.matches[state]) {
+            final Registration registration = automaton.registrations[index];
+            if (isWithinMaxGaps(registration.sequence)) {
+                registration.handler.handle(event);
+                matched = true;
+            }
+        }
+        if (matched) {
+            state = 0;
+        }
+    }
+
+    /**
+     * Returns whether the last events, which match a sequence, follow each other within the maximum time of the
+     *  sequence.
+     *
+     * @param sequence The sequence.
+     * @return <code>true</code> if no time between two consecutive events of the sequence is too long.
+     */
+    private boolean isWithinMaxGaps(final AppleRemoteSequence sequence) {
+        for (long index = eventCount - 1; index > eventCount - sequence.length(); index--) {
+            final long gap = times[(int) (index % times.length)] - times[(int) ((index - 1) % times.length)];
+            if (gap > sequence.getMaxGapMillis()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A sequence and its handler.
+     */
+    private static final class Registration {
+
+        /**
+         * The sequence.
+         */
+        private final AppleRemoteSequence sequence;
+
+        /**
+         * The handler of the sequence.
+         */
+        private final AppleRemoteEventHandler handler;
+
+
+        /**
+         * Simple constructor that gives values to fields.
+         *
+         * @param sequence The sequence.
+         * @param handler The handler of the sequence.
+         */
+        private Registration(final AppleRemoteSequence sequence, final AppleRemoteEventHandler handler) {
+            this.sequence = sequence;
+            this.handler = handler;
+        }
+    }
+
+    /**
+     * The immutable Aho-Corasick automaton of a set of sequences. State 0 is the initial state.
+     */
+    private static final class Automaton {
+
+        /**
+         * The sequences of the automaton and their handlers.
+         */
+        private final Registration[] registrations;
+
+        /**
+         * The next state of every state and event code, indexed by <code>state * CODE_COUNT + code</code>.
+         */
+        private final int[] transitions;
+
+        /**
+         * The indexes of the registrations whose sequences end in every state, indexed by state.
+         */
+        private final int[][] matches;
+
+        /**
+         * The length of the longest sequence.
+         */
+        private final int maxLength;
+
+        /**
+         * The longest of the maximum times between the events of the sequences, in milliseconds.
+         */
+        private final long maxGapMillis;
+
+
+        /**
+         * Compiles the automaton of a set of sequences.
+         *
+         * @param registrations The sequences and their handlers.
+         */
+        private Automaton(final Registration[] registrations) {
+            this.registrations = registrations;
+            final int codeCount = AppleRemoteEventCodes.CODE_COUNT;
+
+            int longest = 0;
+            long longestGap = 0;
+            int stateLimit = 1;
+            for (Registration registration : registrations) {
+                longest = Math.max(longest, registration.sequence.length());
+                longestGap = Math.max(longestGap, registration.sequence.getMaxGapMillis());
+                stateLimit += registration.sequence.length();
+            }
+            maxLength = longest;
+            maxGapMillis = longestGap;
+
+            // the trie of the sequences, -1 for the missing edges
+            final int[] table = new int[stateLimit * codeCount];
+            Arrays.fill(table, -1);
+            final List<List<Integer>> ends = new ArrayList<>();
+            ends.add(new ArrayList<>());
+            int stateCount = 1;
+            for (int index = 0; index < registrations.length; index++) {
+                final AppleRemoteSequence sequence = registrations[index].sequence;
+                int current = 0;
+                for (int position = 0; position < sequence.length(); position++) {
+                    final int edge = current * codeCount + sequence.getCode(position);
+                    if (table[edge] < 0) {
+                        table[edge] = stateCount++;
+                        ends.add(new ArrayList<>());
+                    }
+                    current = table[edge];
+                }
+                ends.get(current).add(index);
+            }
+
+            // breadth first: the failure links, the missing edges from them, and the matches inherited from them
+            final int[] failures = new int[stateCount];
+            final Queue<Integer> queue = new ArrayDeque<>();
+            for (int code = 0; code < codeCount; code++) {
+                if (table[code] < 0) {
+                    table[code] = 0;
+                } else {
+                    queue.add(table[code]);
+                }
+            }
+            while (!queue.isEmpty()) {
+                final int current = queue.remove();
+                ends.get(current).addAll(ends.get(failures[current]));
+                for (int code = 0; code < codeCount; code++) {
+                    final int edge = current * codeCount + code;
+                    final int failureNext = table[failures[current] * codeCount + code];
+                    if (table[edge] < 0) {
+                        table[edge] = failureNext;
+                    } else {
+                        failures[table[edge]] = failureNext;
+                        queue.add(table[edge]);
+                    }
+                }
+            }
+
+            transitions = Arrays.copyOf(table, stateCount * codeCount);
+            matches = new int[stateCount][];
+            for (int current = 0; current < stateCount; current++) {
+                final List<Integer> stateEnds = ends.get(current);
+                matches[current] = new int[stateEnds.size()];
+                for (int index = 0; index < stateEnds.size(); index++) {
+                    matches[current][index] = stateEnds.get(index);
+                }
+            }
+        }
+    }
+}
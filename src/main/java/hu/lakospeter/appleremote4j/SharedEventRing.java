@@ -0,0 +1,348 @@
+package hu.lakospeter.appleremote4j;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * A single-writer/multi-reader ring of packed events (see {@link AppleRemoteEventCodes#pack(int, long)}) in
+ *  a memory-mapped file, shared by several processes on the same host.
+ *
+ * <br><br>
+ *
+ * Layout of the file (all values are native-endian <code>long</code>s or <code>int</code>s):
+ * <ul>
+ *     <li>Header, {@link #HEADER_SIZE} bytes: magic number, capacity, epoch and the check value of the three in the
+ *      first cache line, the sequence of the next event to be written in the second one.</li>
+ *     <li>Slots, {@link #SLOT_SIZE} bytes each: the sequence of the event in the slot plus one, the packed event, and
+ *      the check value of the two.</li>
+ * </ul>
+ *
+ * The writer never waits for the readers: a reader that falls more than a whole ring behind loses the overwritten
+ *  events. {@link MappedByteBuffer} offers no volatile or ordered access in Java 8, so the writes of the writer may
+ *  become visible to the readers in any order. Instead of relying on their order, every slot and the header carry
+ *  a check value, and a reader only accepts a slot (or a header) whose check value matches its contents, so it never
+ *  accepts a torn or partially initialized one. A volatile field is read before every read and written after every
+ *  write, so the compiler neither caches the mapped memory in a reader's loop nor delays the writes of the writer.
+ *
+ * <br><br>
+ *
+ * The file is never truncated, because the other processes may have mapped it: reopening it with a different
+ *  capacity only grows it, and initializes the ring again under a new epoch, which tells the readers to map it again.
+ *
+ * @author lakospeter
+ */
+final class SharedEventRing {
+
+    /**
+     * The value returned by {@link #read(long)} when the event is not visible yet, or it is being written.
+     */
+    static final long NOT_READY = -2L;
+
+    /**
+     * The value returned by {@link #read(long)} when the event was overwritten by the writer.
+     */
+    static final long OVERWRITTEN = -1L;
+
+    /**
+     * The value returned by {@link #epoch()} when the header is not valid (e.g. it is being initialized).
+     */
+    static final long NO_EPOCH = -1L;
+
+    /**
+     * The magic number at the beginning of a ring file.
+     */
+    private static final int MAGIC = 0x41523453;
+
+    /**
+     * The size of the header, in bytes.
+     */
+    private static final int HEADER_SIZE = 128;
+
+    /**
+     * The offset of the capacity in the header.
+     */
+    private static final int CAPACITY_OFFSET = 4;
+
+    /**
+     * The offset of the epoch in the header.
+     */
+    private static final int EPOCH_OFFSET = 8;
+
+    /**
+     * The offset of the check value of the header in the header.
+     */
+    private static final int HEADER_CHECK_OFFSET = 16;
+
+    /**
+     * The offset of the sequence of the next event to be written in the header.
+     */
+    private static final int WRITE_SEQUENCE_OFFSET = 64;
+
+    /**
+     * The size of a slot, in bytes.
+     */
+    private static final int SLOT_SIZE = 24;
+
+    /**
+     * The largest number of slots.
+     */
+    static final int MAX_CAPACITY = 1 << 24;
+
+    /**
+     * Read before every read and written after every write of the mapped memory, to keep the compiler from caching or
+     *  delaying its accesses.
+     */
+    private static volatile int fence;
+
+    /**
+     * The mapped memory of the file.
+     */
+    private final MappedByteBuffer buffer;
+
+    /**
+     * The number of slots. It is a power of two.
+     */
+    private final int capacity;
+
+
+    /**
+     * Maps a ring file.
+     *
+     * @param buffer The mapped memory of the file.
+     * @param capacity The number of slots.
+     */
+    private SharedEventRing(final MappedByteBuffer buffer, final int capacity) {
+        buffer.order(ByteOrder.nativeOrder());
+        this.buffer = buffer;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Opens a ring file for writing. If the file already holds a ring of the same capacity (e.g. the writer was
+     *  restarted), the ring continues from its last sequence, otherwise it is initialized under a new epoch.
+     *
+     * @param file The ring file.
+     * @param capacity The number of slots. It is rounded up to the next power of two.
+     * @return The ring.
+     * @throws IOException If the file cannot be created or mapped.
+     */
+    static SharedEventRing openForWriting(final Path file, final int capacity) throws IOException {
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        final int slots = 1 << (32 - Integer.numberOfLeadingZeros(capacity - 1));
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "rw")) {
+            final long size = size(slots);
+            if (randomAccessFile.length() < size) {
+                // only ever grown, so the readers that mapped the file never lose their pages
+                randomAccessFile.setLength(size);
+            }
+            final SharedEventRing ring = new SharedEventRing(
+                    randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size), slots);
+            if (ring.epoch() == NO_EPOCH || ring.capacityInHeader() != slots) {
+                ring.initialize(ring.buffer.getLong(EPOCH_OFFSET) + 1);
+            }
+            return ring;
+        }
+    }
+
+    /**
+     * Opens a ring file for reading.
+     *
+     * @param file The ring file.
+     * @return The ring.
+     * @throws IOException If the file cannot be mapped, or it was not initialized by a writer.
+     */
+    static SharedEventRing openForReading(final Path file) throws IOException {
+        final SharedEventRing ring = tryOpenForReading(file);
+        if (ring == null) {
+            throw new IOException("Not an AppleRemote event ring: " + file);
+        }
+        return ring;
+    }
+
+    /**
+     * Opens a ring file for reading, if its header is valid.
+     *
+     * @param file The ring file.
+     * @return The ring, or <code>null</code> if the file does not hold a valid ring (e.g. the writer is initializing
+     *          it).
+     * @throws IOException If the file cannot be mapped.
+     */
+    static SharedEventRing tryOpenForReading(final Path file) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "r")) {
+            final FileChannel channel = randomAccessFile.getChannel();
+            if (randomAccessFile.length() < HEADER_SIZE) {
+                return null;
+            }
+            final SharedEventRing header = new SharedEventRing(
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE), 0);
+            final long epoch = header.epoch();
+            final int capacity = header.capacityInHeader();
+            if (epoch == NO_EPOCH || randomAccessFile.length() < size(capacity)) {
+                return null;
+            }
+            final SharedEventRing ring = new SharedEventRing(
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, size(capacity)), capacity);
+            // the check value of the header covers the capacity, so it was not changed in the meantime
+            return ring.epoch() == epoch && ring.capacityInHeader() == capacity ? ring : null;
+        }
+    }
+
+    /**
+     * Returns the size of the file of a ring.
+     *
+     * @param capacity The number of slots.
+     * @return The size of the file, in bytes.
+     */
+    private static long size(final int capacity) {
+        return HEADER_SIZE + (long) capacity * SLOT_SIZE;
+    }
+
+    /**
+     * Initializes the header and the slots of a new ring. The header is invalidated first, and it is only valid
+     *  again when its check value is written.
+     *
+     * @param epoch The epoch of the new ring.
+     */
+    private void initialize(final long epoch) {
+        buffer.putInt(0, 0);
+        buffer.putLong(HEADER_CHECK_OFFSET, 0);
+        buffer.putLong(WRITE_SEQUENCE_OFFSET, 0);
+        for (int index = 0; index < capacity; index++) {
+            buffer.putLong(slotOffset(index), 0);
+        }
+        buffer.putInt(CAPACITY_OFFSET, capacity);
+        buffer.putLong(EPOCH_OFFSET, epoch);
+        buffer.putInt(0, MAGIC);
+        buffer.putLong(HEADER_CHECK_OFFSET, check(MAGIC + ((long) capacity << 32), epoch));
+        releaseFence();
+    }
+
+    /**
+     * Returns the epoch of the ring, which changes whenever the writer initializes the ring again.
+     *
+     * @return The epoch, or {@link #NO_EPOCH} if the header is not valid.
+     */
+    long epoch() {
+        acquireFence();
+        final int magic = buffer.getInt(0);
+        final int capacityInHeader = buffer.getInt(CAPACITY_OFFSET);
+        final long epoch = buffer.getLong(EPOCH_OFFSET);
+        final boolean valid = magic == MAGIC && capacityInHeader > 0 && capacityInHeader <= MAX_CAPACITY
+                && buffer.getLong(HEADER_CHECK_OFFSET) == check(magic + ((long) capacityInHeader << 32), epoch);
+        return valid ? epoch : NO_EPOCH;
+    }
+
+    /**
+     * Returns the capacity in the header.
+     *
+     * @return The capacity.
+     */
+    private int capacityInHeader() {
+        return buffer.getInt(CAPACITY_OFFSET);
+    }
+
+    /**
+     * Returns the number of slots.
+     *
+     * @return The capacity of the ring.
+     */
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the sequence of the next event to be written, i.e. the number of events written so far.
+     *
+     * @return The write sequence.
+     */
+    long writeSequence() {
+        acquireFence();
+        return buffer.getLong(WRITE_SEQUENCE_OFFSET);
+    }
+
+    /**
+     * Writes the next event. Only the single writer may call this method.
+     *
+     * @param packed The packed event.
+     */
+    void write(final long packed) {
+        final long sequence = buffer.getLong(WRITE_SEQUENCE_OFFSET);
+        final int slot = slotOffset((int) sequence & (capacity - 1));
+        buffer.putLong(slot + 8, packed);
+        buffer.putLong(slot + 16, check(sequence + 1, packed));
+        buffer.putLong(slot, sequence + 1);
+        buffer.putLong(WRITE_SEQUENCE_OFFSET, sequence + 1);
+        releaseFence();
+    }
+
+    /**
+     * Reads the event with the specified sequence.
+     *
+     * @param sequence The sequence of the event. It must be less than {@link #writeSequence()}.
+     * @return The packed event, {@link #NOT_READY} if the event is not visible yet (or the slot is being written), or
+     *          {@link #OVERWRITTEN} if the event was overwritten by the writer.
+     */
+    long read(final long sequence) {
+        acquireFence();
+        final int slot = slotOffset((int) sequence & (capacity - 1));
+        final long slotSequence = buffer.getLong(slot);
+        final long packed = buffer.getLong(slot + 8);
+        if (buffer.getLong(slot + 16) != check(slotSequence, packed)) {
+            return NOT_READY;
+        }
+        if (slotSequence == sequence + 1) {
+            return packed;
+        }
+        return slotSequence > sequence + 1 ? OVERWRITTEN : NOT_READY;
+    }
+
+    /**
+     * Reads {@link #fence}, so the reads of the mapped memory after it are not served from values read before it.
+     *
+     * @return The value of the fence, which is meaningless.
+     */
+    private static int acquireFence() {
+        return fence;
+    }
+
+    /**
+     * Writes {@link #fence}, so the writes of the mapped memory before it are not delayed after it.
+     */
+    private static void releaseFence() {
+        fence = 0;
+    }
+
+    /**
+     * Returns the offset of a slot.
+     *
+     * @param index The index of the slot.
+     * @return The offset of the slot in the file.
+     */
+    private static int slotOffset(final int index) {
+        return HEADER_SIZE + index * SLOT_SIZE;
+    }
+
+    /**
+     * Computes the check value of two values (the murmur3 finalizer of their combination), so that a slot or header
+     *  that was read while it was being written is rejected.
+     *
+     * @param first The first value.
+     * @param second The second value.
+     * @return The check value.
+     */
+    private static long check(final long first, final long second) {
+        long hash = first * 0x9E3779B97F4A7C15L ^ second;
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash ^ 0x5AFE5AFE5AFE5AFEL;
+    }
+}
@@ -0,0 +1,283 @@
+package hu.lakospeter.appleremote4j;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Accumulates the usage statistics of a chronological run of events (e.g. one split of an event log), and merges
+ *  with the accumulator of the following run.
+ *
+ * <br><br>
+ *
+ * Holds and press intervals may span two runs, so besides the statistics of the events within the run, it remembers
+ *  the unmatched hold stop at the beginning, the unfinished hold at the end, and the first and last press of every
+ *  button. These are matched up when two adjacent runs are merged.
+ *
+ * @author lakospeter
+ */
+final class UsageAccumulator {
+
+    /**
+     * The number of buckets of the duration histograms. Bucket <code>i</code> holds the durations in the
+     *  <code>[2^(i-1), 2^i)</code> milliseconds range, and bucket 0 holds the durations below 1 millisecond.
+     */
+    static final int HISTOGRAM_BUCKETS = 40;
+
+    /**
+     * The number of milliseconds in an hour.
+     */
+    private static final long HOUR_MILLIS = 3600000;
+
+    /**
+     * The number of buttons.
+     */
+    private static final int BUTTON_COUNT = AppleRemote.Button.values().length;
+
+    /**
+     * The maximum time between two presses of the same button that counts as a double press, in milliseconds.
+     */
+    private final long doublePressMillis;
+
+    /**
+     * The number of events of every event code.
+     */
+    final long[] counts = new long[AppleRemoteEventCodes.CODE_COUNT];
+
+    /**
+     * The number of lines that could not be parsed.
+     */
+    long malformedCount;
+
+    /**
+     * Histogram of the hold durations.
+     */
+    final long[] holdDurations = new long[HISTOGRAM_BUCKETS];
+
+    /**
+     * Histogram of the intervals between two presses of the same button.
+     */
+    final long[] pressIntervals = new long[HISTOGRAM_BUCKETS];
+
+    /**
+     * The number of double presses of every button.
+     */
+    final long[] doublePresses = new long[BUTTON_COUNT];
+
+    /**
+     * The number of events in every hour, keyed by the start of the hour in milliseconds since the epoch.
+     */
+    final TreeMap<Long, Long> hourlyCounts = new TreeMap<>();
+
+    /**
+     * The hour that {@link #currentHourCount} belongs to, or -1 if no timed event was seen yet.
+     */
+    private long currentHour = -1;
+
+    /**
+     * The number of events in {@link #currentHour} that were not added to {@link #hourlyCounts} yet.
+     */
+    private long currentHourCount;
+
+    /**
+     * The time of the first hold stop of every button that had no hold start before it in this run, or -1.
+     */
+    private final long[] leadingHoldStops = filled(-1);
+
+    /**
+     * The start time of the hold of every button that is not stopped at the end of this run, or -1.
+     */
+    private final long[] openHoldStarts = filled(-1);
+
+    /**
+     * Whether a hold of every button was started or stopped in this run.
+     */
+    private final boolean[] holdSeen = new boolean[BUTTON_COUNT];
+
+    /**
+     * The time of the first press of every button in this run, or -1.
+     */
+    private final long[] firstPresses = filled(-1);
+
+    /**
+     * The time of the last press of every button in this run, or -1.
+     */
+    private final long[] lastPresses = filled(-1);
+
+
+    /**
+     * Creates an empty accumulator.
+     *
+     * @param doublePressMillis The maximum time between two presses of the same button that counts as a double press.
+     */
+    UsageAccumulator(final long doublePressMillis) {
+        this.doublePressMillis = doublePressMillis;
+    }
+
+    /**
+     * Adds an event. Events must be added in chronological order.
+     *
+     * @param code The event code.
+     * @param when The time of the event in milliseconds since the epoch, or -1 if it is not known.
+     */
+    void add(final int code, final long when) {
+        counts[code]++;
+        if (when < 0) {
+            return;
+        }
+
+        final long hour = when - when % HOUR_MILLIS;
+        if (hour != currentHour) {
+            flushHour();
+            currentHour = hour;
+        }
+        currentHourCount++;
+
+        final int button = AppleRemoteEventCodes.button(code).ordinal();
+        switch (AppleRemoteEventCodes.kind(code)) {
+            case HOLD_STARTED:
+                        openHoldStarts[button] = when;
+                        holdSeen[button] = true;
+                        break;
+            case HOLD_STOPPED:
+                        if (openHoldStarts[button] >= 0) {
+                            holdDurations[bucket(when - openHoldStarts[button])]++;
+                            openHoldStarts[button] = -1;
+                        } else if (!holdSeen[button]) {
+                            leadingHoldStops[button] = when;
+                        }
+                        holdSeen[button] = true;
+                        break;
+            case PRESSED:
+                        press(button, when);
+                        break;
+            default:
+                        break;
+        }
+    }
+
+    /**
+     * Adds a line that could not be parsed.
+     */
+    void addMalformed() {
+        malformedCount++;
+    }
+
+    /**
+     * Records a press of a button.
+     *
+     * @param button The ordinal of the button.
+     * @param when The time of the press.
+     */
+    private void press(final int button, final long when) {
+        if (lastPresses[button] >= 0) {
+            interval(button, when - lastPresses[button]);
+        } else {
+            firstPresses[button] = when;
+        }
+        lastPresses[button] = when;
+    }
+
+    /**
+     * Records the interval between two consecutive presses of a button.
+     *
+     * @param button The ordinal of the button.
+     * @param interval The interval in milliseconds.
+     */
+    private void interval(final int button, final long interval) {
+        pressIntervals[bucket(interval)]++;
+        if (interval <= doublePressMillis) {
+            doublePresses[button]++;
+        }
+    }
+
+    /**
+     * Adds the pending count of the current hour to {@link #hourlyCounts}.
+     */
+    private void flushHour() {
+        if (currentHourCount > 0) {
+            hourlyCounts.merge(currentHour, currentHourCount, Long::sum);
+            currentHourCount = 0;
+        }
+    }
+
+    /**
+     * Merges the accumulator of the run that directly follows this run into this accumulator.
+     *
+     * @param next The accumulator of the following run.
+     * @return This accumulator.
+     */
+    UsageAccumulator merge(final UsageAccumulator next) {
+        flushHour();
+        next.flushHour();
+
+        for (int code = 0; code < counts.length; code++) {
+            counts[code] += next.counts[code];
+        }
+        malformedCount += next.malformedCount;
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+            holdDurations[i] += next.holdDurations[i];
+            pressIntervals[i] += next.pressIntervals[i];
+        }
+        for (Map.Entry<Long, Long> entry : next.hourlyCounts.entrySet()) {
+            hourlyCounts.merge(entry.getKey(), entry.getValue(), Long::sum);
+        }
+
+        for (int button = 0; button < BUTTON_COUNT; button++) {
+            doublePresses[button] += next.doublePresses[button];
+
+            if (openHoldStarts[button] >= 0 && next.leadingHoldStops[button] >= 0) {
+                holdDurations[bucket(next.leadingHoldStops[button] - openHoldStarts[button])]++;
+            }
+            if (!holdSeen[button]) {
+                leadingHoldStops[button] = next.leadingHoldStops[button];
+            }
+            if (next.holdSeen[button]) {
+                openHoldStarts[button] = next.openHoldStarts[button];
+            }
+            holdSeen[button] |= next.holdSeen[button];
+
+            if (next.firstPresses[button] >= 0) {
+                if (lastPresses[button] >= 0) {
+                    interval(button, next.firstPresses[button] - lastPresses[button]);
+                } else {
+                    firstPresses[button] = next.firstPresses[button];
+                }
+                lastPresses[button] = next.lastPresses[button];
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Finishes accumulation, so that {@link #hourlyCounts} is complete.
+     *
+     * @return This accumulator.
+     */
+    UsageAccumulator finish() {
+        flushHour();
+        return this;
+    }
+
+    /**
+     * Returns the histogram bucket of a duration.
+     *
+     * @param millis The duration in milliseconds.
+     * @return The index of the bucket.
+     */
+    static int bucket(final long millis) {
+        return millis < 1 ? 0 : Math.min(HISTOGRAM_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(millis));
+    }
+
+    /**
+     * Creates an array with one element per button, filled with the specified value.
+     *
+     * @param value The value.
+     * @return The array.
+     */
+    private static long[] filled(final long value) {
+        final long[] array = new long[BUTTON_COUNT];
+        Arrays.fill(array, value);
+        return array;
+    }
+}
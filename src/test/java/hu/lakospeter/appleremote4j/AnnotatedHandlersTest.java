@@ -0,0 +1,164 @@
+package hu.lakospeter.appleremote4j;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests of the registration of annotated listeners (see {@link OnButton}). iremotepipe's output is fed from memory
+ *  to an AppleRemote that is not started.
+ *
+ * @author lakospeter
+ */
+public class AnnotatedHandlersTest {
+
+    /**
+     * The AppleRemote under test.
+     */
+    private AppleRemote appleRemote;
+
+
+    /**
+     * Creates an AppleRemote that is not started.
+     */
+    @Before
+    public void setUp() {
+        appleRemote = new AppleRemote(Collections.singletonList("iremotepipe"), false);
+    }
+
+    /**
+     * Checks that every method of a listener is called, when it has several methods for the same button and kind.
+     *
+     * @throws IOException Never, the output is read from memory.
+     */
+    @Test
+    public void everyMethodOfTheSameButtonAndKindIsCalled() throws IOException {
+        final TwoNextHandlers listener = new TwoNextHandlers();
+        appleRemote.addAnnotatedListener(listener);
+        appleRemote.addAnnotatedListener(listener);
+
+        processOutput(AppleRemote.Button.NEXT, AppleRemote.Button.NEXT, AppleRemote.Button.MENU);
+
+        assertEquals("a", 2, listener.a);
+        assertEquals("b", 2, listener.b);
+    }
+
+    /**
+     * Checks that an annotated method that is overridden by an annotated method of a subclass is called once per
+     *  event.
+     *
+     * @throws IOException Never, the output is read from memory.
+     */
+    @Test
+    public void reannotatedOverriddenMethodIsCalledOnce() throws IOException {
+        final ReannotatedNextHandler listener = new ReannotatedNextHandler();
+        appleRemote.addAnnotatedListener(listener);
+
+        processOutput(AppleRemote.Button.NEXT, AppleRemote.Button.NEXT, AppleRemote.Button.NEXT);
+
+        assertEquals(3, listener.count);
+    }
+
+    /**
+     * Checks that a removed listener is not called anymore.
+     *
+     * @throws IOException Never, the output is read from memory.
+     */
+    @Test
+    public void removedListenerIsNotCalled() throws IOException {
+        final TwoNextHandlers listener = new TwoNextHandlers();
+        appleRemote.addAnnotatedListener(listener);
+        appleRemote.removeAnnotatedListener(listener);
+
+        processOutput(AppleRemote.Button.NEXT);
+
+        assertEquals("a", 0, listener.a);
+        assertEquals("b", 0, listener.b);
+    }
+
+    /**
+     * Feeds the presses of the specified buttons to the AppleRemote under test.
+     *
+     * @param buttons The buttons that are pressed.
+     * @throws IOException Never, the output is read from memory.
+     */
+    private void processOutput(final AppleRemote.Button... buttons) throws IOException {
+        final StringBuilder output = new StringBuilder();
+        for (AppleRemote.Button button : buttons) {
+            output.append(AppleRemoteEventCodes.iRemotePipeLine(
+                    AppleRemoteEventCodes.code(button, AppleRemote.Kind.PRESSED))).append('\n');
+        }
+        appleRemote.processOutput(new ByteArrayInputStream(output.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Listener with two methods for the presses of the Next button.
+     */
+    public static class TwoNextHandlers {
+
+        /**
+         * The number of calls of {@link #a()}.
+         */
+        private int a;
+
+        /**
+         * The number of calls of {@link #b(AppleRemoteEvent)}.
+         */
+        private int b;
+
+        /**
+         * Counts a press of the Next button.
+         */
+        @OnButton(button = AppleRemote.Button.NEXT)
+        public void a() {
+            a++;
+        }
+
+        /**
+         * Counts a press of the Next button.
+         *
+         * @param e The event.
+         */
+        @OnButton(button = AppleRemote.Button.NEXT)
+        public void b(final AppleRemoteEvent e) {
+            b++;
+        }
+    }
+
+    /**
+     * Listener whose handler of the presses of the Next button is annotated.
+     */
+    public static class NextHandler {
+
+        /**
+         * The number of presses of the Next button.
+         */
+        protected int count;
+
+        /**
+         * Counts a press of the Next button.
+         */
+        @OnButton(button = AppleRemote.Button.NEXT)
+        public void next() {
+            count++;
+        }
+    }
+
+    /**
+     * Listener that overrides and annotates the handler of its superclass again.
+     */
+    public static class ReannotatedNextHandler extends NextHandler {
+
+        @Override
+        @OnButton(button = AppleRemote.Button.NEXT)
+        public void next() {
+            super.next();
+        }
+    }
+}
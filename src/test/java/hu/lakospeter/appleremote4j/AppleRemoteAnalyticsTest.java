@@ -0,0 +1,248 @@
+package hu.lakospeter.appleremote4j;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of {@link AppleRemoteAnalytics}: the splits of a log are analyzed separately, so the statistics must not
+ *  depend on where the log is cut.
+ *
+ * @author lakospeter
+ */
+public class AppleRemoteAnalyticsTest {
+
+    /**
+     * The smallest allowed split size.
+     */
+    private static final int MIN_SPLIT_SIZE = 4096;
+
+    /**
+     * The split sizes the results of the default split size are compared with. Most of them are not multiples of
+     *  the line length, so lines straddle the splits at different offsets.
+     */
+    private static final long[] SPLIT_SIZES = {MIN_SPLIT_SIZE, MIN_SPLIT_SIZE + 13, 5000, 7777, 65536};
+
+    /**
+     * The log file.
+     */
+    private Path file;
+
+
+    /**
+     * Creates the log file.
+     *
+     * @throws IOException If the file cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("appleremote", ".log");
+    }
+
+    /**
+     * Deletes the log file.
+     *
+     * @throws IOException If the file cannot be deleted.
+     */
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Checks that every line is counted exactly once when lines straddle the boundaries of the splits, including
+     *  a line that starts on the last byte of a split and a line that ends on it.
+     *
+     * @throws IOException If the log cannot be written or read.
+     */
+    @Test
+    public void linesStraddlingSplitsAreCountedOnce() throws IOException {
+        final String line = AppleRemoteEventCodes.iRemotePipeLine(
+                AppleRemoteEventCodes.code(AppleRemote.Button.MENU, AppleRemote.Kind.PRESSED)) + '\n';
+        final StringBuilder log = new StringBuilder();
+        int lines = 0;
+        // pads the log so the next line straddles the boundary of the first split
+        while (log.length() + line.length() <= MIN_SPLIT_SIZE - line.length() / 2) {
+            log.append(line);
+            lines++;
+        }
+        log.append(spaces(MIN_SPLIT_SIZE - line.length() / 2 - log.length())).append(line);
+        lines++;
+        // the next line ends with the last byte of the second split
+        log.append(spaces(2 * MIN_SPLIT_SIZE - line.length() - log.length())).append(line);
+        lines++;
+        // and the next line starts with the last byte of the third split
+        log.append(spaces(3 * MIN_SPLIT_SIZE - 1 - log.length())).append(line);
+        lines++;
+        Files.write(file, log.toString().getBytes(StandardCharsets.US_ASCII));
+
+        final AppleRemoteUsageReport report = analytics(MIN_SPLIT_SIZE).analyzeTextLog(file);
+
+        assertEquals(lines, report.getCount(AppleRemote.Button.MENU, AppleRemote.Kind.PRESSED));
+        assertEquals(lines, report.getTotalCount());
+        assertEquals(0, report.getMalformedCount());
+    }
+
+    /**
+     * Checks that analyzing a text log in splits of several sizes gives the same statistics as analyzing it in
+     *  a single split. The holds and press intervals of the log span the boundaries of the splits.
+     *
+     * @throws IOException If the log cannot be written or read.
+     */
+    @Test
+    public void textLogStatisticsDoNotDependOnSplitSize() throws IOException {
+        final List<String> lines = new ArrayList<>();
+        final Random random = new Random(42);
+        long when = 1424382566000L;
+        for (int index = 0; index < 5000; index++) {
+            when += random.nextInt(800);
+            final AppleRemote.Button button = AppleRemote.Button.values()[random.nextInt(7)];
+            final int choice = random.nextInt(20);
+            if (choice == 0) {
+                lines.add(when + " {\"type\":\"menu\",\"hold\":");
+            } else if (choice == 1) {
+                lines.add("");
+            } else if (choice == 2) {
+                lines.add(line(button, AppleRemote.Kind.PRESSED));
+            } else if (choice < 8) {
+                lines.add(when + " " + line(button, AppleRemote.Kind.HOLD_STARTED));
+                when += random.nextInt(3000);
+                lines.add(when + "\t" + line(button, AppleRemote.Kind.HOLD_STOPPED));
+            } else {
+                lines.add(when + " " + line(button, AppleRemote.Kind.PRESSED));
+            }
+        }
+        Files.write(file, lines, StandardCharsets.US_ASCII);
+        assertTrue("The log is too short to be split", Files.size(file) > 20 * MIN_SPLIT_SIZE);
+
+        final AppleRemoteUsageReport expected = analytics(AppleRemoteAnalytics.DEFAULT_SPLIT_SIZE).analyzeTextLog(file);
+        for (final long splitSize : SPLIT_SIZES) {
+            assertReportEquals(splitSize, expected, analytics(splitSize).analyzeTextLog(file));
+        }
+    }
+
+    /**
+     * Checks that analyzing a binary log in splits of several sizes gives the same statistics as analyzing it in
+     *  a single split.
+     *
+     * @throws IOException If the log cannot be written or read.
+     */
+    @Test
+    public void binaryLogStatisticsDoNotDependOnSplitSize() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final Random random = new Random(7);
+        long when = 1424382566000L;
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            for (int index = 0; index < 20000; index++) {
+                when += random.nextInt(800);
+                final AppleRemote.Button button = AppleRemote.Button.values()[random.nextInt(7)];
+                if (random.nextInt(4) == 0) {
+                    output.writeLong(AppleRemoteEventCodes.pack(
+                            AppleRemoteEventCodes.code(button, AppleRemote.Kind.HOLD_STARTED), when));
+                    when += random.nextInt(3000);
+                    output.writeLong(AppleRemoteEventCodes.pack(
+                            AppleRemoteEventCodes.code(button, AppleRemote.Kind.HOLD_STOPPED), when));
+                } else {
+                    output.writeLong(AppleRemoteEventCodes.pack(
+                            AppleRemoteEventCodes.code(button, AppleRemote.Kind.PRESSED), when));
+                }
+            }
+        }
+        Files.write(file, bytes.toByteArray());
+
+        final AppleRemoteUsageReport expected =
+                analytics(AppleRemoteAnalytics.DEFAULT_SPLIT_SIZE).analyzeBinaryLog(file);
+        for (final long splitSize : SPLIT_SIZES) {
+            assertReportEquals(splitSize, expected, analytics(splitSize).analyzeBinaryLog(file));
+        }
+    }
+
+    /**
+     * Checks that split sizes that cannot be mapped are rejected.
+     */
+    @Test
+    public void splitSizeOutOfRangeIsRejected() {
+        for (final long splitSize : new long[] {MIN_SPLIT_SIZE - 1, Integer.MAX_VALUE, Long.MAX_VALUE}) {
+            try {
+                analytics(splitSize);
+                fail("Split size accepted: " + splitSize);
+            } catch (IllegalArgumentException ex) {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * Checks that two reports hold the same statistics.
+     *
+     * @param splitSize The split size the actual report was computed with.
+     * @param expected The expected report.
+     * @param actual The actual report.
+     */
+    private static void assertReportEquals(final long splitSize, final AppleRemoteUsageReport expected,
+                                           final AppleRemoteUsageReport actual) {
+        final String message = "Split size " + splitSize;
+        for (final AppleRemote.Button button : AppleRemote.Button.values()) {
+            for (final AppleRemote.Kind kind : AppleRemote.Kind.values()) {
+                assertEquals(message, expected.getCount(button, kind), actual.getCount(button, kind));
+            }
+            assertEquals(message, expected.getDoublePressCount(button), actual.getDoublePressCount(button));
+        }
+        assertEquals(message, expected.getMalformedCount(), actual.getMalformedCount());
+        assertArrayEquals(message, expected.getHoldDurationHistogram(), actual.getHoldDurationHistogram());
+        assertArrayEquals(message, expected.getPressIntervalHistogram(), actual.getPressIntervalHistogram());
+        assertEquals(message, expected.getHourlyCounts(), actual.getHourlyCounts());
+    }
+
+    /**
+     * Creates an AppleRemoteAnalytics with the default double press interval.
+     *
+     * @param splitSize The size of the splits of a log, in bytes.
+     * @return The AppleRemoteAnalytics.
+     */
+    private static AppleRemoteAnalytics analytics(final long splitSize) {
+        return new AppleRemoteAnalytics(ForkJoinPool.commonPool(), AppleRemoteAnalytics.DEFAULT_DOUBLE_PRESS_MILLIS,
+                                        splitSize);
+    }
+
+    /**
+     * Returns the line of iremotepipe's output of an event, without its line terminator.
+     *
+     * @param button The button.
+     * @param kind The kind of the event.
+     * @return The line.
+     */
+    private static String line(final AppleRemote.Button button, final AppleRemote.Kind kind) {
+        return AppleRemoteEventCodes.iRemotePipeLine(AppleRemoteEventCodes.code(button, kind));
+    }
+
+    /**
+     * Returns a string of spaces, which pads a log with whitespace only lines.
+     *
+     * @param count The number of spaces.
+     * @return The spaces.
+     */
+    private static String spaces(final int count) {
+        final StringBuilder spaces = new StringBuilder();
+        for (int index = 0; index < count; index++) {
+            spaces.append(index == count - 1 ? '\n' : ' ');
+        }
+        return spaces.toString();
+    }
+}
@@ -0,0 +1,154 @@
+package hu.lakospeter.appleremote4j;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the focus contexts of {@link AppleRemote} (see {@link AppleRemoteContext}). iremotepipe's output is fed to
+ *  an AppleRemote that is not started.
+ *
+ * @author lakospeter
+ */
+public class AppleRemoteContextTest {
+
+    /**
+     * The AppleRemote under test.
+     */
+    private AppleRemote appleRemote;
+
+    /**
+     * The names of the handlers that handled the events, in the order they handled them.
+     */
+    private List<String> handled;
+
+
+    /**
+     * Creates an AppleRemote that is not started.
+     */
+    @Before
+    public void setUp() {
+        appleRemote = new AppleRemote(Collections.singletonList("iremotepipe"), false);
+        handled = new ArrayList<>();
+    }
+
+    /**
+     * Checks that the events the top context has no handler for fall through to the context below it if the top
+     *  context falls through, and are not routed to any context otherwise.
+     *
+     * @throws IOException Never, the output is read from memory.
+     */
+    @Test
+    public void eventsFallThroughOnlyFromFallThroughContexts() throws IOException {
+        appleRemote.pushContext(context("screen", false, AppleRemote.Button.MENU, AppleRemote.Button.NEXT));
+        appleRemote.pushContext(context("overlay", true, AppleRemote.Button.MENU));
+
+        press(AppleRemote.Button.MENU);
+        press(AppleRemote.Button.NEXT);
+        press(AppleRemote.Button.SELECT);
+        assertEquals(Arrays.asList("overlay MENU", "screen NEXT"), handled);
+
+        handled.clear();
+        appleRemote.pushContext(context("dialog", false, AppleRemote.Button.SELECT));
+        press(AppleRemote.Button.MENU);
+        press(AppleRemote.Button.NEXT);
+        press(AppleRemote.Button.SELECT);
+        assertEquals(Collections.singletonList("dialog SELECT"), handled);
+    }
+
+    /**
+     * Checks that a context can be removed from below the top of the stack, and that the events falling through the
+     *  contexts above it are routed to the context below it after that.
+     *
+     * @throws IOException Never, the output is read from memory.
+     */
+    @Test
+    public void contextBelowTopIsRemoved() throws IOException {
+        appleRemote.pushContext(context("screen", false, AppleRemote.Button.MENU, AppleRemote.Button.NEXT));
+        final AppleRemoteContext player = context("player", true, AppleRemote.Button.NEXT);
+        appleRemote.pushContext(player);
+        final AppleRemoteContext overlay = context("overlay", true, AppleRemote.Button.SELECT);
+        appleRemote.pushContext(overlay);
+        press(AppleRemote.Button.NEXT);
+
+        assertTrue(appleRemote.removeContext(player));
+        assertSame(overlay, appleRemote.getContext());
+        press(AppleRemote.Button.NEXT);
+        press(AppleRemote.Button.SELECT);
+
+        assertEquals(Arrays.asList("player NEXT", "screen NEXT", "overlay SELECT"), handled);
+        assertFalse(appleRemote.removeContext(player));
+    }
+
+    /**
+     * Checks that the events are routed to the handlers of the new top context after the top context is popped, and
+     *  that a handler added to a context after it was pushed only takes effect when it is pushed again.
+     *
+     * @throws IOException Never, the output is read from memory.
+     */
+    @Test
+    public void handlersAreResolvedAgainAfterPop() throws IOException {
+        final AppleRemoteContext screen = context("screen", false, AppleRemote.Button.MENU);
+        appleRemote.pushContext(screen);
+        final AppleRemoteContext dialog = context("dialog", false, AppleRemote.Button.MENU);
+        appleRemote.pushContext(dialog);
+        press(AppleRemote.Button.MENU);
+        dialog.on(AppleRemote.Button.SELECT, e -> handled.add("dialog SELECT"));
+        press(AppleRemote.Button.SELECT);
+
+        assertSame(dialog, appleRemote.popContext());
+        assertSame(screen, appleRemote.getContext());
+        press(AppleRemote.Button.MENU);
+        press(AppleRemote.Button.SELECT);
+        appleRemote.pushContext(dialog);
+        press(AppleRemote.Button.SELECT);
+
+        assertEquals(Arrays.asList("dialog MENU", "screen MENU", "dialog SELECT"), handled);
+        appleRemote.popContext();
+        assertSame(screen, appleRemote.popContext());
+        assertNull(appleRemote.popContext());
+        assertNull(appleRemote.getContext());
+    }
+
+    /**
+     * Creates a context that records the presses of some buttons with its name.
+     *
+     * @param name The name of the context.
+     * @param fallThrough Whether the context falls through.
+     * @param buttons The buttons the context handles the presses of.
+     * @return The context.
+     */
+    private AppleRemoteContext context(final String name, final boolean fallThrough,
+                                       final AppleRemote.Button... buttons) {
+        final AppleRemoteContext context = new AppleRemoteContext(name, fallThrough);
+        for (AppleRemote.Button button : buttons) {
+            context.on(button, e -> handled.add(name + " " + e.getButton()));
+        }
+        return context;
+    }
+
+    /**
+     * Feeds a press of a button to the AppleRemote.
+     *
+     * @param button The pressed button.
+     * @throws IOException Never, the output is read from memory.
+     */
+    private void press(final AppleRemote.Button button) throws IOException {
+        final String line = AppleRemoteEventCodes.iRemotePipeLine(
+                AppleRemoteEventCodes.code(button, AppleRemote.Kind.PRESSED)) + '\n';
+        appleRemote.processOutput(new ByteArrayInputStream(line.getBytes(StandardCharsets.UTF_8)));
+    }
+}
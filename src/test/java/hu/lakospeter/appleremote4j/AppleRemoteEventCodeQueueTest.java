@@ -0,0 +1,126 @@
+package hu.lakospeter.appleremote4j;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of {@link AppleRemoteEventCodeQueue}. The test is the producer of the queues, so it offers the events
+ *  directly.
+ *
+ * @author lakospeter
+ */
+public class AppleRemoteEventCodeQueueTest {
+
+    /**
+     * The number of events the producer offers in the concurrent test.
+     */
+    private static final int OFFERED_COUNT = 2000000;
+
+    /**
+     * Checks that the events are taken in the order they were offered, by polling and draining.
+     */
+    @Test
+    public void eventsAreTakenInOrder() {
+        final AppleRemoteEventCodeQueue queue = new AppleRemoteEventCodeQueue(8);
+        for (int when = 0; when < 5; when++) {
+            queue.offer(code(when), when);
+        }
+
+        assertEquals(AppleRemoteEventCodes.pack(code(0), 0), queue.poll());
+        final long[] packedEvents = new long[3];
+        assertEquals(3, queue.drainTo(packedEvents));
+        for (int index = 0; index < packedEvents.length; index++) {
+            assertEquals(AppleRemoteEventCodes.pack(code(index + 1), index + 1), packedEvents[index]);
+        }
+        assertEquals(1, queue.drainTo(packedEvents));
+        assertEquals(AppleRemoteEventCodes.pack(code(4), 4), packedEvents[0]);
+        assertEquals(AppleRemoteEventCodeQueue.EMPTY, queue.poll());
+        assertEquals(0, queue.size());
+    }
+
+    /**
+     * Checks that the events offered to a full queue are dropped and counted, and the oldest events are kept.
+     */
+    @Test
+    public void eventsOverCapacityAreDroppedAndCounted() {
+        final AppleRemoteEventCodeQueue queue = new AppleRemoteEventCodeQueue(3);
+        assertEquals(4, queue.capacity());
+        for (int when = 0; when < 6; when++) {
+            assertEquals("Offer " + when, when < 4, queue.offer(code(when), when));
+        }
+
+        assertEquals(2, queue.getOverflowCount());
+        assertEquals(4, queue.size());
+        for (int when = 0; when < 4; when++) {
+            assertEquals(AppleRemoteEventCodes.pack(code(when), when), queue.poll());
+        }
+        assertEquals(AppleRemoteEventCodeQueue.EMPTY, queue.poll());
+        // there is room again after the consumer caught up
+        assertTrue(queue.offer(code(6), 6));
+        assertEquals(AppleRemoteEventCodes.pack(code(6), 6), queue.poll());
+    }
+
+    /**
+     * Checks that a consumer racing a producer takes every event that was not dropped exactly once, in order.
+     *
+     * @throws InterruptedException If the test is interrupted.
+     */
+    @Test
+    public void consumerRacingProducerTakesEveryEventOnce() throws InterruptedException {
+        final AppleRemoteEventCodeQueue queue = new AppleRemoteEventCodeQueue(64);
+        final Thread producer = new Thread(() -> {
+            for (int when = 0; when < OFFERED_COUNT; when++) {
+                queue.offer(code(when), when);
+            }
+        });
+        producer.start();
+
+        final long[] packedEvents = new long[16];
+        long received = 0;
+        long lastWhen = -1;
+        try {
+            while (producer.isAlive() || queue.size() > 0) {
+                final long polled = queue.poll();
+                if (polled != AppleRemoteEventCodeQueue.EMPTY) {
+                    lastWhen = checkNext(polled, lastWhen);
+                    received++;
+                }
+                final int count = queue.drainTo(packedEvents);
+                for (int index = 0; index < count; index++) {
+                    lastWhen = checkNext(packedEvents[index], lastWhen);
+                }
+                received += count;
+            }
+        } finally {
+            producer.join();
+        }
+
+        assertEquals(OFFERED_COUNT, received + queue.getOverflowCount());
+    }
+
+    /**
+     * Checks that a taken event is newer than the previous one, and its event code is the one it was offered with.
+     *
+     * @param packed The packed event.
+     * @param lastWhen The time of the previous event.
+     * @return The time of the event.
+     */
+    private static long checkNext(final long packed, final long lastWhen) {
+        final long when = AppleRemoteEventCodes.unpackWhen(packed);
+        assertTrue("Event " + when + " after " + lastWhen, when > lastWhen);
+        assertEquals(code(when), AppleRemoteEventCodes.unpackCode(packed));
+        return when;
+    }
+
+    /**
+     * Returns the event code offered with an event time in the tests, so the code of a taken event can be checked.
+     *
+     * @param when The time of the event.
+     * @return The event code.
+     */
+    private static int code(final long when) {
+        return (int) (when % AppleRemoteEventCodes.CODE_COUNT);
+    }
+}
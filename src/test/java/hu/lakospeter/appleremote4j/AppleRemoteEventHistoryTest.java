@@ -0,0 +1,117 @@
+package hu.lakospeter.appleremote4j;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of {@link AppleRemoteEventHistory}.
+ *
+ * @author lakospeter
+ */
+public class AppleRemoteEventHistoryTest {
+
+    /**
+     * The number of events the writer records in the concurrent test.
+     */
+    private static final long RECORDED_COUNT = 20000000;
+
+    /**
+     * Checks that the last events are returned oldest first, at most as many as the capacity.
+     */
+    @Test
+    public void lastEventsAreReturnedOldestFirst() {
+        final AppleRemoteEventHistory history = new AppleRemoteEventHistory(this, 4);
+        for (int when = 1; when <= 6; when++) {
+            history.record(code(when), when);
+        }
+
+        final List<AppleRemoteEvent> lastEvents = history.getLast(10);
+
+        assertEquals(4, lastEvents.size());
+        for (int index = 0; index < lastEvents.size(); index++) {
+            assertEquals(3 + index, lastEvents.get(index).getWhen());
+            assertEquals(code(3 + index), lastEvents.get(index).getCode());
+        }
+        assertEquals(0, history.getLast(0).size());
+        assertEquals(6, history.getRecordedCount());
+    }
+
+    /**
+     * Checks that a negative count is rejected.
+     */
+    @Test
+    public void negativeCountIsRejected() {
+        final AppleRemoteEventHistory history = new AppleRemoteEventHistory(this, 4);
+        try {
+            history.getLast(-1);
+            fail("Negative count accepted");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+        try {
+            history.getLast(AppleRemote.Button.MENU, -1);
+            fail("Negative count accepted by button");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    /**
+     * Checks that the events copied while a writer keeps overwriting the ring are always consecutive events that
+     *  were recorded together, that is, an overwritten event is never returned.
+     *
+     * @throws InterruptedException If the test is interrupted.
+     */
+    @Test
+    public void overwrittenEventsAreNeverCopied() throws InterruptedException {
+        final AppleRemoteEventHistory history = new AppleRemoteEventHistory(this, 8);
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final Thread writer = new Thread(() -> {
+            for (long when = 0; when < RECORDED_COUNT; when++) {
+                history.record(code(when), when);
+            }
+            writing.set(false);
+        });
+        writer.start();
+
+        final long[] packedEvents = new long[8];
+        long copies = 0;
+        long lastWhen = -1;
+        try {
+            while (writing.get()) {
+                final int copied = history.copyLast(packedEvents);
+                for (int index = 0; index < copied; index++) {
+                    final long when = AppleRemoteEventCodes.unpackWhen(packedEvents[index]);
+                    assertEquals("Event code of " + when, code(when),
+                                 AppleRemoteEventCodes.unpackCode(packedEvents[index]));
+                    if (index > 0) {
+                        assertEquals("Event after " + lastWhen, lastWhen + 1, when);
+                    }
+                    lastWhen = when;
+                }
+                copies++;
+            }
+        } finally {
+            writer.join();
+        }
+
+        assertTrue("The reader did not copy concurrently with the writer", copies > 0);
+        assertEquals(RECORDED_COUNT, history.getRecordedCount());
+    }
+
+    /**
+     * Returns the event code recorded with an event time in the tests, so the code of a copied event can be checked.
+     *
+     * @param when The time of the event.
+     * @return The event code.
+     */
+    private static int code(final long when) {
+        return (int) (when % AppleRemoteEventCodes.CODE_COUNT);
+    }
+}
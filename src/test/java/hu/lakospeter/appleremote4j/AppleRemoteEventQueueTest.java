@@ -0,0 +1,141 @@
+package hu.lakospeter.appleremote4j;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of {@link AppleRemoteEventQueue}. The test is the producer of the queues, so it offers the events directly.
+ *
+ * @author lakospeter
+ */
+public class AppleRemoteEventQueueTest {
+
+    /**
+     * The number of events the producer offers in the concurrent test.
+     */
+    private static final int OFFERED_COUNT = 2000000;
+
+    /**
+     * Checks that the events are taken in the order they were offered, by polling and draining.
+     */
+    @Test
+    public void eventsAreTakenInOrder() {
+        final AppleRemoteEventQueue queue = new AppleRemoteEventQueue(8);
+        final AppleRemoteEvent[] events = new AppleRemoteEvent[5];
+        for (int index = 0; index < events.length; index++) {
+            events[index] = event(index);
+            queue.offer(events[index]);
+        }
+
+        assertSame(events[0], queue.poll());
+        final List<AppleRemoteEvent> drained = new ArrayList<>();
+        assertEquals(2, queue.drainTo(drained, 2));
+        assertEquals(2, queue.drainTo(drained));
+        assertEquals(0, queue.drainTo(drained, 0));
+
+        assertEquals(4, drained.size());
+        for (int index = 0; index < drained.size(); index++) {
+            assertSame(events[index + 1], drained.get(index));
+        }
+        assertNull(queue.poll());
+        assertEquals(0, queue.size());
+    }
+
+    /**
+     * Checks that the events offered to a full queue are dropped and counted, and the oldest events are kept.
+     */
+    @Test
+    public void eventsOverCapacityAreDroppedAndCounted() {
+        final AppleRemoteEventQueue queue = new AppleRemoteEventQueue(3);
+        assertEquals(4, queue.capacity());
+        for (int when = 0; when < 6; when++) {
+            assertEquals("Offer " + when, when < 4, queue.offer(event(when)));
+        }
+
+        assertEquals(2, queue.getOverflowCount());
+        assertEquals(4, queue.size());
+        for (int when = 0; when < 4; when++) {
+            assertEquals(when, queue.poll().getWhen());
+        }
+        assertNull(queue.poll());
+        // there is room again after the consumer caught up
+        assertTrue(queue.offer(event(6)));
+        assertEquals(6, queue.poll().getWhen());
+    }
+
+    /**
+     * Checks that a negative maximum number of events is rejected, and the queue is left intact.
+     */
+    @Test
+    public void negativeMaxEventsIsRejected() {
+        final AppleRemoteEventQueue queue = new AppleRemoteEventQueue(4);
+        queue.offer(event(0));
+        try {
+            queue.drainTo(new ArrayList<>(), -1);
+            fail("Negative maximum number of events accepted");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+        assertEquals(1, queue.size());
+        assertEquals(0, queue.poll().getWhen());
+        assertNull(queue.poll());
+    }
+
+    /**
+     * Checks that a consumer racing a producer takes every event that was not dropped exactly once, in order.
+     *
+     * @throws InterruptedException If the test is interrupted.
+     */
+    @Test
+    public void consumerRacingProducerTakesEveryEventOnce() throws InterruptedException {
+        final AppleRemoteEventQueue queue = new AppleRemoteEventQueue(64);
+        final Thread producer = new Thread(() -> {
+            for (int when = 0; when < OFFERED_COUNT; when++) {
+                queue.offer(event(when));
+            }
+        });
+        producer.start();
+
+        final List<AppleRemoteEvent> drained = new ArrayList<>();
+        long received = 0;
+        long lastWhen = -1;
+        try {
+            while (producer.isAlive() || queue.size() > 0) {
+                final AppleRemoteEvent polled = queue.poll();
+                if (polled != null) {
+                    drained.add(polled);
+                }
+                queue.drainTo(drained, 16);
+                for (AppleRemoteEvent event : drained) {
+                    assertTrue("Event " + event.getWhen() + " after " + lastWhen, event.getWhen() > lastWhen);
+                    lastWhen = event.getWhen();
+                }
+                received += drained.size();
+                drained.clear();
+            }
+        } finally {
+            producer.join();
+        }
+
+        assertEquals(OFFERED_COUNT, received + queue.getOverflowCount());
+    }
+
+    /**
+     * Creates an event.
+     *
+     * @param when The time of the event, which identifies it in the tests.
+     * @return The event.
+     */
+    private static AppleRemoteEvent event(final long when) {
+        return new AppleRemoteEvent(AppleRemoteEventQueueTest.class, AppleRemote.Button.MENU,
+                                    AppleRemote.Kind.PRESSED, when, null);
+    }
+}
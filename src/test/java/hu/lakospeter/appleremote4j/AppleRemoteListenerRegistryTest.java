@@ -0,0 +1,155 @@
+package hu.lakospeter.appleremote4j;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of {@link AppleRemoteListenerRegistry}.
+ *
+ * @author lakospeter
+ */
+public class AppleRemoteListenerRegistryTest {
+
+    /**
+     * The interest mask of the Menu button's press.
+     */
+    private static final int MENU_PRESSED = 1 << AppleRemoteEventCodes.code(AppleRemote.Button.MENU,
+                                                                             AppleRemote.Kind.PRESSED);
+
+    /**
+     * The interest mask of the Next button's press.
+     */
+    private static final int NEXT_PRESSED = 1 << AppleRemoteEventCodes.code(AppleRemote.Button.NEXT,
+                                                                             AppleRemote.Kind.PRESSED);
+
+    /**
+     * The longest time the test waits for a weakly registered listener to be garbage collected, in milliseconds.
+     */
+    private static final long GC_TIMEOUT_MILLIS = 30000;
+
+    /**
+     * Checks that the listeners stay in the order they were added after a removal leaves a hole in the registration
+     *  list, and after the holes are compacted.
+     */
+    @Test
+    public void removalsKeepRegistrationOrder() {
+        final AppleRemoteListenerRegistry registry = new AppleRemoteListenerRegistry();
+        final List<AppleRemoteListener> listeners = new ArrayList<>();
+        for (int index = 0; index < 6; index++) {
+            listeners.add(new MenuListener());
+        }
+
+        registry.add(listeners.get(0), 0, false);
+        registry.add(listeners.get(1), 0, false);
+        registry.add(listeners.get(2), 0, false);
+        // leaves a hole in the middle
+        registry.remove(listeners.get(1));
+        registry.add(listeners.get(3), 0, false);
+        assertOrder(registry, listeners.get(0), listeners.get(2), listeners.get(3));
+
+        registry.add(listeners.get(4), 0, false);
+        registry.remove(listeners.get(2));
+        // more than half of the list is holes, so it is compacted
+        registry.remove(listeners.get(3));
+        registry.add(listeners.get(5), 0, false);
+        assertOrder(registry, listeners.get(0), listeners.get(4), listeners.get(5));
+        assertEquals(3, registry.size());
+    }
+
+    /**
+     * Checks that a weakly registered listener is purged after it is garbage collected, together with its interest,
+     *  while a strongly registered listener is kept.
+     *
+     * @throws InterruptedException If the test is interrupted.
+     */
+    @Test
+    public void collectedWeakListenerIsPurged() throws InterruptedException {
+        final AppleRemoteListenerRegistry registry = new AppleRemoteListenerRegistry();
+        final AppleRemoteListener strongListener = new MenuListener();
+        registry.add(strongListener, 0, false);
+        registry.add(new NextListener(), 0, true);
+        assertEquals(2, registry.size());
+        assertEquals(MENU_PRESSED | NEXT_PRESSED, registry.getInterestMask());
+
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(GC_TIMEOUT_MILLIS);
+        while (registry.getInterestMask() != MENU_PRESSED) {
+            assertTrue("The weak listener was not purged", System.nanoTime() < deadline);
+            System.gc();
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+
+        assertEquals(1, registry.size());
+        assertOrder(registry, strongListener);
+    }
+
+    /**
+     * Checks that an event code stays in the interest mask until the last listener interested in it is removed.
+     */
+    @Test
+    public void interestIsKeptUntilLastInterestedListenerIsRemoved() {
+        final AppleRemoteListenerRegistry registry = new AppleRemoteListenerRegistry();
+        final AppleRemoteListener firstMenuListener = new MenuListener();
+        final AppleRemoteListener secondMenuListener = new MenuListener();
+        final AppleRemoteListener nextListener = new NextListener();
+        assertEquals(0, registry.getInterestMask());
+
+        registry.add(firstMenuListener, 0, false);
+        registry.add(secondMenuListener, 0, false);
+        registry.add(nextListener, 0, false);
+        // adding a listener again does not count it twice
+        registry.add(nextListener, 0, false);
+        assertEquals(MENU_PRESSED | NEXT_PRESSED, registry.getInterestMask());
+
+        registry.remove(firstMenuListener);
+        assertEquals(MENU_PRESSED | NEXT_PRESSED, registry.getInterestMask());
+        registry.remove(nextListener);
+        assertEquals(MENU_PRESSED, registry.getInterestMask());
+        registry.remove(nextListener);
+        assertEquals(MENU_PRESSED, registry.getInterestMask());
+        registry.remove(secondMenuListener);
+        assertEquals(0, registry.getInterestMask());
+    }
+
+    /**
+     * Checks the listeners of the snapshot of a registry.
+     *
+     * @param registry The registry.
+     * @param expectedListeners The expected listeners, in the order they should be notified.
+     */
+    private static void assertOrder(final AppleRemoteListenerRegistry registry,
+                                    final AppleRemoteListener... expectedListeners) {
+        final AppleRemoteListenerRegistry.Registration[] snapshot = registry.snapshot();
+        assertEquals(Arrays.toString(snapshot), expectedListeners.length, snapshot.length);
+        for (int index = 0; index < snapshot.length; index++) {
+            assertSame("Listener " + index, expectedListeners[index], snapshot[index].get());
+        }
+    }
+
+    /**
+     * Listener that is only interested in the presses of the Menu button.
+     */
+    private static final class MenuListener implements AppleRemoteListener {
+
+        @Override
+        public void menuPressed(final AppleRemoteEvent e) {
+        }
+    }
+
+    /**
+     * Listener that is only interested in the presses of the Next button.
+     */
+    private static final class NextListener implements AppleRemoteListener {
+
+        @Override
+        public void nextPressed(final AppleRemoteEvent e) {
+        }
+    }
+}
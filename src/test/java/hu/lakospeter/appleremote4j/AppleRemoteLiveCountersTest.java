@@ -0,0 +1,129 @@
+package hu.lakospeter.appleremote4j;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of {@link AppleRemoteLiveCounters}.
+ *
+ * @author lakospeter
+ */
+public class AppleRemoteLiveCountersTest {
+
+    /**
+     * The start of a minute, used as the time of the first event in the tests that pass the time explicitly.
+     */
+    private static final long START = 60L * 1000 * 25000000;
+
+    /**
+     * The event code of the presses of the Menu button.
+     */
+    private static final int MENU_PRESSED = AppleRemoteEventCodes.code(AppleRemote.Button.MENU,
+                                                                       AppleRemote.Kind.PRESSED);
+
+    /**
+     * Checks that the windows of up to a minute are rounded up to whole seconds including the current one, and that
+     *  the events roll out of them second by second, also when a bucket is reused for a newer second.
+     */
+    @Test
+    public void secondWindowsRollOver() {
+        final AppleRemoteLiveCounters counters = new AppleRemoteLiveCounters();
+        counters.record(MENU_PRESSED, START + 100);
+        counters.record(MENU_PRESSED, START + 900);
+        counters.record(MENU_PRESSED, START + 1500);
+
+        assertEquals(2, menuPresses(counters, 1000, START + 999));
+        assertEquals(1, menuPresses(counters, 1000, START + 1999));
+        assertEquals(3, menuPresses(counters, 1500, START + 1999));
+        assertEquals(0, menuPresses(counters, 1000, START + 2000));
+        assertEquals(3, menuPresses(counters, 60000, START + 59999));
+        assertEquals(1, menuPresses(counters, 60000, START + 60000));
+        assertEquals(0, menuPresses(counters, 60000, START + 61000));
+
+        // the bucket of the first second is reused
+        counters.record(MENU_PRESSED, START + 60100);
+        assertEquals(1, menuPresses(counters, 1000, START + 60100));
+        assertEquals(2, menuPresses(counters, 60000, START + 60100));
+    }
+
+    /**
+     * Checks that the windows of more than a minute are rounded up to whole minutes including the current one, and
+     *  that the events roll out of them minute by minute, up to the longest window.
+     */
+    @Test
+    public void minuteWindowsRollOver() {
+        final AppleRemoteLiveCounters counters = new AppleRemoteLiveCounters();
+        counters.record(MENU_PRESSED, START + 100);
+        counters.record(MENU_PRESSED, START + 59999);
+        counters.record(MENU_PRESSED, START + 60000);
+
+        assertEquals(3, menuPresses(counters, 90000, START + 60000));
+        assertEquals(3, menuPresses(counters, 120000, START + 119999));
+        assertEquals(1, menuPresses(counters, 120000, START + 120000));
+        assertEquals(3, menuPresses(counters, AppleRemoteLiveCounters.MAX_WINDOW_MILLIS,
+                                    START + AppleRemoteLiveCounters.MAX_WINDOW_MILLIS - 1));
+        assertEquals(1, menuPresses(counters, AppleRemoteLiveCounters.MAX_WINDOW_MILLIS,
+                                    START + AppleRemoteLiveCounters.MAX_WINDOW_MILLIS));
+        assertEquals(0, menuPresses(counters, AppleRemoteLiveCounters.MAX_WINDOW_MILLIS,
+                                    START + AppleRemoteLiveCounters.MAX_WINDOW_MILLIS + 60000));
+    }
+
+    /**
+     * Checks the counts and the rates of every (button, kind) pair, of every button, and of the holds.
+     */
+    @Test
+    public void eventsAreCountedByButtonAndKind() {
+        final AppleRemoteLiveCounters counters = new AppleRemoteLiveCounters();
+        final long now = System.currentTimeMillis();
+        counters.record(MENU_PRESSED, now);
+        counters.record(MENU_PRESSED, now);
+        counters.record(AppleRemoteEventCodes.code(AppleRemote.Button.MENU, AppleRemote.Kind.HELD), now);
+        counters.record(AppleRemoteEventCodes.code(AppleRemote.Button.NEXT, AppleRemote.Kind.HOLD_STARTED), now);
+        counters.record(AppleRemoteEventCodes.code(AppleRemote.Button.NEXT, AppleRemote.Kind.HOLD_STOPPED), now);
+
+        final long[] counts = counters.getCounts(60000);
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        assertEquals(5, total);
+        assertEquals(2, counters.getCount(AppleRemote.Button.MENU, AppleRemote.Kind.PRESSED, 60000));
+        assertEquals(1, counters.getCount(AppleRemote.Button.MENU, AppleRemote.Kind.HELD, 60000));
+        assertEquals(3, counters.getCount(AppleRemote.Button.MENU, 60000));
+        assertEquals(2, counters.getCount(AppleRemote.Button.NEXT, 60000));
+        assertEquals(0, counters.getCount(AppleRemote.Button.SELECT, 60000));
+        assertEquals(0, counters.getCount(AppleRemote.Button.NEXT, AppleRemote.Kind.PRESSED, 60000));
+        assertEquals(2 / 60.0, counters.getRate(AppleRemote.Button.MENU, AppleRemote.Kind.PRESSED, 60000), 1e-9);
+        assertEquals(2 / 60.0, counters.getHoldRate(60000), 1e-9);
+    }
+
+    /**
+     * Checks that the windows that are not positive or longer than the longest window are rejected.
+     */
+    @Test
+    public void invalidWindowsAreRejected() {
+        final AppleRemoteLiveCounters counters = new AppleRemoteLiveCounters();
+        for (long windowMillis : new long[] {0, -1, AppleRemoteLiveCounters.MAX_WINDOW_MILLIS + 1}) {
+            try {
+                counters.getCounts(windowMillis);
+                fail("Invalid window accepted: " + windowMillis);
+            } catch (IllegalArgumentException ex) {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * Returns the number of presses of the Menu button in a window.
+     *
+     * @param counters The counters.
+     * @param windowMillis The length of the window, in milliseconds.
+     * @param now The end of the window, in milliseconds since the epoch.
+     * @return The number of presses.
+     */
+    private static long menuPresses(final AppleRemoteLiveCounters counters, final long windowMillis, final long now) {
+        return counters.getCounts(windowMillis, now)[MENU_PRESSED];
+    }
+}
@@ -0,0 +1,174 @@
+package hu.lakospeter.appleremote4j;
+
+import org.junit.Test;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of {@link AppleRemoteMetrics} and their exporters: JMX and {@link AppleRemotePrometheusExporter}.
+ *
+ * @author lakospeter
+ */
+public class AppleRemoteMetricsTest {
+
+    /**
+     * Checks that an event is counted even if a listener throws an exception while it is dispatched.
+     *
+     * @throws IOException Never, the output is read from memory.
+     */
+    @Test
+    public void eventOfThrowingListenerIsCounted() throws IOException {
+        final AppleRemote appleRemote = new AppleRemote(Collections.singletonList("iremotepipe"), false);
+        appleRemote.addAppleRemoteListener(new AppleRemoteListener() {
+            @Override
+            public void nextPressed(final AppleRemoteEvent e) {
+                throw new IllegalStateException("listener failure");
+            }
+        });
+
+        try {
+            processOutput(appleRemote, AppleRemote.Button.NEXT);
+            fail("The exception of the listener was not thrown");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+
+        assertEquals(1, appleRemote.getMetrics().getParsedEventCount());
+        assertEquals(1, appleRemote.getMetrics().getEventCount());
+    }
+
+    /**
+     * Checks the Prometheus text format of the metrics of two AppleRemotes: the help and type lines of every family,
+     *  one sample per AppleRemote labelled with its name, and the escaping of the label values.
+     *
+     * @throws IOException If the HTTP server cannot be started.
+     */
+    @Test
+    public void renderedMetricsAreLabelledAndEscaped() throws IOException {
+        final AppleRemote appleRemote = new AppleRemote(Collections.singletonList("iremotepipe"), false);
+        appleRemote.setName("living \"room\"\\\nremote");
+        appleRemote.addAppleRemoteListener(new AppleRemoteListener() {
+            @Override
+            public void menuPressed(final AppleRemoteEvent e) {
+            }
+        });
+        processOutput(appleRemote, AppleRemote.Button.MENU);
+        processOutput(appleRemote, AppleRemote.Button.MENU);
+        processOutput(appleRemote, AppleRemote.Button.NEXT);
+        final AppleRemote otherAppleRemote = new AppleRemote(Collections.singletonList("iremotepipe"), false);
+        otherAppleRemote.setName("bedroom");
+
+        final String text;
+        try (AppleRemotePrometheusExporter exporter = new AppleRemotePrometheusExporter(
+                new InetSocketAddress("localhost", 0), appleRemote.getMetrics(), otherAppleRemote.getMetrics())) {
+            text = exporter.render();
+        }
+
+        final String label = "{remote=\"living \\\"room\\\"\\\\\\nremote\"}";
+        assertContains(text, "# HELP appleremote4j_parsed_events_total Events parsed from iremotepipe's output.\n"
+                             + "# TYPE appleremote4j_parsed_events_total counter\n"
+                             + "appleremote4j_parsed_events_total" + label + " 3\n"
+                             + "appleremote4j_parsed_events_total{remote=\"bedroom\"} 0\n");
+        assertContains(text, "appleremote4j_dropped_events_total" + label + " 1\n");
+        assertContains(text, "appleremote4j_listeners" + label + " 1\n");
+        assertContains(text, "# TYPE appleremote4j_dispatch_seconds_max gauge\n");
+        assertContains(text, "appleremote4j_iremotepipe_up{remote=\"bedroom\"} 0\n");
+
+        int helpLines = 0;
+        int sampleLines = 0;
+        for (String line : text.split("\n")) {
+            if (line.startsWith("# HELP ")) {
+                helpLines++;
+            } else if (!line.startsWith("# TYPE ")) {
+                assertTrue("Invalid sample: " + line,
+                           line.matches("appleremote4j_[a-z_]+\\{remote=\"([^\"\\\\\\n]|\\\\[\"\\\\n])*\"} [0-9.E-]+"));
+                sampleLines++;
+            }
+        }
+        assertEquals(2 * helpLines, sampleLines);
+    }
+
+    /**
+     * Checks that the metrics can be read through the platform MBean server while they are registered.
+     *
+     * @throws IOException Never, the output is read from memory.
+     * @throws JMException If the MBean cannot be registered or read.
+     */
+    @Test
+    public void registeredMBeanExposesMetrics() throws IOException, JMException {
+        final AppleRemote appleRemote = new AppleRemote(Collections.singletonList("iremotepipe"), false);
+        appleRemote.setName("remote, with: \"special\" characters");
+        processOutput(appleRemote, AppleRemote.Button.SELECT);
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        final ObjectName name = appleRemote.getMetrics().registerMBean();
+        try {
+            assertEquals(name, appleRemote.getMetrics().registerMBean());
+            assertEquals(AppleRemoteMetrics.JMX_DOMAIN, name.getDomain());
+            assertEquals(1L, server.getAttribute(name, "DroppedEventCount"));
+            assertEquals(1L, server.getAttribute(name, "EventCount"));
+        } finally {
+            appleRemote.getMetrics().unregisterMBean();
+        }
+        assertFalse(server.isRegistered(name));
+    }
+
+    /**
+     * Checks that the string representation of the metrics holds every metric the MBean exposes.
+     *
+     * @throws IOException Never, the output is read from memory.
+     */
+    @Test
+    public void stringRepresentationHoldsEveryMetric() throws IOException {
+        final AppleRemote appleRemote = new AppleRemote(Collections.singletonList("iremotepipe"), false);
+        processOutput(appleRemote, AppleRemote.Button.SELECT);
+
+        final String text = appleRemote.getMetrics().toString();
+
+        for (Method method : AppleRemoteMetricsMBean.class.getMethods()) {
+            final String attribute = method.getName().replaceFirst("^(get|is)", "");
+            final String field = Character.toLowerCase(attribute.charAt(0)) + attribute.substring(1);
+            assertContains(text, field + "=");
+        }
+        assertContains(text, "droppedEventCount=1");
+        assertContains(text, "bytesRead=" + appleRemote.getMetrics().getBytesRead());
+    }
+
+    /**
+     * Feeds a press of a button to an AppleRemote.
+     *
+     * @param appleRemote The AppleRemote.
+     * @param button The pressed button.
+     * @throws IOException Never, the output is read from memory.
+     */
+    private static void processOutput(final AppleRemote appleRemote, final AppleRemote.Button button)
+            throws IOException {
+        final String line = AppleRemoteEventCodes.iRemotePipeLine(
+                AppleRemoteEventCodes.code(button, AppleRemote.Kind.PRESSED)) + '\n';
+        appleRemote.processOutput(new ByteArrayInputStream(line.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Checks that a text contains a part.
+     *
+     * @param text The text.
+     * @param part The part it has to contain.
+     */
+    private static void assertContains(final String text, final String part) {
+        assertTrue("Missing:\n" + part + "in:\n" + text, text.contains(part));
+    }
+}
@@ -0,0 +1,378 @@
+package hu.lakospeter.appleremote4j;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Allocation and latency regression tests of the parse-and-dispatch pipeline of {@link AppleRemote}.
+ *  iremotepipe's output is fed from memory to an AppleRemote that is not started, so no iremotepipe process or
+ *  physical remote is needed.
+ *
+ * <br><br>
+ *
+ * The budgets can be overridden with the <code>hu.lakospeter.appleremote4j.perf.*</code> system properties
+ *  (or the Gradle project properties of the same name, see build.gradle), e.g. on slow CI machines.
+ *
+ * @author lakospeter
+ */
+public class AppleRemotePerformanceTest {
+
+    /**
+     * The prefix of the system properties that override the budgets.
+     */
+    private static final String PROPERTY_PREFIX = "hu.lakospeter.appleremote4j.perf.";
+
+    /**
+     * The maximum number of bytes allocated by the pipeline per event (the event object itself, plus the hold
+     *  watchdog task of hold starts).
+     */
+    private static final long MAX_ALLOCATED_BYTES_PER_EVENT =
+            Long.getLong(PROPERTY_PREFIX + "maxAllocatedBytesPerEvent", 128);
+
+    /**
+     * The maximum mean time between reading a line and the listener receiving its event, in nanoseconds.
+     */
+    private static final long MAX_MEAN_LATENCY_NANOS = Long.getLong(PROPERTY_PREFIX + "maxMeanLatencyNanos", 20000);
+
+    /**
+     * The maximum 99th percentile of the time between reading a line and the listener receiving its event,
+     *  in nanoseconds.
+     */
+    private static final long MAX_P99_LATENCY_NANOS = Long.getLong(PROPERTY_PREFIX + "maxP99LatencyNanos", 200000);
+
+    /**
+     * The number of events of a measured run.
+     */
+    private static final int EVENT_COUNT = 100000;
+
+    /**
+     * The number of runs before the measured run, so that the pipeline is compiled by the JIT.
+     */
+    private static final int WARMUP_RUNS = 10;
+
+    /**
+     * The number of measured runs of the allocation test. The JIT may still recompile the pipeline (and allocate more
+     *  until it is done) after the warmup, so the run that allocated the least is checked.
+     */
+    private static final int MEASURED_RUNS = 10;
+
+    /**
+     * The event codes of the generated output, repeated. Every hold start is followed by its hold stop.
+     */
+    private static final int[] CODES = {
+            AppleRemoteEventCodes.code(AppleRemote.Button.NEXT, AppleRemote.Kind.PRESSED),
+            AppleRemoteEventCodes.code(AppleRemote.Button.VOLUME_UP, AppleRemote.Kind.HOLD_STARTED),
+            AppleRemoteEventCodes.code(AppleRemote.Button.VOLUME_UP, AppleRemote.Kind.HOLD_STOPPED),
+            AppleRemoteEventCodes.code(AppleRemote.Button.PLAY_PAUSE, AppleRemote.Kind.PRESSED),
+            AppleRemoteEventCodes.code(AppleRemote.Button.MENU, AppleRemote.Kind.HELD),
+            AppleRemoteEventCodes.code(AppleRemote.Button.SELECT, AppleRemote.Kind.PRESSED),
+            AppleRemoteEventCodes.code(AppleRemote.Button.PREVIOUS, AppleRemote.Kind.PRESSED),
+            AppleRemoteEventCodes.code(AppleRemote.Button.VOLUME_DOWN, AppleRemote.Kind.PRESSED)
+    };
+
+    /**
+     * The AppleRemote under test.
+     */
+    private AppleRemote appleRemote;
+
+    /**
+     * The listener of the AppleRemote under test.
+     */
+    private RecordingListener listener;
+
+
+    /**
+     * Creates an AppleRemote that is not started, with a recording listener.
+     */
+    @Before
+    public void setUp() {
+        appleRemote = new AppleRemote(Collections.singletonList("iremotepipe"), false);
+        listener = new RecordingListener(EVENT_COUNT);
+        appleRemote.addAppleRemoteListener(listener);
+    }
+
+    /**
+     * Checks the number of bytes allocated by the pipeline per event.
+     *
+     * @throws IOException Never, the output is read from memory.
+     */
+    @Test
+    public void allocatedBytesPerEventIsWithinBudget() throws IOException {
+        final com.sun.management.ThreadMXBean threadMXBean = threadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        final byte[] output = output(EVENT_COUNT);
+
+        for (int run = 0; run < WARMUP_RUNS; run++) {
+            listener.reset();
+            appleRemote.processOutput(new ByteArrayInputStream(output));
+        }
+        final long[] allocatedPerEvent = new long[MEASURED_RUNS];
+        for (int run = 0; run < MEASURED_RUNS; run++) {
+            listener.reset();
+            final InputStream input = new ByteArrayInputStream(output);
+            final long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+            appleRemote.processOutput(input);
+            allocatedPerEvent[run] = (threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore) / EVENT_COUNT;
+            assertEquals("Received events", EVENT_COUNT, listener.count);
+        }
+
+        final long leastAllocatedPerEvent = Arrays.stream(allocatedPerEvent).min().getAsLong();
+        assertTrue("Allocated " + leastAllocatedPerEvent + " bytes per event (runs: "
+                   + Arrays.toString(allocatedPerEvent) + "), the budget is " + MAX_ALLOCATED_BYTES_PER_EVENT,
+                   leastAllocatedPerEvent <= MAX_ALLOCATED_BYTES_PER_EVENT);
+    }
+
+    /**
+     * Checks the time between reading a line of iremotepipe's output and the listener receiving its event.
+     *  Every line is returned by a separate read, like iremotepipe's output usually is.
+     *
+     * @throws IOException Never, the output is read from memory.
+     */
+    @Test
+    public void perEventLatencyIsWithinBudget() throws IOException {
+        appleRemote.processOutput(new LineByLineInputStream(EVENT_COUNT / 10 * WARMUP_RUNS));
+
+        final int lineCount = EVENT_COUNT / 10;
+        final LineByLineInputStream measuredInput = new LineByLineInputStream(lineCount);
+        listener.reset();
+        appleRemote.processOutput(measuredInput);
+
+        assertEquals("Received events", lineCount, listener.count);
+        final long[] latencies = new long[lineCount];
+        long total = 0;
+        for (int index = 0; index < lineCount; index++) {
+            latencies[index] = listener.receiveTimes[index] - measuredInput.readTimes[index];
+            total += latencies[index];
+        }
+        Arrays.sort(latencies);
+        final long mean = total / lineCount;
+        final long p99 = latencies[lineCount * 99 / 100];
+        assertTrue("Mean latency is " + mean + " ns (p99 " + p99 + " ns), the budget is " + MAX_MEAN_LATENCY_NANOS
+                   + " ns", mean <= MAX_MEAN_LATENCY_NANOS);
+        assertTrue("P99 latency is " + p99 + " ns (mean " + mean + " ns), the budget is " + MAX_P99_LATENCY_NANOS
+                   + " ns", p99 <= MAX_P99_LATENCY_NANOS);
+    }
+
+    /**
+     * Returns the thread MXBean, or skips the test if it cannot measure the allocations of threads.
+     *
+     * @return The thread MXBean of the JVM.
+     */
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+        return threadMXBean;
+    }
+
+    /**
+     * Generates iremotepipe's output.
+     *
+     * @param lineCount The number of lines.
+     * @return The output, in UTF-8.
+     */
+    private static byte[] output(final int lineCount) {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        for (int index = 0; index < lineCount; index++) {
+            final byte[] line = AppleRemoteEventCodes.iRemotePipeLine(CODES[index % CODES.length])
+                    .getBytes(StandardCharsets.UTF_8);
+            output.write(line, 0, line.length);
+            output.write('\n');
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Input stream that returns one line of iremotepipe's output per read, and records the time of every read.
+     */
+    private static final class LineByLineInputStream extends InputStream {
+
+        /**
+         * The lines, one of them per element of {@link #CODES}.
+         */
+        private final byte[][] lines = new byte[CODES.length][];
+
+        /**
+         * The time of every read that returned a line, in nanoseconds.
+         */
+        private final long[] readTimes;
+
+        /**
+         * The number of lines returned so far.
+         */
+        private int lineIndex;
+
+
+        /**
+         * Creates an input stream of the specified number of lines.
+         *
+         * @param lineCount The number of lines.
+         */
+        private LineByLineInputStream(final int lineCount) {
+            for (int index = 0; index < CODES.length; index++) {
+                lines[index] = (AppleRemoteEventCodes.iRemotePipeLine(CODES[index]) + '\n')
+                        .getBytes(StandardCharsets.UTF_8);
+            }
+            readTimes = new long[lineCount];
+        }
+
+        @Override
+        public int read() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) {
+            if (lineIndex == readTimes.length) {
+                return -1;
+            }
+            final byte[] line = lines[lineIndex % lines.length];
+            System.arraycopy(line, 0, bytes, offset, line.length);
+            readTimes[lineIndex++] = System.nanoTime();
+            return line.length;
+        }
+    }
+
+    /**
+     * Listener that counts the events it receives, and records the time it received them.
+     */
+    private static final class RecordingListener implements AppleRemoteListener {
+
+        /**
+         * The time every event was received, in nanoseconds, for the first events.
+         */
+        private final long[] receiveTimes;
+
+        /**
+         * The number of events received since the last reset.
+         */
+        private int count;
+
+
+        /**
+         * Creates a listener that records the time of the specified number of events.
+         *
+         * @param capacity The number of events whose time is recorded.
+         */
+        private RecordingListener(final int capacity) {
+            receiveTimes = new long[capacity];
+        }
+
+        /**
+         * Resets the number of events received.
+         */
+        private void reset() {
+            count = 0;
+        }
+
+        /**
+         * Records that an event was received.
+         */
+        private void received() {
+            if (count < receiveTimes.length) {
+                receiveTimes[count] = System.nanoTime();
+            }
+            count++;
+        }
+
+        @Override
+        public void volumeUpPressed(final AppleRemoteEvent e) {
+            received();
+        }
+
+        @Override
+        public void volumeUpHoldStarted(final AppleRemoteEvent e) {
+            received();
+        }
+
+        @Override
+        public void volumeUpHoldStopped(final AppleRemoteEvent e) {
+            received();
+        }
+
+        @Override
+        public void volumeDownPressed(final AppleRemoteEvent e) {
+            received();
+        }
+
+        @Override
+        public void volumeDownHoldStarted(final AppleRemoteEvent e) {
+            received();
+        }
+
+        @Override
+        public void volumeDownHoldStopped(final AppleRemoteEvent e) {
+            received();
+        }
+
+        @Override
+        public void previousPressed(final AppleRemoteEvent e) {
+            received();
+        }
+
+        @Override
+        public void previousHoldStarted(final AppleRemoteEvent e) {
+            received();
+        }
+
+        @Override
+        public void previousHoldStopped(final AppleRemoteEvent e) {
+            received();
+        }
+
+        @Override
+        public void nextPressed(final AppleRemoteEvent e) {
+            received();
+        }
+
+        @Override
+        public void nextHoldStarted(final AppleRemoteEvent e) {
+            received();
+        }
+
+        @Override
+        public void nextHoldStopped(final AppleRemoteEvent e) {
+            received();
+        }
+
+        @Override
+        public void playPausePressed(final AppleRemoteEvent e) {
+            received();
+        }
+
+        @Override
+        public void playPauseHeld(final AppleRemoteEvent e) {
+            received();
+        }
+
+        @Override
+        public void menuPressed(final AppleRemoteEvent e) {
+            received();
+        }
+
+        @Override
+        public void menuHeld(final AppleRemoteEvent e) {
+            received();
+        }
+
+        @Override
+        public void selectPressed(final AppleRemoteEvent e) {
+            received();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package hu.lakospeter.appleremote4j;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of publishing events to other processes through a shared ring file ({@link AppleRemotePublisher} and
+ *  {@link AppleRemoteSubscriber}).
+ *
+ * @author lakospeter
+ */
+public class AppleRemotePublisherTest {
+
+    /**
+     * The event codes that are published, repeated.
+     */
+    private static final int[] CODES = {
+            AppleRemoteEventCodes.code(AppleRemote.Button.NEXT, AppleRemote.Kind.PRESSED),
+            AppleRemoteEventCodes.code(AppleRemote.Button.VOLUME_UP, AppleRemote.Kind.HOLD_STARTED),
+            AppleRemoteEventCodes.code(AppleRemote.Button.VOLUME_UP, AppleRemote.Kind.HOLD_STOPPED),
+            AppleRemoteEventCodes.code(AppleRemote.Button.MENU, AppleRemote.Kind.HELD)
+    };
+
+    /**
+     * The number of events the subscriber process has to receive.
+     */
+    private static final int RECEIVED_COUNT = 20;
+
+    /**
+     * The ring file.
+     */
+    private Path file;
+
+
+    /**
+     * Creates the ring file.
+     *
+     * @throws IOException If the file cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("appleremote", ".ring");
+    }
+
+    /**
+     * Deletes the ring file.
+     *
+     * @throws IOException If the file cannot be deleted.
+     */
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Checks that a subscriber in another JVM receives the published events, in order, without losing any.
+     *
+     * @throws Exception If the subscriber process cannot be started.
+     */
+    @Test
+    public void subscriberProcessReceivesPublishedEvents() throws Exception {
+        final AppleRemotePublisher publisher = new AppleRemotePublisher(file, 64);
+        final Process subscriber = new ProcessBuilder(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", classPath(),
+                AppleRemoteSubscriber.class.getName(),
+                file.toString())
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        final BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+        final Thread reader = new Thread(() -> {
+            try (BufferedReader output = new BufferedReader(
+                    new InputStreamReader(subscriber.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = output.readLine()) != null) {
+                    lines.add(line);
+                }
+            } catch (IOException ex) {
+                // the process was destroyed
+            }
+        });
+        reader.start();
+
+        final List<String> received = new ArrayList<>();
+        try {
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            // the subscriber only receives the events that are published after it attached
+            for (int when = 0; received.size() < RECEIVED_COUNT && System.nanoTime() < deadline; when++) {
+                publisher.publish(CODES[when % CODES.length], when);
+                final String line = lines.poll(10, TimeUnit.MILLISECONDS);
+                if (line != null) {
+                    received.add(line);
+                }
+                lines.drainTo(received);
+            }
+        } finally {
+            subscriber.destroy();
+            reader.join(5000);
+            publisher.close();
+        }
+
+        assertTrue("Received " + received, received.size() >= RECEIVED_COUNT);
+        final long firstWhen = Long.parseLong(received.get(0).split(" ")[0]);
+        for (int index = 0; index < received.size(); index++) {
+            final int when = (int) firstWhen + index;
+            final int code = CODES[when % CODES.length];
+            assertEquals(when + " " + AppleRemoteEventCodes.button(code) + " " + AppleRemoteEventCodes.kind(code)
+                         + " (lost: 0)", received.get(index));
+        }
+    }
+
+    /**
+     * Checks that a subscriber continues to receive events after the ring was initialized again with another
+     *  capacity.
+     *
+     * @throws IOException If the ring file cannot be mapped.
+     */
+    @Test
+    public void subscriberFollowsRingOfNewCapacity() throws IOException {
+        final AppleRemotePublisher publisher = new AppleRemotePublisher(file, 4);
+        final AppleRemoteSubscriber subscriber = new AppleRemoteSubscriber(file);
+        publisher.publish(CODES[0], 1);
+        assertEquals(AppleRemoteEventCodes.pack(CODES[0], 1), subscriber.poll());
+        publisher.close();
+
+        final AppleRemotePublisher newPublisher = new AppleRemotePublisher(file, 256);
+        assertEquals(256, newPublisher.capacity());
+        for (int when = 2; when < 102; when++) {
+            newPublisher.publish(CODES[when % CODES.length], when);
+        }
+        for (int when = 2; when < 102; when++) {
+            assertEquals(AppleRemoteEventCodes.pack(CODES[when % CODES.length], when), subscriber.poll());
+        }
+        assertEquals(AppleRemoteSubscriber.EMPTY, subscriber.poll());
+        assertEquals(0, subscriber.getLostCount());
+        newPublisher.close();
+    }
+
+    /**
+     * Checks that a publisher that opens a ring of the same capacity continues it, and that a closed publisher does
+     *  not publish anything.
+     *
+     * @throws IOException If the ring file cannot be mapped.
+     */
+    @Test
+    public void reopenedRingContinuesAndClosedPublisherIsSilent() throws IOException {
+        final AppleRemotePublisher publisher = new AppleRemotePublisher(file, 16);
+        final AppleRemoteSubscriber subscriber = new AppleRemoteSubscriber(file);
+        publisher.publish(CODES[0], 1);
+        publisher.close();
+        publisher.publish(CODES[1], 2);
+        assertEquals(1, publisher.getPublishedCount());
+
+        final AppleRemotePublisher newPublisher = new AppleRemotePublisher(file, 16);
+        assertEquals(1, newPublisher.getPublishedCount());
+        newPublisher.publish(CODES[2], 3);
+        assertEquals(AppleRemoteEventCodes.pack(CODES[0], 1), subscriber.poll());
+        assertEquals(AppleRemoteEventCodes.pack(CODES[2], 3), subscriber.poll());
+        assertEquals(AppleRemoteSubscriber.EMPTY, subscriber.poll());
+        newPublisher.close();
+    }
+
+    /**
+     * Checks that a subscriber that falls more than a whole ring behind counts the overwritten events as lost.
+     *
+     * @throws IOException If the ring file cannot be mapped.
+     */
+    @Test
+    public void slowSubscriberLosesOverwrittenEvents() throws IOException {
+        final AppleRemotePublisher publisher = new AppleRemotePublisher(file, 8);
+        final AppleRemoteSubscriber subscriber = new AppleRemoteSubscriber(file);
+        for (int when = 0; when < 20; when++) {
+            publisher.publish(CODES[0], when);
+        }
+        assertEquals(AppleRemoteEventCodes.pack(CODES[0], 12), subscriber.poll());
+        assertEquals(12, subscriber.getLostCount());
+        publisher.close();
+    }
+
+    /**
+     * Returns the class path of the classes of appleremote4j, for the subscriber process.
+     *
+     * @return The class path.
+     * @throws Exception If the location of the classes cannot be determined.
+     */
+    private static String classPath() throws Exception {
+        return new File(AppleRemoteSubscriber.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+                .getPath();
+    }
+}
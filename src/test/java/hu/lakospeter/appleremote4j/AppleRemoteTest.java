@@ -161,9 +161,9 @@ public class AppleRemoteTest implements AppleRemoteListener  {
     public void playPauseHeld(final AppleRemoteEvent e) {
         System.out.println("playPauseHeld fired. Event: " + e);
 
-        // another way to stop the AppleRemote
-        // appleRemote.stopRunning();
+        // removing the last listener only suspends iremotepipe after the idle suspend timeout
         appleRemote.removeAppleRemoteListener(this);
+        appleRemote.stopRunning();
         System.out.println("Exiting test.");
     }
 
@@ -0,0 +1,200 @@
+package hu.lakospeter.appleremote4j;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests of the backpressure of async listeners (see {@link AppleRemote#addAsyncListener(AppleRemoteAsyncListener)}).
+ *
+ * @author lakospeter
+ */
+public class AsyncDispatcherTest {
+
+    /**
+     * Checks that a listener whose stages never complete does not block the dispatching of events, misses the events
+     *  over its maximum number of stages in flight, and can be removed.
+     *
+     * @throws IOException Never, the output is read from memory.
+     */
+    @Test
+    public void stuckListenerDoesNotBlockDispatching() throws IOException {
+        final AppleRemote appleRemote = new AppleRemote(Collections.singletonList("iremotepipe"), false);
+        final AtomicInteger called = new AtomicInteger();
+        final AppleRemoteAsyncListener stuckListener = e -> {
+            called.incrementAndGet();
+            return new CompletableFuture<>();
+        };
+        final AtomicInteger pressed = new AtomicInteger();
+        appleRemote.addAsyncListener(stuckListener, 2, (event, failure) -> { });
+        appleRemote.addAppleRemoteListener(new AppleRemoteListener() {
+            @Override
+            public void nextPressed(final AppleRemoteEvent e) {
+                pressed.incrementAndGet();
+            }
+        });
+
+        processOutput(appleRemote, 5);
+        appleRemote.removeAsyncListener(stuckListener);
+        processOutput(appleRemote, 1);
+
+        // the events of the same button are chained, so only the first stage was started
+        assertEquals(1, called.get());
+        assertEquals(6, pressed.get());
+        assertEquals(0, appleRemote.getAsyncOverflowCount(stuckListener));
+    }
+
+    /**
+     * Checks that the events over the maximum number of stages in flight are counted as overflows.
+     *
+     * @throws IOException Never, the output is read from memory.
+     */
+    @Test
+    public void eventsOverTheMaximumAreCounted() throws IOException {
+        final AppleRemote appleRemote = new AppleRemote(Collections.singletonList("iremotepipe"), false);
+        final AppleRemoteAsyncListener stuckListener = e -> new CompletableFuture<>();
+        appleRemote.addAsyncListener(stuckListener, 2, (event, failure) -> { });
+
+        processOutput(appleRemote, 5);
+
+        assertEquals(3, appleRemote.getAsyncOverflowCount(stuckListener));
+    }
+
+    /**
+     * Checks that the events of the same button are handled one at a time in order, while the events of another
+     *  button are handled concurrently.
+     *
+     * @throws IOException Never, the output is read from memory.
+     */
+    @Test
+    public void eventsOfSameButtonAreHandledInOrder() throws IOException {
+        final AppleRemote appleRemote = new AppleRemote(Collections.singletonList("iremotepipe"), false);
+        final RecordingListener listener = new RecordingListener();
+        appleRemote.addAsyncListener(listener, 10, (event, failure) -> { });
+
+        processEvents(appleRemote,
+                      AppleRemoteEventCodes.code(AppleRemote.Button.NEXT, AppleRemote.Kind.PRESSED),
+                      AppleRemoteEventCodes.code(AppleRemote.Button.MENU, AppleRemote.Kind.PRESSED),
+                      AppleRemoteEventCodes.code(AppleRemote.Button.NEXT, AppleRemote.Kind.PRESSED),
+                      AppleRemoteEventCodes.code(AppleRemote.Button.MENU, AppleRemote.Kind.HELD));
+        assertEquals(Arrays.asList("NEXT PRESSED", "MENU PRESSED"), listener.calls);
+
+        listener.stages.get(1).complete(null);
+        assertEquals(Arrays.asList("NEXT PRESSED", "MENU PRESSED", "MENU HELD"), listener.calls);
+        listener.stages.get(0).complete(null);
+        assertEquals(Arrays.asList("NEXT PRESSED", "MENU PRESSED", "MENU HELD", "NEXT PRESSED"), listener.calls);
+        assertEquals(0, appleRemote.getAsyncOverflowCount(listener));
+    }
+
+    /**
+     * Checks that the hold stop of a received hold start is received even over the maximum number of stages in
+     *  flight, and that the events dropped meanwhile are counted.
+     *
+     * @throws IOException Never, the output is read from memory.
+     */
+    @Test
+    public void holdStopOfReceivedHoldStartIsNeverDropped() throws IOException {
+        final AppleRemote appleRemote = new AppleRemote(Collections.singletonList("iremotepipe"), false);
+        final RecordingListener listener = new RecordingListener();
+        appleRemote.addAsyncListener(listener, 1, (event, failure) -> { });
+
+        processEvents(appleRemote,
+                      AppleRemoteEventCodes.code(AppleRemote.Button.VOLUME_UP, AppleRemote.Kind.HOLD_STARTED),
+                      AppleRemoteEventCodes.code(AppleRemote.Button.NEXT, AppleRemote.Kind.PRESSED),
+                      AppleRemoteEventCodes.code(AppleRemote.Button.VOLUME_UP, AppleRemote.Kind.HOLD_STOPPED));
+        listener.stages.get(0).complete(null);
+        listener.stages.get(1).complete(null);
+        processEvents(appleRemote, AppleRemoteEventCodes.code(AppleRemote.Button.MENU, AppleRemote.Kind.PRESSED));
+
+        assertEquals(Arrays.asList("VOLUME_UP HOLD_STARTED", "VOLUME_UP HOLD_STOPPED", "MENU PRESSED"),
+                     listener.calls);
+        assertEquals(1, appleRemote.getAsyncOverflowCount(listener));
+    }
+
+    /**
+     * Checks that the hold stop of a dropped hold start is dropped too, even if a stage is available for it.
+     *
+     * @throws IOException Never, the output is read from memory.
+     */
+    @Test
+    public void holdStopOfDroppedHoldStartIsDropped() throws IOException {
+        final AppleRemote appleRemote = new AppleRemote(Collections.singletonList("iremotepipe"), false);
+        final RecordingListener listener = new RecordingListener();
+        appleRemote.addAsyncListener(listener, 1, (event, failure) -> { });
+
+        processEvents(appleRemote,
+                      AppleRemoteEventCodes.code(AppleRemote.Button.NEXT, AppleRemote.Kind.PRESSED),
+                      AppleRemoteEventCodes.code(AppleRemote.Button.VOLUME_DOWN, AppleRemote.Kind.HOLD_STARTED));
+        listener.stages.get(0).complete(null);
+        processEvents(appleRemote,
+                      AppleRemoteEventCodes.code(AppleRemote.Button.VOLUME_DOWN, AppleRemote.Kind.HOLD_STOPPED));
+
+        assertEquals(Collections.singletonList("NEXT PRESSED"), listener.calls);
+        assertEquals(2, appleRemote.getAsyncOverflowCount(listener));
+    }
+
+    /**
+     * Feeds events to an AppleRemote.
+     *
+     * @param appleRemote The AppleRemote.
+     * @param codes The event codes of the events.
+     * @throws IOException Never, the output is read from memory.
+     */
+    private static void processEvents(final AppleRemote appleRemote, final int... codes) throws IOException {
+        final StringBuilder output = new StringBuilder();
+        for (int code : codes) {
+            output.append(AppleRemoteEventCodes.iRemotePipeLine(code)).append('\n');
+        }
+        appleRemote.processOutput(new ByteArrayInputStream(output.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Feeds presses of the Next button to an AppleRemote.
+     *
+     * @param appleRemote The AppleRemote.
+     * @param count The number of presses.
+     * @throws IOException Never, the output is read from memory.
+     */
+    private static void processOutput(final AppleRemote appleRemote, final int count) throws IOException {
+        final StringBuilder output = new StringBuilder();
+        for (int index = 0; index < count; index++) {
+            output.append(AppleRemoteEventCodes.iRemotePipeLine(
+                    AppleRemoteEventCodes.code(AppleRemote.Button.NEXT, AppleRemote.Kind.PRESSED))).append('\n');
+        }
+        appleRemote.processOutput(new ByteArrayInputStream(output.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Async listener that records the events it is called with, and returns stages that are completed by the test.
+     */
+    private static final class RecordingListener implements AppleRemoteAsyncListener {
+
+        /**
+         * The buttons and kinds of the events the listener was called with, in order.
+         */
+        private final List<String> calls = new ArrayList<>();
+
+        /**
+         * The stages the listener returned, in order.
+         */
+        private final List<CompletableFuture<Void>> stages = new ArrayList<>();
+
+        @Override
+        public CompletableFuture<Void> eventReceived(final AppleRemoteEvent e) {
+            calls.add(e.getButton() + " " + e.getKind());
+            final CompletableFuture<Void> stage = new CompletableFuture<>();
+            stages.add(stage);
+            return stage;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package hu.lakospeter.appleremote4j;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the batch listeners of {@link AppleRemote} (see
+ *  {@link AppleRemote#addBatchListener(AppleRemoteBatchListener, long)}). iremotepipe's output is fed to an
+ *  AppleRemote that is not started, one chunk per read.
+ *
+ * @author lakospeter
+ */
+public class BatchListenerTest {
+
+    /**
+     * The longest time the test waits for a batch, in milliseconds.
+     */
+    private static final long TIMEOUT_MILLIS = 30000;
+
+    /**
+     * Checks that a batch listener without a maximum batch latency receives one batch per read of iremotepipe's
+     *  output, with the events and the bytes of that read.
+     *
+     * @throws IOException Never, the output is read from memory.
+     */
+    @Test
+    public void batchIsDeliveredAtEndOfEveryRead() throws IOException {
+        final AppleRemote appleRemote = new AppleRemote(Collections.singletonList("iremotepipe"), false);
+        final List<AppleRemoteEventBatch> batches = new CopyOnWriteArrayList<>();
+        appleRemote.addBatchListener(batches::add);
+        final byte[] firstChunk = chunk(AppleRemote.Button.MENU, AppleRemote.Button.NEXT);
+        final byte[] secondChunk = chunk(AppleRemote.Button.SELECT);
+
+        appleRemote.processOutput(new ChunkedInputStream(0, firstChunk, secondChunk));
+
+        assertEquals(2, batches.size());
+        assertBatch(batches.get(0), AppleRemote.Button.MENU, AppleRemote.Button.NEXT);
+        assertEquals(firstChunk.length, batches.get(0).getByteCount());
+        assertEquals(1, batches.get(0).getReadCount());
+        assertBatch(batches.get(1), AppleRemote.Button.SELECT);
+        assertEquals(secondChunk.length, batches.get(1).getByteCount());
+        assertEquals(1, batches.get(1).getReadCount());
+    }
+
+    /**
+     * Checks that a batch listener with a maximum batch latency receives batches that span several reads, delivered
+     *  when their first event is that old even though the reads keep coming, and that no event is lost.
+     *
+     * @throws IOException Never, the output is read from memory.
+     * @throws InterruptedException If the test is interrupted.
+     */
+    @Test
+    public void batchIsDeliveredByMaxLatencyWhileReadsKeepComing() throws IOException, InterruptedException {
+        final AppleRemote appleRemote = new AppleRemote(Collections.singletonList("iremotepipe"), false);
+        final List<AppleRemoteEventBatch> batches = new CopyOnWriteArrayList<>();
+        final List<Integer> readsBeforeBatches = new CopyOnWriteArrayList<>();
+        final byte[][] chunks = new byte[20][];
+        for (int index = 0; index < chunks.length; index++) {
+            chunks[index] = chunk(AppleRemote.Button.MENU);
+        }
+        final ChunkedInputStream inputStream = new ChunkedInputStream(50, chunks);
+        appleRemote.addBatchListener(batch -> {
+            readsBeforeBatches.add(inputStream.chunkIndex);
+            batches.add(batch);
+        }, 200);
+
+        appleRemote.processOutput(inputStream);
+
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+        while (eventCount(batches) < chunks.length) {
+            assertTrue("Timed out waiting for the batches", System.nanoTime() < deadline);
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertEquals(chunks.length, eventCount(batches));
+        assertTrue("Batches: " + batches, batches.size() > 1);
+        assertTrue("The first batch was delivered after the last read: " + readsBeforeBatches,
+                   readsBeforeBatches.get(0) < chunks.length);
+        final AppleRemoteEventBatch firstBatch = batches.get(0);
+        assertTrue("First batch: " + firstBatch, firstBatch.size() > 1 && firstBatch.getReadCount() > 1);
+        assertEquals(firstBatch.size(), firstBatch.getReadCount());
+    }
+
+    /**
+     * Checks that the pending batch of a batch listener is delivered when the listener is removed, and that the
+     *  listener receives nothing after that.
+     *
+     * @throws IOException Never, the output is read from memory.
+     */
+    @Test
+    public void pendingBatchIsDeliveredOnRemoval() throws IOException {
+        final AppleRemote appleRemote = new AppleRemote(Collections.singletonList("iremotepipe"), false);
+        final List<AppleRemoteEventBatch> batches = new CopyOnWriteArrayList<>();
+        final AppleRemoteBatchListener batchListener = batches::add;
+        appleRemote.addBatchListener(batchListener, TIMEOUT_MILLIS);
+
+        appleRemote.processOutput(new ChunkedInputStream(0, chunk(AppleRemote.Button.PLAY_PAUSE),
+                                                         chunk(AppleRemote.Button.SELECT)));
+        assertEquals(0, batches.size());
+        appleRemote.removeBatchListener(batchListener);
+
+        assertEquals(1, batches.size());
+        assertBatch(batches.get(0), AppleRemote.Button.PLAY_PAUSE, AppleRemote.Button.SELECT);
+        assertEquals(2, batches.get(0).getReadCount());
+        appleRemote.processOutput(new ChunkedInputStream(0, chunk(AppleRemote.Button.MENU)));
+        assertEquals(1, batches.size());
+    }
+
+    /**
+     * Checks that a batch holds the presses of the specified buttons, in this order.
+     *
+     * @param batch The batch.
+     * @param buttons The buttons.
+     */
+    private static void assertBatch(final AppleRemoteEventBatch batch, final AppleRemote.Button... buttons) {
+        final List<AppleRemote.Button> batchButtons = new ArrayList<>();
+        for (AppleRemoteEvent event : batch.getEvents()) {
+            assertEquals(AppleRemote.Kind.PRESSED, event.getKind());
+            batchButtons.add(event.getButton());
+        }
+        assertEquals(Arrays.asList(buttons), batchButtons);
+    }
+
+    /**
+     * Returns the number of events in some batches.
+     *
+     * @param batches The batches.
+     * @return The number of events.
+     */
+    private static int eventCount(final List<AppleRemoteEventBatch> batches) {
+        int count = 0;
+        for (AppleRemoteEventBatch batch : batches) {
+            count += batch.size();
+        }
+        return count;
+    }
+
+    /**
+     * Returns a chunk of iremotepipe's output with the presses of some buttons.
+     *
+     * @param buttons The pressed buttons.
+     * @return The lines of the presses, with their line terminators.
+     */
+    private static byte[] chunk(final AppleRemote.Button... buttons) {
+        final ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+        for (AppleRemote.Button button : buttons) {
+            final byte[] line = (AppleRemoteEventCodes.iRemotePipeLine(
+                    AppleRemoteEventCodes.code(button, AppleRemote.Kind.PRESSED)) + '\n')
+                    .getBytes(StandardCharsets.UTF_8);
+            chunk.write(line, 0, line.length);
+        }
+        return chunk.toByteArray();
+    }
+
+    /**
+     * Input stream that returns one chunk per read, and pauses before every chunk but the first.
+     */
+    private static final class ChunkedInputStream extends InputStream {
+
+        /**
+         * The pause before every chunk but the first, in milliseconds.
+         */
+        private final long pauseMillis;
+
+        /**
+         * The chunks.
+         */
+        private final byte[][] chunks;
+
+        /**
+         * The number of chunks returned so far.
+         */
+        private volatile int chunkIndex;
+
+
+        /**
+         * Simple constructor that gives values to fields.
+         *
+         * @param pauseMillis The pause before every chunk but the first, in milliseconds.
+         * @param chunks The chunks.
+         */
+        private ChunkedInputStream(final long pauseMillis, final byte[]... chunks) {
+            this.pauseMillis = pauseMillis;
+            this.chunks = chunks;
+        }
+
+        @Override
+        public int read() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+            if (chunkIndex == chunks.length) {
+                return -1;
+            }
+            if (chunkIndex > 0) {
+                try {
+                    Thread.sleep(pauseMillis);
+                } catch (InterruptedException ex) {
+                    throw new IOException(ex);
+                }
+            }
+            final byte[] chunk = chunks[chunkIndex];
+            System.arraycopy(chunk, 0, bytes, offset, chunk.length);
+            chunkIndex++;
+            return chunk.length;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package hu.lakospeter.appleremote4j;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Tests of the hold watchdog of {@link AppleRemote} (see {@link AppleRemote#setHoldTimeout(long)}). iremotepipe's
+ *  output is fed to an AppleRemote that is not started, with a pause between the lines.
+ *
+ * @author lakospeter
+ */
+public class HoldWatchdogTest {
+
+    /**
+     * Checks that a lost release is synthesized by the watchdog, and that the late real release is ignored, so the
+     *  listener receives exactly one hold stop.
+     *
+     * @throws IOException Never, the output is read from memory.
+     */
+    @Test
+    public void lateReleaseAfterWatchdogIsIgnored() throws IOException {
+        final AppleRemote appleRemote = new AppleRemote(Collections.singletonList("iremotepipe"), false);
+        appleRemote.setHoldTimeout(50);
+        final int[] counts = new int[2];
+        appleRemote.addAppleRemoteListener(new AppleRemoteListener() {
+            @Override
+            public void volumeUpHoldStarted(final AppleRemoteEvent e) {
+                counts[0]++;
+            }
+
+            @Override
+            public void volumeUpHoldStopped(final AppleRemoteEvent e) {
+                counts[1]++;
+            }
+        });
+
+        appleRemote.processOutput(new PausingInputStream(300,
+                line(AppleRemote.Button.VOLUME_UP, AppleRemote.Kind.HOLD_STARTED),
+                line(AppleRemote.Button.VOLUME_UP, AppleRemote.Kind.HOLD_STOPPED)));
+
+        assertEquals("hold starts", 1, counts[0]);
+        assertEquals("hold stops", 1, counts[1]);
+        assertFalse(appleRemote.isHeld(AppleRemote.Button.VOLUME_UP));
+        assertEquals(1, appleRemote.getMetrics().getSynthesizedEventCount());
+    }
+
+    /**
+     * Checks that a release within the hold timeout is delivered, and the watchdog does not synthesize another one.
+     *
+     * @throws IOException Never, the output is read from memory.
+     * @throws InterruptedException If the test is interrupted.
+     */
+    @Test
+    public void releaseWithinTimeoutIsDeliveredOnce() throws IOException, InterruptedException {
+        final AppleRemote appleRemote = new AppleRemote(Collections.singletonList("iremotepipe"), false);
+        appleRemote.setHoldTimeout(200);
+        final int[] stops = new int[1];
+        appleRemote.addAppleRemoteListener(new AppleRemoteListener() {
+            @Override
+            public void nextHoldStopped(final AppleRemoteEvent e) {
+                stops[0]++;
+            }
+        });
+
+        appleRemote.processOutput(new PausingInputStream(0,
+                line(AppleRemote.Button.NEXT, AppleRemote.Kind.HOLD_STARTED),
+                line(AppleRemote.Button.NEXT, AppleRemote.Kind.HOLD_STOPPED)));
+        Thread.sleep(400);
+
+        assertEquals(1, stops[0]);
+        assertEquals(0, appleRemote.getMetrics().getSynthesizedEventCount());
+    }
+
+    /**
+     * Returns the line of iremotepipe's output of an event.
+     *
+     * @param button The button.
+     * @param kind The kind of the event.
+     * @return The line, with its line terminator.
+     */
+    private static byte[] line(final AppleRemote.Button button, final AppleRemote.Kind kind) {
+        return (AppleRemoteEventCodes.iRemotePipeLine(AppleRemoteEventCodes.code(button, kind)) + '\n')
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Input stream that returns one line per read, and pauses before every line but the first.
+     */
+    private static final class PausingInputStream extends InputStream {
+
+        /**
+         * The pause before every line but the first, in milliseconds.
+         */
+        private final long pauseMillis;
+
+        /**
+         * The lines.
+         */
+        private final byte[][] lines;
+
+        /**
+         * The number of lines returned so far.
+         */
+        private int lineIndex;
+
+
+        /**
+         * Simple constructor that gives values to fields.
+         *
+         * @param pauseMillis The pause before every line but the first, in milliseconds.
+         * @param lines The lines.
+         */
+        private PausingInputStream(final long pauseMillis, final byte[]... lines) {
+            this.pauseMillis = pauseMillis;
+            this.lines = lines;
+        }
+
+        @Override
+        public int read() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+            if (lineIndex == lines.length) {
+                return -1;
+            }
+            if (lineIndex > 0) {
+                try {
+                    Thread.sleep(pauseMillis);
+                } catch (InterruptedException ex) {
+                    throw new IOException(ex);
+                }
+            }
+            final byte[] line = lines[lineIndex++];
+            System.arraycopy(line, 0, bytes, offset, line.length);
+            return line.length;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package hu.lakospeter.appleremote4j;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * End to end test of {@link AppleRemote} on systems without an IR receiver: the iremotepipe command is pointed at
+ *  {@link IRemotePipeEmulator} with the {@link AppleRemote#IREMOTEPIPE_PATH_PROPERTY} and
+ *  {@link AppleRemote#IREMOTEPIPE_ARGS_PROPERTY} system properties, so the process is started, its output is read
+ *  through the pipe, parsed and dispatched to the listeners.
+ *
+ * @author lakospeter
+ */
+public class IRemotePipeEmulatorTest {
+
+    /**
+     * The directory of the script, with a space in its name.
+     */
+    private Path directory;
+
+    /**
+     * The script played by the emulator.
+     */
+    private Path script;
+
+
+    /**
+     * Writes the script played by the emulator into a directory with a space in its name. It waits a bit before the
+     *  first event, so the listener is added before it.
+     *
+     * @throws IOException If the script cannot be written.
+     */
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("iremotepipe test");
+        script = Files.createTempFile(directory, "iremotepipe", ".script");
+        final List<String> lines = new ArrayList<>();
+        lines.add("# events of the end to end test");
+        lines.add("500 " + line(AppleRemote.Button.NEXT, AppleRemote.Kind.PRESSED));
+        lines.add(line(AppleRemote.Button.VOLUME_UP, AppleRemote.Kind.HOLD_STARTED));
+        lines.add("10 " + line(AppleRemote.Button.VOLUME_UP, AppleRemote.Kind.HOLD_STOPPED));
+        lines.add(line(AppleRemote.Button.PLAY_PAUSE, AppleRemote.Kind.HELD));
+        lines.add(line(AppleRemote.Button.MENU, AppleRemote.Kind.PRESSED));
+        Files.write(script, lines, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Deletes the script and its directory, and clears the system properties.
+     *
+     * @throws IOException If the script or its directory cannot be deleted.
+     */
+    @After
+    public void tearDown() throws IOException {
+        System.clearProperty(AppleRemote.IREMOTEPIPE_PATH_PROPERTY);
+        System.clearProperty(AppleRemote.IREMOTEPIPE_ARGS_PROPERTY);
+        Files.deleteIfExists(script);
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * Checks that the listener receives the events of the script, in order, and the AppleRemote stops when the
+     *  output of the emulator ends. The path of the script contains a space, so it is quoted in the arguments.
+     *
+     * @throws Exception If the location of the classes cannot be determined, or the test is interrupted.
+     */
+    @Test
+    public void listenerReceivesEventsOfEmulatorProcess() throws Exception {
+        System.setProperty(AppleRemote.IREMOTEPIPE_PATH_PROPERTY,
+                           Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        System.setProperty(AppleRemote.IREMOTEPIPE_ARGS_PROPERTY,
+                           "-cp \"" + classPath() + "\" " + IRemotePipeEmulator.class.getName()
+                           + " --script '" + script + "'");
+        final List<String> received = Collections.synchronizedList(new ArrayList<>());
+
+        final AppleRemote appleRemote = new AppleRemote();
+        appleRemote.addAppleRemoteListener(new AppleRemoteListener() {
+            @Override
+            public void nextPressed(final AppleRemoteEvent e) {
+                received.add("nextPressed");
+            }
+
+            @Override
+            public void volumeUpHoldStarted(final AppleRemoteEvent e) {
+                received.add("volumeUpHoldStarted");
+            }
+
+            @Override
+            public void volumeUpHoldStopped(final AppleRemoteEvent e) {
+                received.add("volumeUpHoldStopped");
+            }
+
+            @Override
+            public void playPauseHeld(final AppleRemoteEvent e) {
+                received.add("playPauseHeld");
+            }
+
+            @Override
+            public void menuPressed(final AppleRemoteEvent e) {
+                received.add("menuPressed");
+            }
+        });
+        appleRemote.join(30000);
+
+        assertFalse("The AppleRemote did not stop when the output ended", appleRemote.isAlive());
+        assertEquals(Arrays.asList("nextPressed", "volumeUpHoldStarted", "volumeUpHoldStopped", "playPauseHeld",
+                                   "menuPressed"), received);
+        assertEquals(5, appleRemote.getMetrics().getParsedEventCount());
+        assertEquals(0, appleRemote.getMetrics().getMalformedLineCount());
+    }
+
+    /**
+     * Checks that the arguments are split at whitespace outside quotes, and that the quotes are removed.
+     */
+    @Test
+    public void argumentsAreSplitAtUnquotedWhitespace() {
+        assertEquals(Collections.emptyList(), AppleRemote.splitArguments(" \t "));
+        assertEquals(Arrays.asList("--count", "10"), AppleRemote.splitArguments("  --count\t 10 "));
+        assertEquals(Arrays.asList("-cp", "/My Libs/a.jar", "it's \"quoted\"", "", "C:\\x", "--a=b c"),
+                     AppleRemote.splitArguments("-cp \"/My Libs/a.jar\" \"it's \"'\"quoted\"' '' C:\\x --a='b c'"));
+        try {
+            AppleRemote.splitArguments("--script '/tmp/a b");
+            fail("Unclosed quote accepted");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    /**
+     * Returns the line of iremotepipe's output of an event.
+     *
+     * @param button The button.
+     * @param kind The kind of the event.
+     * @return The line.
+     */
+    private static String line(final AppleRemote.Button button, final AppleRemote.Kind kind) {
+        return AppleRemoteEventCodes.iRemotePipeLine(AppleRemoteEventCodes.code(button, kind));
+    }
+
+    /**
+     * Returns the class path of the classes of appleremote4j, for the emulator process.
+     *
+     * @return The class path.
+     * @throws Exception If the location of the classes cannot be determined.
+     */
+    private static String classPath() throws Exception {
+        return new File(IRemotePipeEmulator.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+                .getPath();
+    }
+}
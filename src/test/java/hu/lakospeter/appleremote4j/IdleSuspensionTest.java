@@ -0,0 +1,111 @@
+package hu.lakospeter.appleremote4j;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the idle suspension of {@link AppleRemote} (see {@link AppleRemote#setIdleSuspendTimeout(long)}), with
+ *  {@link IRemotePipeEmulator} as iremotepipe, so the process is really destroyed and started again.
+ *
+ * @author lakospeter
+ */
+public class IdleSuspensionTest {
+
+    /**
+     * The idle suspend timeout of the test, in milliseconds.
+     */
+    private static final long IDLE_SUSPEND_MILLIS = 200;
+
+    /**
+     * The longest time the test waits for a change, in milliseconds.
+     */
+    private static final long TIMEOUT_MILLIS = 30000;
+
+    /**
+     * Checks that the events nobody is interested in are dropped, that iremotepipe is suspended after the last
+     *  listener is removed without stopping the AppleRemote, and that it is resumed when a listener is added again.
+     *
+     * @throws Exception If the location of the classes cannot be determined, or the test is interrupted.
+     */
+    @Test
+    public void remoteIsSuspendedWhenIdleAndResumedByListener() throws Exception {
+        final AppleRemote appleRemote = new AppleRemote(Arrays.asList(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", classPath(),
+                IRemotePipeEmulator.class.getName(),
+                "--rate", "500"), false);
+        appleRemote.setIdleSuspendTimeout(IDLE_SUSPEND_MILLIS);
+        final AtomicInteger menuPresses = new AtomicInteger();
+        final AppleRemoteListener listener = new AppleRemoteListener() {
+            @Override
+            public void menuPressed(final AppleRemoteEvent e) {
+                menuPresses.incrementAndGet();
+            }
+        };
+        appleRemote.addAppleRemoteListener(listener);
+        final AppleRemoteMetrics metrics = appleRemote.getMetrics();
+        appleRemote.start();
+
+        try {
+            waitUntil("events were dropped", () -> menuPresses.get() > 0 && metrics.getDroppedEventCount() > 0);
+            assertFalse(appleRemote.isSuspended());
+            assertTrue(metrics.getDroppedEventCount() < metrics.getEventCount());
+
+            appleRemote.removeAppleRemoteListener(listener);
+            waitUntil("iremotepipe was suspended", () -> appleRemote.isSuspended() && !metrics.isIRemotePipeAlive());
+            assertTrue("The AppleRemote stopped with its last listener", appleRemote.isAlive());
+            // the output that was already in the pipe, and the hold stops of the unfinished holds are still dispatched
+            TimeUnit.MILLISECONDS.sleep(IDLE_SUSPEND_MILLIS);
+            final long eventCount = metrics.getEventCount();
+            TimeUnit.MILLISECONDS.sleep(2 * IDLE_SUSPEND_MILLIS);
+            assertEquals("Events while suspended", eventCount, metrics.getEventCount());
+
+            final int menuPressesBeforeResume = menuPresses.get();
+            appleRemote.addAppleRemoteListener(listener);
+            assertFalse(appleRemote.isSuspended());
+            waitUntil("iremotepipe was resumed", () -> menuPresses.get() > menuPressesBeforeResume);
+            assertTrue(metrics.isIRemotePipeAlive());
+        } finally {
+            appleRemote.stopRunning();
+            appleRemote.join(TIMEOUT_MILLIS);
+        }
+        assertFalse(appleRemote.isAlive());
+    }
+
+    /**
+     * Waits until a condition holds, and fails the test if it does not hold within {@link #TIMEOUT_MILLIS}.
+     *
+     * @param description The description of the condition.
+     * @param condition The condition.
+     * @throws InterruptedException If the test is interrupted.
+     */
+    private static void waitUntil(final String description, final BooleanSupplier condition)
+            throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timed out waiting until " + description, System.nanoTime() < deadline);
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+
+    /**
+     * Returns the class path of the classes of appleremote4j, for the emulator process.
+     *
+     * @return The class path.
+     * @throws Exception If the location of the classes cannot be determined.
+     */
+    private static String classPath() throws Exception {
+        return new File(IRemotePipeEmulator.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+                .getPath();
+    }
+}
@@ -0,0 +1,220 @@
+package hu.lakospeter.appleremote4j;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests of the priorities of the listeners of {@link AppleRemote}, and of consuming events
+ *  (see {@link AppleRemoteEvent#consume()}). iremotepipe's output is fed to an AppleRemote that is not started.
+ *
+ * @author lakospeter
+ */
+public class ListenerPriorityTest {
+
+    /**
+     * The AppleRemote under test.
+     */
+    private AppleRemote appleRemote;
+
+    /**
+     * The names of the receivers of the events, in the order they received them.
+     */
+    private List<String> received;
+
+    /**
+     * The ring file of the publisher.
+     */
+    private Path file;
+
+
+    /**
+     * Creates an AppleRemote that is not started.
+     *
+     * @throws IOException If the ring file cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException {
+        appleRemote = new AppleRemote(Collections.singletonList("iremotepipe"), false);
+        received = new ArrayList<>();
+        file = Files.createTempFile("appleremote", ".ring");
+    }
+
+    /**
+     * Deletes the ring file.
+     *
+     * @throws IOException If the file cannot be deleted.
+     */
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Checks that the listeners with higher priorities receive the events first, and the listeners with the same
+     *  priority receive them in the order they were added.
+     *
+     * @throws IOException Never, the output is read from memory.
+     */
+    @Test
+    public void listenersAreCalledByPriorityThenByRegistrationOrder() throws IOException {
+        appleRemote.addAppleRemoteListener(new MenuListener("a", false));
+        appleRemote.addAppleRemoteListener(new MenuListener("b", false), 5);
+        appleRemote.addAppleRemoteListener(new MenuListener("c", false), -1);
+        appleRemote.addAppleRemoteListener(new MenuListener("d", false), AppleRemote.DEFAULT_LISTENER_PRIORITY);
+        appleRemote.addAppleRemoteListener(new MenuListener("e", false), 5);
+
+        press(AppleRemote.Button.MENU);
+
+        assertEquals(Arrays.asList("b", "e", "a", "d", "c"), received);
+    }
+
+    /**
+     * Checks that a consumed event is not passed to the listeners with lower priorities, the annotated listeners and
+     *  the contexts, but the queues, the publishers and the sequences still receive it.
+     *
+     * @throws IOException If the ring file cannot be mapped.
+     */
+    @Test
+    public void consumedEventOnlyReachesQueuesPublishersAndSequences() throws IOException {
+        appleRemote.addAppleRemoteListener(new MenuListener("low", false), -1);
+        appleRemote.addAppleRemoteListener(new MenuListener("consumer", true), 1);
+        appleRemote.addAnnotatedListener(new AnnotatedMenuListener(received));
+        appleRemote.pushContext(new AppleRemoteContext("menu")
+                                        .on(AppleRemote.Button.MENU, e -> received.add("context")));
+        appleRemote.addSequence(AppleRemoteSequence.ofPresses(1000, AppleRemote.Button.MENU),
+                                e -> received.add("sequence"));
+        final AppleRemoteEventQueue eventQueue = new AppleRemoteEventQueue(4);
+        appleRemote.addEventQueue(eventQueue);
+        final AppleRemoteEventCodeQueue eventCodeQueue = new AppleRemoteEventCodeQueue(4);
+        appleRemote.addEventCodeQueue(eventCodeQueue);
+        final AppleRemotePublisher publisher = new AppleRemotePublisher(file, 4);
+        final AppleRemoteSubscriber subscriber = new AppleRemoteSubscriber(file);
+        appleRemote.addPublisher(publisher);
+
+        try {
+            press(AppleRemote.Button.MENU);
+        } finally {
+            publisher.close();
+        }
+
+        assertEquals(Arrays.asList("consumer", "sequence"), received);
+        final AppleRemoteEvent queuedEvent = eventQueue.poll();
+        assertNotNull(queuedEvent);
+        assertEquals(AppleRemote.Button.MENU, queuedEvent.getButton());
+        assertNull(eventQueue.poll());
+        final int code = AppleRemoteEventCodes.code(AppleRemote.Button.MENU, AppleRemote.Kind.PRESSED);
+        assertEquals(code, AppleRemoteEventCodes.unpackCode(eventCodeQueue.poll()));
+        assertEquals(code, AppleRemoteEventCodes.unpackCode(subscriber.poll()));
+    }
+
+    /**
+     * Checks that an event that is not consumed reaches the listeners, the annotated listeners and the contexts, in
+     *  this order.
+     *
+     * @throws IOException Never, the output is read from memory.
+     */
+    @Test
+    public void eventThatIsNotConsumedReachesEveryone() throws IOException {
+        appleRemote.addAppleRemoteListener(new MenuListener("low", false), -1);
+        appleRemote.addAppleRemoteListener(new MenuListener("high", false), 1);
+        appleRemote.addAnnotatedListener(new AnnotatedMenuListener(received));
+        appleRemote.pushContext(new AppleRemoteContext("menu")
+                                        .on(AppleRemote.Button.MENU, e -> received.add("context")));
+
+        press(AppleRemote.Button.MENU);
+
+        assertEquals(Arrays.asList("high", "low", "annotated", "context"), received);
+    }
+
+    /**
+     * Feeds a press of a button to the AppleRemote.
+     *
+     * @param button The pressed button.
+     * @throws IOException Never, the output is read from memory.
+     */
+    private void press(final AppleRemote.Button button) throws IOException {
+        final String line = AppleRemoteEventCodes.iRemotePipeLine(
+                AppleRemoteEventCodes.code(button, AppleRemote.Kind.PRESSED)) + '\n';
+        appleRemote.processOutput(new ByteArrayInputStream(line.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Listener that records the presses of the Menu button with its name, and optionally consumes them.
+     */
+    private final class MenuListener implements AppleRemoteListener {
+
+        /**
+         * The name of the listener in the recorded events.
+         */
+        private final String name;
+
+        /**
+         * Whether the listener consumes the events.
+         */
+        private final boolean consume;
+
+
+        /**
+         * Simple constructor that gives values to fields.
+         *
+         * @param name The name of the listener in the recorded events.
+         * @param consume Whether the listener consumes the events.
+         */
+        private MenuListener(final String name, final boolean consume) {
+            this.name = name;
+            this.consume = consume;
+        }
+
+        @Override
+        public void menuPressed(final AppleRemoteEvent e) {
+            received.add(name);
+            if (consume) {
+                e.consume();
+            }
+        }
+    }
+
+    /**
+     * Annotated listener that records the presses of the Menu button.
+     */
+    public static final class AnnotatedMenuListener {
+
+        /**
+         * The names of the receivers of the events.
+         */
+        private final List<String> received;
+
+
+        /**
+         * Simple constructor that gives values to fields.
+         *
+         * @param received The names of the receivers of the events.
+         */
+        private AnnotatedMenuListener(final List<String> received) {
+            this.received = received;
+        }
+
+        /**
+         * Records a press of the Menu button.
+         */
+        @OnButton(button = AppleRemote.Button.MENU)
+        public void menuPressed() {
+            received.add("annotated");
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package hu.lakospeter.appleremote4j;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests of {@link SequenceMatcher}. The events are dispatched to the matcher directly, so their times are known.
+ *
+ * @author lakospeter
+ */
+public class SequenceMatcherTest {
+
+    /**
+     * The matcher.
+     */
+    private SequenceMatcher matcher;
+
+    /**
+     * The names of the matched sequences and the times of their last events, in the order of the matches.
+     */
+    private List<String> matches;
+
+
+    /**
+     * Creates the matcher.
+     */
+    @Before
+    public void setUp() {
+        matcher = new SequenceMatcher();
+        matches = new ArrayList<>();
+    }
+
+    /**
+     * Checks that a sequence is matched when its first events repeat before it (M, M, M, P for M, M, P), so a failed
+     *  partial match falls back to the longest suffix that is still a prefix of the sequence.
+     */
+    @Test
+    public void overlappingPrefixIsMatched() {
+        add("MMP", 1000, AppleRemote.Button.MENU, AppleRemote.Button.MENU, AppleRemote.Button.PLAY_PAUSE);
+
+        press(AppleRemote.Button.MENU, 0);
+        press(AppleRemote.Button.MENU, 100);
+        press(AppleRemote.Button.MENU, 200);
+        press(AppleRemote.Button.PLAY_PAUSE, 300);
+
+        assertEquals(Arrays.asList("MMP@300"), matches);
+    }
+
+    /**
+     * Checks that a sequence which is the suffix of a longer one is matched inside it, and on its own.
+     */
+    @Test
+    public void suffixSequenceIsMatchedInsideLongerOne() {
+        add("NPM", 1000, AppleRemote.Button.NEXT, AppleRemote.Button.PLAY_PAUSE, AppleRemote.Button.MENU);
+        add("PM", 1000, AppleRemote.Button.PLAY_PAUSE, AppleRemote.Button.MENU);
+
+        press(AppleRemote.Button.NEXT, 0);
+        press(AppleRemote.Button.PLAY_PAUSE, 100);
+        press(AppleRemote.Button.MENU, 200);
+        press(AppleRemote.Button.PREVIOUS, 300);
+        press(AppleRemote.Button.PLAY_PAUSE, 400);
+        press(AppleRemote.Button.MENU, 500);
+
+        assertEquals(Arrays.asList("NPM@200", "PM@200", "PM@500"), matches);
+    }
+
+    /**
+     * Checks that a sequence is not matched if the time between two of its events is longer than its maximum, even
+     *  if another registered sequence allows longer times, and that it is matched again by the next events that are
+     *  close enough.
+     */
+    @Test
+    public void sequenceWithTooLongGapIsRejected() {
+        add("MP", 500, AppleRemote.Button.MENU, AppleRemote.Button.PLAY_PAUSE);
+        add("NN", 5000, AppleRemote.Button.NEXT, AppleRemote.Button.NEXT);
+
+        press(AppleRemote.Button.MENU, 0);
+        press(AppleRemote.Button.PLAY_PAUSE, 600);
+        press(AppleRemote.Button.MENU, 1000);
+        press(AppleRemote.Button.MENU, 2000);
+        press(AppleRemote.Button.PLAY_PAUSE, 2500);
+
+        assertEquals(Arrays.asList("MP@2500"), matches);
+    }
+
+    /**
+     * Checks that registering sequences again starts the matching over, so the events before the registration do not
+     *  complete a sequence.
+     */
+    @Test
+    public void reregistrationResetsPartialMatches() {
+        final AppleRemoteEventHandler handler = handler("MMP");
+        final AppleRemoteSequence sequence = AppleRemoteSequence.ofPresses(1000, AppleRemote.Button.MENU,
+                AppleRemote.Button.MENU, AppleRemote.Button.PLAY_PAUSE);
+        matcher.add(sequence, handler);
+
+        press(AppleRemote.Button.MENU, 0);
+        press(AppleRemote.Button.MENU, 100);
+        matcher.remove(sequence, handler);
+        matcher.add(sequence, handler);
+        press(AppleRemote.Button.PLAY_PAUSE, 200);
+
+        press(AppleRemote.Button.MENU, 300);
+        add("N", 1000, AppleRemote.Button.NEXT);
+        press(AppleRemote.Button.MENU, 400);
+        press(AppleRemote.Button.PLAY_PAUSE, 500);
+
+        press(AppleRemote.Button.MENU, 600);
+        press(AppleRemote.Button.MENU, 700);
+        press(AppleRemote.Button.PLAY_PAUSE, 800);
+
+        assertEquals(Arrays.asList("MMP@800"), matches);
+    }
+
+    /**
+     * Registers a sequence of presses with a handler that records its matches.
+     *
+     * @param name The name of the sequence in the recorded matches.
+     * @param maxGapMillis The maximum time between two consecutive presses of the sequence, in milliseconds.
+     * @param buttons The buttons of the sequence.
+     */
+    private void add(final String name, final long maxGapMillis, final AppleRemote.Button... buttons) {
+        matcher.add(AppleRemoteSequence.ofPresses(maxGapMillis, buttons), handler(name));
+    }
+
+    /**
+     * Returns a handler that records the matches of a sequence.
+     *
+     * @param name The name of the sequence in the recorded matches.
+     * @return The handler.
+     */
+    private AppleRemoteEventHandler handler(final String name) {
+        return e -> matches.add(name + "@" + e.getWhen());
+    }
+
+    /**
+     * Dispatches a press to the matcher.
+     *
+     * @param button The pressed button.
+     * @param when The time of the press, in milliseconds.
+     */
+    private void press(final AppleRemote.Button button, final long when) {
+        matcher.dispatch(new AppleRemoteEvent(this, button, AppleRemote.Kind.PRESSED, when, null),
+                         AppleRemoteEventCodes.code(button, AppleRemote.Kind.PRESSED));
+    }
+}